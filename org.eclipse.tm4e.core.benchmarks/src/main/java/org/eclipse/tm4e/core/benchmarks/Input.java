@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.IRegistryOptions;
+import org.eclipse.tm4e.core.registry.Registry;
+
+/**
+ * The grammars and documents the benchmarks are run with.
+ * <p>
+ * Multi-line documents are repeated or truncated to {@link #DOCUMENT_LINES} lines so that the results of different inputs
+ * are comparable.
+ */
+public enum Input {
+
+	TYPESCRIPT("lngpck.source.ts", "raytracer.ts"),
+	MARKDOWN("lngpck.text.html.markdown", "test.md.txt"),
+	YAML("lngpck.source.yaml", "sample.yaml"),
+
+	/** HTML with embedded JavaScript and CSS */
+	HTML("lngpck.text.html.basic", "sample.html"),
+
+	/** very long lines, e.g. minified JavaScript */
+	LONG_LINES("lngpck.source.ts", null);
+
+	static final int DOCUMENT_LINES = 3_000;
+
+	private static final int LONG_LINES_COUNT = 20;
+	private static final int LONG_LINES_LENGTH = 20_000;
+
+	/** scope name -> grammar resource, contains all grammars required to resolve the embedded languages of the inputs */
+	private static final Map<String, String> GRAMMARS = Map.of(
+			"lngpck.source.css", "grammars/css/css.tmLanguage.json",
+			"lngpck.source.js", "grammars/javascript/JavaScript.tmLanguage.json",
+			"lngpck.source.js.regexp", "grammars/javascript/Regular Expressions (JavaScript).tmLanguage",
+			"lngpck.source.ts", "grammars/typescript-basics/TypeScript.tmLanguage.json",
+			"lngpck.source.yaml", "grammars/yaml/yaml.tmLanguage.json",
+			"lngpck.text.html.basic", "grammars/html/html.tmLanguage.json",
+			"lngpck.text.html.derivative", "grammars/html/html-derivative.tmLanguage.json",
+			"lngpck.text.html.markdown", "grammars/markdown-basics/markdown.tmLanguage.json");
+
+	final String scopeName;
+	private final String documentResource;
+
+	Input(final String scopeName, final String documentResource) {
+		this.scopeName = scopeName;
+		this.documentResource = documentResource;
+	}
+
+	IGrammar loadGrammar() {
+		return newRegistry().loadGrammar(scopeName);
+	}
+
+	static Registry newRegistry() {
+		return new Registry(new IRegistryOptions() {
+			@Override
+			public IGrammarSource getGrammarSource(final String scopeName) {
+				final var resource = GRAMMARS.get(scopeName);
+				return resource == null ? null : IGrammarSource.fromResource(Input.class, resource);
+			}
+		});
+	}
+
+	String[] loadLines() throws IOException {
+		if (documentResource == null)
+			return generateLongLines();
+
+		final List<String> documentLines;
+		try (var reader = new BufferedReader(new InputStreamReader(
+				Input.class.getResourceAsStream("inputs/" + documentResource), StandardCharsets.UTF_8))) {
+			documentLines = reader.lines().toList();
+		}
+
+		final var lines = new ArrayList<String>(DOCUMENT_LINES);
+		while (lines.size() < DOCUMENT_LINES) {
+			lines.addAll(documentLines.subList(0, Math.min(documentLines.size(), DOCUMENT_LINES - lines.size())));
+		}
+		return lines.toArray(String[]::new);
+	}
+
+	private static String[] generateLongLines() {
+		final var lines = new String[LONG_LINES_COUNT];
+		final var line = new StringBuilder(LONG_LINES_LENGTH + 200);
+		for (int i = 0; i < lines.length; i++) {
+			line.setLength(0);
+			for (int j = 0; line.length() < LONG_LINES_LENGTH; j++) {
+				line.append("var a").append(j).append("={id:").append(i * j)
+						.append(",name:\"item ").append(j).append("\",tags:['x','y'],re:/ab+c/gi,")
+						.append("f:function(x,y){return x*").append(j).append("+y>=0?`v${x}`:null}};");
+			}
+			lines[i] = line.toString();
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reports the heap retained by the end states of all lines of a large document, as kept by <code>TMModel</code>, with and
+ * without interning of equal states (system property <code>tm4e.core.stateStackInterning</code>).
+ * <p>
+ * The secondary results <code>retainedKiB</code> and <code>distinctStates</code> contain the measured memory and the
+ * number of distinct end state instances.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2G", "-Xmx2G" })
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+public class LineStatesMemoryBenchmark {
+
+	private static final int LARGE_DOCUMENT_LINES = 100_000;
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class Memory {
+		public long retainedKiB;
+		public long distinctStates;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			retainedKiB = 0;
+			distinctStates = 0;
+		}
+	}
+
+	@Param({ "TYPESCRIPT", "MARKDOWN", "HTML" })
+	public Input input;
+
+	@Param({ "true", "false" })
+	public boolean interning;
+
+	private IGrammar grammar;
+	private String[] lines;
+
+	@Setup
+	public void setup() throws Exception {
+		System.setProperty("tm4e.core.stateStackInterning", Boolean.toString(interning));
+		grammar = input.loadGrammar();
+
+		final var documentLines = input.loadLines();
+		lines = new String[LARGE_DOCUMENT_LINES];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = documentLines[i % documentLines.length];
+		}
+	}
+
+	@Benchmark
+	public IStateStack[] tokenizeAndRetainStates(final Memory memory) {
+		final long usedBefore = usedHeapAfterGC();
+
+		final var endStates = new IStateStack[lines.length];
+		IStateStack state = null;
+		for (int i = 0; i < lines.length; i++) {
+			state = grammar.tokenizeLine(lines[i], state, null).getRuleStack();
+			endStates[i] = state;
+		}
+
+		memory.retainedKiB = (usedHeapAfterGC() - usedBefore) / 1024;
+		final var distinct = Collections.newSetFromMap(new IdentityHashMap<IStateStack, Boolean>());
+		Collections.addAll(distinct, endStates);
+		memory.distinctStates = distinct.size();
+		return endStates;
+	}
+
+	private static long usedHeapAfterGC() {
+		final var runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tm4e.core.internal.oniguruma.OnigScanner;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link OnigScanner#findNextMatch(OnigString, int)} which runs the searches of all patterns of a rule, i.e.
+ * the innermost loop of the tokenizer.
+ * <p>
+ * Each document line is scanned from start to end with a set of patterns typical for C-like languages. A new
+ * {@link OnigString} is created per line and invocation, as the regular expressions cache their last search result per
+ * string instance.
+ * <p>
+ * The patterns are either searched one after another or as a single combined regular expression (system property
+ * <code>tm4e.core.combinedScanner</code>).
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1G", "-Xmx1G" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class OnigScannerBenchmark {
+
+	private static final List<String> PATTERNS = List.of(
+			"\\b(?:break|case|catch|class|const|continue|do|else|export|extends|finally|for|function|if|import|in|instanceof"
+					+ "|let|new|return|switch|this|throw|try|typeof|var|void|while|with|yield)\\b",
+			"\"(?:[^\"\\\\]|\\\\.)*\"",
+			"'(?:[^'\\\\]|\\\\.)*'",
+			"`",
+			"//.*$",
+			"/\\*",
+			"\\b(?:0[xX][0-9a-fA-F]+|[0-9]+(?:\\.[0-9]+)?(?:[eE][+-]?[0-9]+)?)\\b",
+			"[_$a-zA-Z][_$a-zA-Z0-9]*(?=\\s*\\()",
+			"[{}()\\[\\];,.]",
+			"===|!==|==|!=|<=|>=|&&|\\|\\||[-+*/%=<>!&|^~?:]");
+
+	@Param
+	public Input input;
+
+	@Param({ "false", "true" })
+	public boolean combined;
+
+	private OnigScanner scanner;
+	private String[] lines;
+
+	@Setup
+	public void setup() throws Exception {
+		System.setProperty(OnigScanner.COMBINED_SEARCH_PROPERTY, Boolean.toString(combined));
+		scanner = new OnigScanner(PATTERNS);
+		lines = input.loadLines();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void scanDocument(final Blackhole blackhole) {
+		for (final String line : lines) {
+			final var str = OnigString.of(line);
+			int position = 0;
+			while (position < line.length()) {
+				final var match = scanner.findNextMatch(str, position);
+				if (match == null)
+					break;
+				blackhole.consume(match);
+				position = Math.max(position + 1, match.getCaptureIndices()[0].end);
+			}
+		}
+	}
+}
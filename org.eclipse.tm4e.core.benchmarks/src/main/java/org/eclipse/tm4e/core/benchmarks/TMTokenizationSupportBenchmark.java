@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.model.TMTokenizationSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link TMTokenizationSupport#tokenize(String, IStateStack)}, i.e. line tokenization including the decoding
+ * of the scopes into the token types used by the Eclipse editors.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1G", "-Xmx1G" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TMTokenizationSupportBenchmark {
+
+	@Param
+	public Input input;
+
+	private TMTokenizationSupport tokenizer;
+	private String[] lines;
+
+	@Setup
+	public void setup() throws Exception {
+		tokenizer = new TMTokenizationSupport(input.loadGrammar());
+		lines = input.loadLines();
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public IStateStack tokenizeDocument() {
+		IStateStack state = tokenizer.getInitialState();
+		for (final String line : lines) {
+			state = tokenizer.tokenize(line, state).getEndState();
+		}
+		return state;
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.internal.grammar.ScopeStack;
+import org.eclipse.tm4e.core.internal.theme.FontStyle;
+import org.eclipse.tm4e.core.internal.theme.ParsedThemeRule;
+import org.eclipse.tm4e.core.internal.theme.Theme;
+import org.eclipse.tm4e.core.internal.theme.raw.RawThemeReader;
+import org.eclipse.tm4e.core.registry.IThemeSource;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link Theme#match(ScopeStack)} with the distinct scope paths produced by tokenizing the input document.
+ * <p>
+ * Scope paths with a common prefix share their parent instances like the interned line states of the tokenizer. The
+ * <code>parent-scoped</code> theme is generated from the scope paths and contains a parent scoped rule for every scope.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1G", "-Xmx1G" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ThemeMatchBenchmark {
+
+	@Param
+	public Input input;
+
+	@Param({ "dark_vs.json", "Monokai.tmTheme", "parent-scoped" })
+	public String themeFile;
+
+	/** value of the system property <code>tm4e.core.themeMatchCache</code> */
+	@Param({ "true", "false" })
+	public String matchCache;
+
+	private Theme theme;
+	private ScopeStack[] scopePaths;
+
+	@Setup
+	public void setup() throws Exception {
+		final var grammar = input.loadGrammar();
+		final var distinctScopes = new LinkedHashSet<List<String>>();
+		IStateStack state = null;
+		for (final String line : input.loadLines()) {
+			final var result = grammar.tokenizeLine(line, state, null);
+			for (final var token : result.getTokens()) {
+				distinctScopes.add(token.getScopes());
+			}
+			state = result.getRuleStack();
+		}
+
+		final var sharedScopePaths = new HashMap<List<String>, ScopeStack>();
+		scopePaths = distinctScopes.stream().map(scopes -> toScopePath(scopes, sharedScopePaths)).toArray(ScopeStack[]::new);
+
+		System.setProperty("tm4e.core.themeMatchCache", matchCache);
+		theme = "parent-scoped".equals(themeFile)
+				? Theme.createFromParsedTheme(createParentScopedRules(distinctScopes), null)
+				: Theme.createFromRawTheme(
+						RawThemeReader.readTheme(IThemeSource.fromResource(ThemeMatchBenchmark.class, "themes/" + themeFile)), null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.clearProperty("tm4e.core.themeMatchCache");
+	}
+
+	/**
+	 * Reports the theme match cache hits and misses of the measured invocations as secondary results.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class MatchCacheCounters {
+		public long cacheHits;
+		public long cacheMisses;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			cacheHits = 0;
+			cacheMisses = 0;
+		}
+	}
+
+	private static ScopeStack toScopePath(final List<String> scopes, final Map<List<String>, ScopeStack> sharedScopePaths) {
+		final var existing = sharedScopePaths.get(scopes);
+		if (existing != null)
+			return existing;
+		final var parent = scopes.size() == 1 ? null : toScopePath(scopes.subList(0, scopes.size() - 1), sharedScopePaths);
+		final var scopePath = new ScopeStack(parent, scopes.get(scopes.size() - 1));
+		sharedScopePaths.put(scopes, scopePath);
+		return scopePath;
+	}
+
+	/**
+	 * @return a rule for every scope with the root and the direct parent of the scope as parent scopes, plus a rule without
+	 *         parent scopes
+	 */
+	private static List<ParsedThemeRule> createParentScopedRules(final Iterable<List<String>> distinctScopes) {
+		final var rules = new ArrayList<ParsedThemeRule>();
+		for (final var scopes : distinctScopes) {
+			final var scope = scopes.get(scopes.size() - 1);
+			final var color = String.format("#%06x", rules.size() * 7919 & 0xFFFFFF);
+			rules.add(new ParsedThemeRule(scope, null, rules.size(), FontStyle.NotSet, color, null));
+			if (scopes.size() > 1) {
+				// parent scopes are in reverse order, i.e. the nearest parent first
+				rules.add(new ParsedThemeRule(scope, List.of(scopes.get(scopes.size() - 2)), rules.size(), FontStyle.Bold, color, null));
+				rules.add(new ParsedThemeRule(scope, List.of(scopes.get(scopes.size() - 2), scopes.get(0)), rules.size(),
+						FontStyle.Italic, color, null));
+			}
+		}
+		return rules;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public void matchScopePaths(final Blackhole blackhole, final MatchCacheCounters counters) {
+		final long hits = theme.getMatchCacheHits();
+		final long misses = theme.getMatchCacheMisses();
+		for (final ScopeStack scopePath : scopePaths) {
+			blackhole.consume(theme.match(scopePath));
+		}
+		counters.cacheHits += theme.getMatchCacheHits() - hits;
+		counters.cacheMisses += theme.getMatchCacheMisses() - misses;
+	}
+}
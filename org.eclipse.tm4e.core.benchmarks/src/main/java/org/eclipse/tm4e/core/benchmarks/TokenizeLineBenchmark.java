@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.tm4e.core.grammar.BinaryTokenBuffer;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.grammar.IToken;
+import org.eclipse.tm4e.core.grammar.ITokenizeLineResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks {@link IGrammar#tokenizeLine(String, IStateStack, java.time.Duration)} and compares
+ * {@link IGrammar#tokenizeLine2(String, IStateStack, java.time.Duration)} with
+ * {@link IGrammar#tokenizeLine2(String, IStateStack, java.time.Duration, BinaryTokenBuffer)}.
+ * <p>
+ * The <code>tokenizeDocument*</code> benchmarks measure the throughput of tokenizing a whole document line by line,
+ * the <code>streamDocument*</code> benchmarks the same via {@link IGrammar#tokenizeDocument2(CharSequence, IStateStack,
+ * java.time.Duration, org.eclipse.tm4e.core.grammar.ILineTokensConsumer)}.
+ * {@link #tokenizeLine(LineCursor)} tokenizes one line per invocation using the precomputed start state of the line to
+ * report the per-line latency distribution.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1G", "-Xmx1G" })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TokenizeLineBenchmark {
+
+	/**
+	 * Cycles through the lines of the document.
+	 */
+	@State(Scope.Thread)
+	public static class LineCursor {
+		int lineIndex = -1;
+
+		int next(final int lineCount) {
+			lineIndex = (lineIndex + 1) % lineCount;
+			return lineIndex;
+		}
+	}
+
+	@Param
+	public Input input;
+
+	private IGrammar grammar;
+	private String[] lines;
+	private String document;
+	private IStateStack[] lineStartStates;
+	private final BinaryTokenBuffer binaryTokens = new BinaryTokenBuffer();
+
+	@Setup
+	public void setup() throws Exception {
+		grammar = input.loadGrammar();
+		lines = input.loadLines();
+		document = String.join("\n", lines);
+		lineStartStates = new IStateStack[lines.length];
+		IStateStack state = null;
+		for (int i = 0; i < lines.length; i++) {
+			lineStartStates[i] = state;
+			state = grammar.tokenizeLine(lines[i], state, null).getRuleStack();
+		}
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public IStateStack tokenizeDocument() {
+		IStateStack state = null;
+		for (final String line : lines) {
+			state = grammar.tokenizeLine(line, state, null).getRuleStack();
+		}
+		return state;
+	}
+
+	/**
+	 * Baseline for {@link #tokenizeDocumentBinaryBuffer(Blackhole)}: a new <code>int[]</code> is allocated per line.
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public IStateStack tokenizeDocumentBinary(final Blackhole blackhole) {
+		IStateStack state = null;
+		for (final String line : lines) {
+			final var result = grammar.tokenizeLine2(line, state, null);
+			blackhole.consume(result.getTokens());
+			state = result.getRuleStack();
+		}
+		return state;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public IStateStack tokenizeDocumentBinaryBuffer(final Blackhole blackhole) {
+		IStateStack state = null;
+		for (final String line : lines) {
+			state = grammar.tokenizeLine2(line, state, null, binaryTokens).getRuleStack();
+			blackhole.consume(binaryTokens.size());
+		}
+		return state;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public IStateStack streamDocument() {
+		return grammar.tokenizeDocument(document, null, null, (lineIndex, lineText, result) -> true);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.SECONDS)
+	public IStateStack streamDocumentBinary() {
+		return grammar.tokenizeDocument2(document, null, null, (lineIndex, lineText, result) -> true);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SampleTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public ITokenizeLineResult<IToken[]> tokenizeLine(final LineCursor cursor) {
+		final int lineIndex = cursor.next(lines.length);
+		return grammar.tokenizeLine(lines[lineIndex], lineStartStates[lineIndex], null);
+	}
+}
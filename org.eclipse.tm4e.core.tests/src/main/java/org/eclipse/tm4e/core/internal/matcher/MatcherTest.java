@@ -16,8 +16,10 @@
 import java.util.ArrayList;
 import java.util.List;
 
+import org.eclipse.tm4e.core.internal.grammar.ScopeStack;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestFactory;
 import org.junit.jupiter.api.function.Executable;
 
@@ -75,7 +77,10 @@ List<DynamicTest> matcherTests() throws Exception {
 				{ "expression": "foo bar - (yo man)", "input": ["foo", "bar", "yo"], "result": true },
 				{ "expression": "foo bar - (yo man)", "input": ["foo", "bar", "yo", "man"], "result": false },
 				{ "expression": "foo bar - (yo | man)", "input": ["foo", "bar", "yo", "man"], "result": false },
-				{ "expression": "foo bar - (yo | man)", "input": ["foo", "bar", "yo"], "result": false }
+				{ "expression": "foo bar - (yo | man)", "input": ["foo", "bar", "yo"], "result": false },
+				{ "expression": "source.js", "input": ["source.js.embedded"], "result": true },
+				{ "expression": "source.js", "input": ["source.jsx"], "result": false },
+				{ "expression": "source.js.embedded", "input": ["source.js"], "result": false }
 			]
 			""";
 		final var listType = new TypeToken<List<MatcherTestImpl>>() {
@@ -87,4 +92,15 @@ List<DynamicTest> matcherTests() throws Exception {
 		}
 		return dynamicTests;
 	}
+
+	@Test
+	void testMatchIdentifiersCompiledAfterScopePath() {
+		final var scopePath = new ScopeStack(ScopeStack.from("source.matcher_test"), "string.quoted.matcher_test.1");
+		assertFalse(Matcher.createMatchers("comment.matcher_test").get(0).matcher.matches(scopePath));
+
+		// the ids cached by the scope path for the identifiers known so far must not hide identifiers compiled later
+		assertTrue(Matcher.createMatchers("source string.quoted.matcher_test").get(0).matcher.matches(scopePath));
+		assertTrue(Matcher.createMatchers("string.quoted.matcher_test.1").get(0).matcher.matches(scopePath));
+		assertFalse(Matcher.createMatchers("string.quoted.matcher_test.2").get(0).matcher.matches(scopePath));
+	}
 }
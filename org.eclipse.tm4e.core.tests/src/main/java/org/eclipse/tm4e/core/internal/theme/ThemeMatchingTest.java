@@ -192,4 +192,38 @@ void testMicrosoft_vscode_23460() throws Exception {
 		final var result = theme.match(path);
 		assertEquals(theme.getColorMap().get(result.foregroundId), "#FF410D");
 	}
+
+	@Test
+	@Order(6)
+	@DisplayName("Theme matching caches results of parent scoped rules per parent scope path")
+	void testMatchCache() throws Exception {
+		final Theme theme = createTheme("""
+			{"settings": [
+				{ "settings": { "foreground": "#100000", "background": "#200000" } },
+				{ "scope": "meta.tag entity", "settings": { "foreground": "#300000" } },
+				{ "scope": "entity", "settings": { "foreground": "#400000" } },
+				{ "scope": "keyword", "settings": { "foreground": "#500000" } }
+			]}""");
+		final var map = theme.getColorMap();
+
+		final var tag = ScopeStack.from("text.html", "meta.tag");
+		final var text = ScopeStack.from("text.html");
+
+		// scopes without parent scoped rules are not cached
+		final var keyword = theme.match(tag.push("keyword"));
+		assertSame(keyword, theme.match(text.push("keyword")));
+		assertEquals(0, theme.getMatchCacheHits() + theme.getMatchCacheMisses());
+
+		assertEquals("#300000", map.get(theme.match(tag.push("entity.name")).foregroundId));
+		assertEquals("#400000", map.get(theme.match(text.push("entity.name")).foregroundId));
+		assertEquals(0, theme.getMatchCacheHits());
+		assertEquals(2, theme.getMatchCacheMisses());
+
+		final var cached = theme.match(tag.push("entity.name"));
+		assertEquals("#300000", map.get(cached.foregroundId));
+		assertSame(cached, theme.match(tag.push("entity.name")));
+		assertEquals("#400000", map.get(theme.match(text.push("entity.name")).foregroundId));
+		assertEquals(3, theme.getMatchCacheHits());
+		assertEquals(2, theme.getMatchCacheMisses());
+	}
 }
@@ -0,0 +1,125 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.grammar;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer holding tokens in the binary format produced by {@link IGrammar#tokenizeLine2(String)}, i.e. each token
+ * occupies two consecutive ints: the start index followed by the metadata.
+ * <p>
+ * A buffer can be passed to {@link IGrammar#tokenizeLine2(String, IStateStack, java.time.Duration, BinaryTokenBuffer)}
+ * repeatedly to tokenize many lines without allocating a new token array per line. Instances are not thread-safe.
+ */
+public final class BinaryTokenBuffer {
+
+	private static final int DEFAULT_CAPACITY = 32;
+
+	private int[] data;
+	private int size;
+
+	public BinaryTokenBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param initialCapacity number of tokens the buffer can hold before it needs to grow
+	 */
+	public BinaryTokenBuffer(final int initialCapacity) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("[initialCapacity] must not be negative but was " + initialCapacity);
+		data = new int[2 * initialCapacity];
+	}
+
+	/**
+	 * Appends the given token.
+	 */
+	public void addToken(final int startIndex, final int metadata) {
+		if (size + 2 > data.length) {
+			data = Arrays.copyOf(data, Math.max(2 * data.length, 2 * DEFAULT_CAPACITY));
+		}
+		data[size++] = startIndex;
+		data[size++] = metadata;
+	}
+
+	/**
+	 * Removes all tokens. The allocated capacity is retained.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * @return the underlying array, which holds {@link #size()} valid elements and may be larger
+	 */
+	public int[] getArray() {
+		return data;
+	}
+
+	public int getMetadata(final int tokenIndex) {
+		return data[checkTokenIndex(tokenIndex) * 2 + 1];
+	}
+
+	public int getStartIndex(final int tokenIndex) {
+		return data[checkTokenIndex(tokenIndex) * 2];
+	}
+
+	public int getTokenCount() {
+		return size / 2;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes the last token.
+	 */
+	public void removeLastToken() {
+		if (size > 0) {
+			size -= 2;
+		}
+	}
+
+	public void setStartIndex(final int tokenIndex, final int startIndex) {
+		data[checkTokenIndex(tokenIndex) * 2] = startIndex;
+	}
+
+	/**
+	 * @return the number of ints held by this buffer, i.e. twice the number of tokens
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return a copy of the tokens in the format returned by {@link IGrammar#tokenizeLine2(String)}
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(data, size);
+	}
+
+	private int checkTokenIndex(final int tokenIndex) {
+		if (tokenIndex < 0 || tokenIndex >= size / 2)
+			throw new IndexOutOfBoundsException("Token index " + tokenIndex + " out of bounds for length " + size / 2);
+		return tokenIndex;
+	}
+
+	@Override
+	public String toString() {
+		final var sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0)
+				sb.append(", ");
+			sb.append(data[i]);
+		}
+		return sb.append(']').toString();
+	}
+}
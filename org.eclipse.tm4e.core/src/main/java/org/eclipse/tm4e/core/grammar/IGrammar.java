@@ -16,10 +16,13 @@
  */
 package org.eclipse.tm4e.core.grammar;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.time.Duration;
 import java.util.Collection;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.grammar.DocumentTokenizer;
 
 /**
  * TextMate grammar API.
@@ -51,6 +54,18 @@ public interface IGrammar {
 	 */
 	Collection<String> getFileTypes();
 
+	/**
+	 * Compiles all rules of the grammar, incl. the rules of included grammars and the regular expressions of all anchor
+	 * variants, which otherwise are compiled lazily when first needed during tokenization.
+	 * <p>
+	 * This is intended to warm up a grammar on a background thread before it is used. Rules whose patterns contain
+	 * back references to the begin pattern of their parent rule can only be compiled during tokenization.
+	 * <p>
+	 * The default implementation does nothing, i.e. the rules are compiled lazily.
+	 */
+	default void compileAllRules() {
+	}
+
 	/**
 	 * Tokenize `lineText`.
 	 *
@@ -122,4 +137,90 @@ public interface IGrammar {
 	 *            {@link ITokenizeLineResult#isStoppedEarly()} set to <code>true</code>
 	 */
 	ITokenizeLineResult<int[]> tokenizeLine2(String lineText, @Nullable IStateStack prevState, @Nullable Duration timeLimit);
+
+	/**
+	 * Tokenize `lineText` using previous line state `prevState` and writes the tokens in binary format into the given buffer.
+	 * <p>
+	 * Same as {@link #tokenizeLine2(String, IStateStack, Duration)} but does not allocate a new token array per line.
+	 * The buffer is cleared before tokenization and is returned by {@link ITokenizeLineResult#getTokens()}, thus the
+	 * result is only valid until the buffer is reused.
+	 *
+	 * @param lineText the line text to tokenize.
+	 * @param prevState previous line state.
+	 * @param timeLimit duration after which tokenization is aborted, in which case the returned result will have
+	 *            {@link ITokenizeLineResult#isStoppedEarly()} set to <code>true</code>
+	 * @param tokens the buffer to write the tokens to
+	 */
+	ITokenizeLineResult<BinaryTokenBuffer> tokenizeLine2(String lineText, @Nullable IStateStack prevState, @Nullable Duration timeLimit,
+			BinaryTokenBuffer tokens);
+
+	/**
+	 * Tokenizes all lines of the given document and passes the result of each line to the given consumer.
+	 * <p>
+	 * Lines are separated by <code>\n</code>, <code>\r\n</code> or <code>\r</code>. A line terminator at the end of the
+	 * document does not start another line, i.e. the lines are the same as returned by
+	 * {@link java.io.BufferedReader#readLine()}.
+	 * <p>
+	 * Compared to calling {@link #tokenizeLine(String, IStateStack, Duration)} for each line, internal per-line buffers are
+	 * reused across lines. The default implementation calls {@link #tokenizeLine(String, IStateStack, Duration)} for each
+	 * line.
+	 *
+	 * @param document the document to tokenize
+	 * @param initialState state of the line preceding the document, or <code>null</code> to start at the beginning
+	 * @param lineTimeLimit duration after which the tokenization of a single line is aborted, in which case the line's
+	 *            result has {@link ITokenizeLineResult#isStoppedEarly()} set to <code>true</code> and tokenization
+	 *            continues with the next line
+	 * @param consumer receives the tokens of each line
+	 *
+	 * @return the state after the last tokenized line, or <code>initialState</code> if the document is empty
+	 */
+	@Nullable
+	default IStateStack tokenizeDocument(final CharSequence document, @Nullable final IStateStack initialState,
+			@Nullable final Duration lineTimeLimit, final ILineTokensConsumer<IToken[]> consumer) {
+		return new DocumentTokenizer<>((lineText, prevState) -> tokenizeLine(lineText, prevState, lineTimeLimit),
+				initialState, consumer).tokenize(document);
+	}
+
+	/**
+	 * Same as {@link #tokenizeDocument(CharSequence, IStateStack, Duration, ILineTokensConsumer)} but reads the document
+	 * from the given reader, which is not closed by this method.
+	 *
+	 * @throws IOException if reading the document fails
+	 */
+	@Nullable
+	default IStateStack tokenizeDocument(final Reader document, @Nullable final IStateStack initialState,
+			@Nullable final Duration lineTimeLimit, final ILineTokensConsumer<IToken[]> consumer) throws IOException {
+		return new DocumentTokenizer<>((lineText, prevState) -> tokenizeLine(lineText, prevState, lineTimeLimit),
+				initialState, consumer).tokenize(document);
+	}
+
+	/**
+	 * Same as {@link #tokenizeDocument(CharSequence, IStateStack, Duration, ILineTokensConsumer)} but emits the tokens in
+	 * the binary format described at {@link #tokenizeLine2(String)}. A single {@link BinaryTokenBuffer} is reused for all
+	 * lines.
+	 * <p>
+	 * The default implementation calls {@link #tokenizeLine2(String, IStateStack, Duration, BinaryTokenBuffer)} for each
+	 * line.
+	 */
+	@Nullable
+	default IStateStack tokenizeDocument2(final CharSequence document, @Nullable final IStateStack initialState,
+			@Nullable final Duration lineTimeLimit, final ILineTokensConsumer<BinaryTokenBuffer> consumer) {
+		final var tokens = new BinaryTokenBuffer();
+		return new DocumentTokenizer<>((lineText, prevState) -> tokenizeLine2(lineText, prevState, lineTimeLimit, tokens),
+				initialState, consumer).tokenize(document);
+	}
+
+	/**
+	 * Same as {@link #tokenizeDocument2(CharSequence, IStateStack, Duration, ILineTokensConsumer)} but reads the document
+	 * from the given reader, which is not closed by this method.
+	 *
+	 * @throws IOException if reading the document fails
+	 */
+	@Nullable
+	default IStateStack tokenizeDocument2(final Reader document, @Nullable final IStateStack initialState,
+			@Nullable final Duration lineTimeLimit, final ILineTokensConsumer<BinaryTokenBuffer> consumer) throws IOException {
+		final var tokens = new BinaryTokenBuffer();
+		return new DocumentTokenizer<>((lineText, prevState) -> tokenizeLine2(lineText, prevState, lineTimeLimit, tokens),
+				initialState, consumer).tokenize(document);
+	}
 }
@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.grammar;
+
+/**
+ * Receives the tokenization results of the lines of a document tokenized via
+ * {@link IGrammar#tokenizeDocument(CharSequence, IStateStack, java.time.Duration, ILineTokensConsumer)} and
+ * {@link IGrammar#tokenizeDocument2(CharSequence, IStateStack, java.time.Duration, ILineTokensConsumer)}.
+ *
+ * @param <T> the token format, either <code>IToken[]</code> or {@link BinaryTokenBuffer}
+ */
+@FunctionalInterface
+public interface ILineTokensConsumer<T> {
+
+	/**
+	 * @param lineIndex 0-based index of the line in the document
+	 * @param lineText the text of the line, terminated by <code>\n</code> regardless of the line terminator used in the
+	 *            document
+	 * @param result the tokenization result of the line. In case of binary tokens, the buffer is reused for the next line,
+	 *            thus the result is only valid during this call.
+	 *
+	 * @return <code>true</code> to continue with the next line, <code>false</code> to stop the tokenization of the document
+	 */
+	boolean accept(int lineIndex, String lineText, ITokenizeLineResult<T> result);
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.rule.CompiledRule;
+import org.eclipse.tm4e.core.internal.rule.Rule;
+
+/**
+ * The injections of a grammar whose selectors match a given scope path, memoized per {@link AttributedScopeStack} by
+ * {@link AttributedScopeStack#getApplicableInjections(Grammar)}.
+ * <p>
+ * Besides the injections, the rules of the injections and the scanners compiled for them are kept, so that scanning the
+ * injections of a scope path repeatedly needs neither selector matching nor rule lookups.
+ */
+final class ApplicableInjections {
+
+	static ApplicableInjections of(final List<Injection> allInjections, final Grammar grammar,
+			@Nullable final ScopeStack scopePath) {
+		final var applicable = new ArrayList<Injection>();
+		for (final var injection : allInjections) {
+			if (injection.matches(scopePath)) {
+				applicable.add(injection);
+			}
+		}
+		final var injections = applicable.toArray(Injection[]::new);
+		final var rules = new Rule[injections.length];
+		for (int i = 0; i < injections.length; i++) {
+			rules[i] = grammar.getRule(injections[i].ruleId);
+		}
+		return new ApplicableInjections(allInjections, injections, rules);
+	}
+
+	/** all injections of the grammar the applicable ones were selected from */
+	final List<Injection> allInjections;
+
+	/** the applicable injections in the order of {@link #allInjections} */
+	final Injection[] injections;
+
+	private final Rule[] rules;
+
+	/** the scanners per injection and combination of allowA/allowG, compiled on first use */
+	private final CompiledRule[][] scanners;
+
+	private ApplicableInjections(final List<Injection> allInjections, final Injection[] injections, final Rule[] rules) {
+		this.allInjections = allInjections;
+		this.injections = injections;
+		this.rules = rules;
+		this.scanners = new CompiledRule[injections.length][4];
+	}
+
+	boolean isEmpty() {
+		return injections.length == 0;
+	}
+
+	/**
+	 * @param index index of the injection in {@link #injections}
+	 */
+	CompiledRule getScanner(final int index, final Grammar grammar, final boolean allowA, final boolean allowG) {
+		final int variant = (allowA ? 2 : 0) | (allowG ? 1 : 0);
+		// CompiledRule only has final fields, so a scanner compiled concurrently by another thread is safely published
+		var scanner = scanners[index][variant];
+		if (scanner == null) {
+			scanner = scanners[index][variant] = rules[index].compileAG(grammar, null, allowA, allowG);
+		}
+		return scanner;
+	}
+}
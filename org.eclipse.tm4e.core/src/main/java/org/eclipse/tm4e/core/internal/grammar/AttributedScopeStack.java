@@ -73,9 +73,17 @@ public String scopeName() {
 	}
 
 	private final @Nullable AttributedScopeStack parent;
-	private final ScopeStack scopePath;
+	final ScopeStack scopePath;
 	final int tokenAttributes;
 
+	/**
+	 * If this stack is the canonical instance of a {@link StateStackInterner}.
+	 */
+	boolean interned;
+
+	/** memoized by {@link #getApplicableInjections(Grammar)} */
+	private volatile @Nullable ApplicableInjections applicableInjections;
+
 	public AttributedScopeStack(
 			final @Nullable AttributedScopeStack parent,
 			final ScopeStack scopePath,
@@ -123,6 +131,39 @@ public static boolean equals(
 		} while (true);
 	}
 
+	/**
+	 * Compares the token attributes of the given stacks, the parents and scope paths by identity.
+	 */
+	static boolean shallowEquals(final AttributedScopeStack a, final AttributedScopeStack b) {
+		return a.parent == b.parent
+				&& a.scopePath == b.scopePath
+				&& a.tokenAttributes == b.tokenAttributes;
+	}
+
+	static int shallowHashCode(final AttributedScopeStack stack) {
+		int result = 31 + System.identityHashCode(stack.parent);
+		result = 31 * result + System.identityHashCode(stack.scopePath);
+		return 31 * result + stack.tokenAttributes;
+	}
+
+	@Nullable
+	AttributedScopeStack getParent() {
+		return parent;
+	}
+
+	ScopeStack getScopePath() {
+		return scopePath;
+	}
+
+	/**
+	 * @return this stack or a copy of it with the given parent and scope path
+	 */
+	AttributedScopeStack withCanonicalParts(final @Nullable AttributedScopeStack parent, final ScopeStack scopePath) {
+		if (parent == this.parent && scopePath == this.scopePath)
+			return this;
+		return new AttributedScopeStack(parent, scopePath, tokenAttributes);
+	}
+
 	public static int mergeAttributes(
 			final int existingTokenAttributes,
 			final BasicScopeAttributes basicScopeAttributes,
@@ -184,6 +225,19 @@ List<String> getScopeNames() {
 		return this.scopePath.getSegments();
 	}
 
+	/**
+	 * @return the injections of the given grammar whose selectors match this scope path, computed once per instance and
+	 *         grammar
+	 */
+	ApplicableInjections getApplicableInjections(final Grammar grammar) {
+		final var allInjections = grammar.getInjections();
+		var applicableInjections = this.applicableInjections;
+		if (applicableInjections == null || applicableInjections.allInjections != allInjections) {
+			applicableInjections = this.applicableInjections = ApplicableInjections.of(allInjections, grammar, scopePath);
+		}
+		return applicableInjections;
+	}
+
 	public List<AttributedScopeStack.Frame> getExtensionIfDefined(final @Nullable AttributedScopeStack base) {
 		final var result = new ArrayList<AttributedScopeStack.Frame>();
 		var self = this;
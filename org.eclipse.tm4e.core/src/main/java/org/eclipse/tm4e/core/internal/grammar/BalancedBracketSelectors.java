@@ -20,6 +20,8 @@
 import java.util.List;
 import java.util.stream.Stream;
 
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.matcher.CompiledMatcher;
 import org.eclipse.tm4e.core.internal.matcher.Matcher;
 
 /**
@@ -28,8 +30,8 @@
  *      github.com/microsoft/vscode-textmate/blob/main/src/grammar/grammar.ts</a>
  */
 public final class BalancedBracketSelectors {
-	private final Matcher<List<String>>[] balancedBracketScopes;
-	private final Matcher<List<String>>[] unbalancedBracketScopes;
+	private final CompiledMatcher[] balancedBracketScopes;
+	private final CompiledMatcher[] unbalancedBracketScopes;
 
 	private boolean allowAny = false;
 
@@ -44,11 +46,11 @@ public BalancedBracketSelectors(
 					}
 					return Matcher.createMatchers(selector).stream().map(m -> m.matcher);
 				})
-				.toArray(Matcher[]::new);
+				.toArray(CompiledMatcher[]::new);
 
 		this.unbalancedBracketScopes = unbalancedBracketScopes.stream()
 				.flatMap(selector -> Matcher.createMatchers(selector).stream().map(m -> m.matcher))
-				.toArray(Matcher[]::new);
+				.toArray(CompiledMatcher[]::new);
 	}
 
 	boolean matchesAlways() {
@@ -59,15 +61,15 @@ boolean matchesNever() {
 		return !this.allowAny && this.balancedBracketScopes.length == 0;
 	}
 
-	boolean match(final List<String> scopes) {
+	boolean match(@Nullable final ScopeStack scopePath) {
 		for (final var excluder : this.unbalancedBracketScopes) {
-			if (excluder.matches(scopes)) {
+			if (excluder.matches(scopePath)) {
 				return false;
 			}
 		}
 
 		for (final var includer : this.balancedBracketScopes) {
-			if (includer.matches(scopes)) {
+			if (includer.matches(scopePath)) {
 				return true;
 			}
 		}
@@ -20,6 +20,7 @@
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.eclipse.jdt.annotation.Nullable;
@@ -37,7 +38,7 @@ final class BasicScopeAttributesProvider {
 	private final BasicScopeAttributes _defaultAttributes;
 	private final ScopeMatcher<Integer /* languageId */> _embeddedLanguagesMatcher;
 
-	private final Map<String /*scopeName*/, BasicScopeAttributes> cache = new HashMap<>();
+	private final Map<String /*scopeName*/, BasicScopeAttributes> cache = new ConcurrentHashMap<>();
 
 	BasicScopeAttributesProvider(final int initialLanguage, @Nullable final Map<String, Integer> embeddedLanguages) {
 		this._defaultAttributes = new BasicScopeAttributes(initialLanguage, OptionalStandardTokenType.NotSet);
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.BinaryTokenBuffer;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.ILineTokensConsumer;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.grammar.ITokenizeLineResult;
+
+/**
+ * Splits a document into lines and tokenizes them one after another.
+ * <p>
+ * The lines are assembled in a reused buffer and terminated with <code>\n</code> so that {@link Grammar} does not need to
+ * copy them again. In binary mode a single {@link BinaryTokenBuffer} is used for all lines.
+ * <p>
+ * Also used by the default implementations of the <code>tokenizeDocument</code> methods of {@link IGrammar}.
+ */
+public final class DocumentTokenizer<T> {
+
+	/**
+	 * Tokenizes a single line terminated by <code>\n</code>.
+	 */
+	@FunctionalInterface
+	public interface LineTokenizer<T> {
+		ITokenizeLineResult<T> tokenizeLine(String lineText, @Nullable IStateStack prevState);
+	}
+
+	private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+	private final LineTokenizer<T> lineTokenizer;
+	private final ILineTokensConsumer<T> consumer;
+	private final StringBuilder line = new StringBuilder(128);
+
+	@Nullable
+	private IStateStack state;
+	private int lineIndex;
+
+	public DocumentTokenizer(final LineTokenizer<T> lineTokenizer, @Nullable final IStateStack initialState,
+			final ILineTokensConsumer<T> consumer) {
+		this.lineTokenizer = lineTokenizer;
+		this.state = initialState;
+		this.consumer = consumer;
+	}
+
+	@Nullable
+	public IStateStack tokenize(final CharSequence document) {
+		final int len = document.length();
+		int lineStart = 0;
+		for (int i = 0; i < len; i++) {
+			final char ch = document.charAt(i);
+			if (ch == '\n' || ch == '\r') {
+				line.append(document, lineStart, i);
+				if (!tokenizeLine())
+					return state;
+				if (ch == '\r' && i + 1 < len && document.charAt(i + 1) == '\n') {
+					i++;
+				}
+				lineStart = i + 1;
+			}
+		}
+		if (lineStart < len) {
+			line.append(document, lineStart, len);
+			tokenizeLine();
+		}
+		return state;
+	}
+
+	@Nullable
+	public IStateStack tokenize(final Reader document) throws IOException {
+		final char[] buffer = new char[READ_BUFFER_SIZE];
+		boolean skipLF = false;
+		boolean hasPendingLine = false;
+		int read;
+		while ((read = document.read(buffer)) != -1) {
+			int segmentStart = 0;
+			for (int i = 0; i < read; i++) {
+				final char ch = buffer[i];
+				if (skipLF) {
+					skipLF = false;
+					if (ch == '\n') {
+						segmentStart = i + 1;
+						continue;
+					}
+				}
+				if (ch == '\n' || ch == '\r') {
+					line.append(buffer, segmentStart, i - segmentStart);
+					hasPendingLine = false;
+					if (!tokenizeLine())
+						return state;
+					skipLF = ch == '\r';
+					segmentStart = i + 1;
+				}
+			}
+			if (segmentStart < read) {
+				line.append(buffer, segmentStart, read - segmentStart);
+				hasPendingLine = true;
+			}
+		}
+		if (hasPendingLine) {
+			tokenizeLine();
+		}
+		return state;
+	}
+
+	/**
+	 * Tokenizes the line currently held in {@link #line} and resets the buffer.
+	 *
+	 * @return <code>false</code> if the consumer requested to stop
+	 */
+	private boolean tokenizeLine() {
+		final String lineText = line.append('\n').toString();
+		line.setLength(0);
+		final ITokenizeLineResult<T> result = lineTokenizer.tokenizeLine(lineText, state);
+		state = result.getRuleStack();
+		return consumer.accept(lineIndex++, lineText, result);
+	}
+}
@@ -17,6 +17,10 @@
  */
 package org.eclipse.tm4e.core.internal.grammar;
 
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNullable;
+
+import java.io.IOException;
+import java.io.Reader;
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.time.Duration;
@@ -24,30 +28,37 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.BinaryTokenBuffer;
 import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.ILineTokensConsumer;
 import org.eclipse.tm4e.core.grammar.IStateStack;
 import org.eclipse.tm4e.core.grammar.IToken;
 import org.eclipse.tm4e.core.grammar.ITokenizeLineResult;
 import org.eclipse.tm4e.core.internal.grammar.raw.IRawGrammar;
 import org.eclipse.tm4e.core.internal.grammar.raw.IRawRepository;
 import org.eclipse.tm4e.core.internal.grammar.raw.IRawRule;
+import org.eclipse.tm4e.core.internal.grammar.raw.RawGrammarOverlay;
 import org.eclipse.tm4e.core.internal.grammar.raw.RawRule;
 import org.eclipse.tm4e.core.internal.grammar.tokenattrs.EncodedTokenAttributes;
 import org.eclipse.tm4e.core.internal.matcher.Matcher;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigString;
 import org.eclipse.tm4e.core.internal.registry.IGrammarRepository;
 import org.eclipse.tm4e.core.internal.registry.IThemeProvider;
+import org.eclipse.tm4e.core.internal.rule.BeginEndRule;
+import org.eclipse.tm4e.core.internal.rule.BeginWhileRule;
 import org.eclipse.tm4e.core.internal.rule.IRuleFactoryHelper;
+import org.eclipse.tm4e.core.internal.rule.IncludeOnlyRule;
 import org.eclipse.tm4e.core.internal.rule.Rule;
 import org.eclipse.tm4e.core.internal.rule.RuleFactory;
 import org.eclipse.tm4e.core.internal.rule.RuleId;
-import org.eclipse.tm4e.core.internal.utils.ObjectCloner;
 import org.eclipse.tm4e.core.internal.utils.StringUtils;
 
 /**
@@ -64,22 +75,27 @@ public final class Grammar implements IGrammar, IRuleFactoryHelper {
 	private final String rootScopeName;
 
 	@Nullable
-	private RuleId _rootId;
+	private volatile RuleId _rootId;
 	private int _lastRuleId = 0;
 	private final Map<RuleId, @Nullable Rule> _ruleId2desc = new HashMap<>();
-	private final Map<String /*scopeName*/, IRawGrammar> includedGrammars = new HashMap<>();
+	private final Map<IRawRule, RuleId> rawRuleIds = new IdentityHashMap<>();
+	private final Map<String /*scopeName*/, IRawGrammar> includedGrammars = new ConcurrentHashMap<>();
 	private final IGrammarRepository _grammarRepository;
 	private final IRawGrammar _grammar;
 	final IThemeProvider themeProvider;
 
 	@Nullable
-	private List<Injection> _injections;
+	private volatile List<Injection> _injections;
 	private final BasicScopeAttributesProvider _basicScopeAttributesProvider;
 	private final List<TokenTypeMatcher> _tokenTypeMatchers = new ArrayList<>();
 
 	@Nullable
 	private final BalancedBracketSelectors balancedBracketSelectors;
 
+	/** shares equal line end states, <code>null</code> if disabled */
+	@Nullable
+	private final StateStackInterner stateStackInterner = StateStackInterner.createIfEnabled();
+
 	public Grammar(
 			final String rootScopeName,
 			final IRawGrammar grammar,
@@ -209,6 +225,16 @@ public <T extends Rule> T registerRule(final Function<RuleId, T> factory) {
 		return result;
 	}
 
+	@Override
+	public @Nullable RuleId getCompiledRuleId(final IRawRule rawRule) {
+		return castNullable(this.rawRuleIds.get(rawRule));
+	}
+
+	@Override
+	public void setCompiledRuleId(final IRawRule rawRule, final RuleId ruleId) {
+		this.rawRuleIds.put(rawRule, ruleId);
+	}
+
 	@Override
 	public Rule getRule(final RuleId ruleId) {
 		final var rule = this._ruleId2desc.get(ruleId);
@@ -222,22 +248,25 @@ public Rule getRule(final RuleId ruleId) {
 	@Override
 	@Nullable
 	public IRawGrammar getExternalGrammar(final String scopeName, @Nullable final IRawRepository repository) {
-		if (this.includedGrammars.containsKey(scopeName)) {
-			return this.includedGrammars.get(scopeName);
+		final var includedGrammar = castNullable(this.includedGrammars.get(scopeName));
+		if (includedGrammar != null) {
+			return includedGrammar;
 		}
 
 		final IRawGrammar rawIncludedGrammar = this._grammarRepository.lookup(scopeName);
 		if (rawIncludedGrammar != null) {
-			this.includedGrammars.put(scopeName, initGrammar(
+			final var newIncludedGrammar = initGrammar(
 					rawIncludedGrammar,
-					repository != null ? repository.getBase() : null));
-			return this.includedGrammars.get(scopeName);
+					repository != null ? repository.getBase() : null);
+			final var existing = castNullable(this.includedGrammars.putIfAbsent(scopeName, newIncludedGrammar));
+			return existing == null ? newIncludedGrammar : existing;
 		}
 		return null;
 	}
 
-	private IRawGrammar initGrammar(IRawGrammar grammar, @Nullable final IRawRule base) {
-		grammar = ObjectCloner.deepClone(grammar);
+	private IRawGrammar initGrammar(final IRawGrammar rawGrammar, @Nullable final IRawRule base) {
+		// the parsed grammar may be shared with other grammars, so $self and $base are only set on an overlay
+		final var grammar = new RawGrammarOverlay(rawGrammar);
 
 		final var repo = grammar.getRepository();
 		repo.setSelf(new RawRule()
@@ -256,7 +285,7 @@ public ITokenizeLineResult<IToken[]> tokenizeLine(final String lineText) {
 	public ITokenizeLineResult<IToken[]> tokenizeLine(final String lineText,
 			@Nullable final IStateStack prevState,
 			@Nullable final Duration timeLimit) {
-		return _tokenize(lineText, (StateStack) prevState, false, timeLimit);
+		return _tokenize(lineText, (StateStack) prevState, null, timeLimit);
 	}
 
 	@Override
@@ -267,38 +296,69 @@ public ITokenizeLineResult<int[]> tokenizeLine2(final String lineText) {
 	@Override
 	public ITokenizeLineResult<int[]> tokenizeLine2(final String lineText, @Nullable final IStateStack prevState,
 			@Nullable final Duration timeLimit) {
-		return _tokenize(lineText, (StateStack) prevState, true, timeLimit);
+		final TokenizeLineResult<BinaryTokenBuffer> r = _tokenize(lineText, (StateStack) prevState, new BinaryTokenBuffer(),
+				timeLimit);
+		return new TokenizeLineResult<>(r.getTokens().toArray(), r.getRuleStack(), r.isStoppedEarly());
+	}
+
+	@Override
+	public ITokenizeLineResult<BinaryTokenBuffer> tokenizeLine2(final String lineText, @Nullable final IStateStack prevState,
+			@Nullable final Duration timeLimit, final BinaryTokenBuffer tokens) {
+		return _tokenize(lineText, (StateStack) prevState, tokens, timeLimit);
 	}
 
+	@Override
+	public @Nullable IStateStack tokenizeDocument(final CharSequence document, @Nullable final IStateStack initialState,
+			@Nullable final Duration lineTimeLimit, final ILineTokensConsumer<IToken[]> consumer) {
+		return new DocumentTokenizer<>(lineTokenizer(null, lineTimeLimit), initialState, consumer).tokenize(document);
+	}
+
+	@Override
+	public @Nullable IStateStack tokenizeDocument(final Reader document, @Nullable final IStateStack initialState,
+			@Nullable final Duration lineTimeLimit, final ILineTokensConsumer<IToken[]> consumer) throws IOException {
+		return new DocumentTokenizer<>(lineTokenizer(null, lineTimeLimit), initialState, consumer).tokenize(document);
+	}
+
+	@Override
+	public @Nullable IStateStack tokenizeDocument2(final CharSequence document, @Nullable final IStateStack initialState,
+			@Nullable final Duration lineTimeLimit, final ILineTokensConsumer<BinaryTokenBuffer> consumer) {
+		return new DocumentTokenizer<>(lineTokenizer(new BinaryTokenBuffer(), lineTimeLimit), initialState, consumer)
+				.tokenize(document);
+	}
+
+	@Override
+	public @Nullable IStateStack tokenizeDocument2(final Reader document, @Nullable final IStateStack initialState,
+			@Nullable final Duration lineTimeLimit, final ILineTokensConsumer<BinaryTokenBuffer> consumer) throws IOException {
+		return new DocumentTokenizer<>(lineTokenizer(new BinaryTokenBuffer(), lineTimeLimit), initialState, consumer)
+				.tokenize(document);
+	}
+
+	/**
+	 * @param binaryTokens if not null, the tokens of all lines are emitted in binary format into the given buffer
+	 */
+	private <T> DocumentTokenizer.LineTokenizer<T> lineTokenizer(@Nullable final BinaryTokenBuffer binaryTokens,
+			@Nullable final Duration lineTimeLimit) {
+		return (lineText, prevState) -> _tokenize(lineText, (StateStack) prevState, binaryTokens, lineTimeLimit);
+	}
+
+	/**
+	 * @param binaryTokens if not null, the tokens are emitted in binary format into the given buffer, otherwise as {@link IToken}s
+	 */
 	@SuppressWarnings("unchecked")
-	private <T> T _tokenize(
+	<T> TokenizeLineResult<T> _tokenize(
 			String lineText,
 			@Nullable StateStack prevState,
-			final boolean emitBinaryTokens,
+			@Nullable final BinaryTokenBuffer binaryTokens,
 			@Nullable final Duration timeLimit) {
 		var rootId = this._rootId;
 		if (rootId == null) {
-			rootId = this._rootId = RuleFactory.getCompiledRuleId(
-					this._grammar.getRepository().getSelf(),
-					this,
-					this._grammar.getRepository());
-			// This ensures ids are deterministic, and thus equal in renderer and webworker.
-			this.getInjections();
+			rootId = compileRootRule();
 		}
 
 		final boolean isFirstLine;
 		if (prevState == null || prevState == StateStack.NULL) {
 			isFirstLine = true;
-			final var rawDefaultMetadata = this._basicScopeAttributesProvider.getDefaultAttributes();
-			final var defaultStyle = this.themeProvider.getDefaults();
-			final int defaultMetadata = EncodedTokenAttributes.set(
-					0,
-					rawDefaultMetadata.languageId,
-					rawDefaultMetadata.tokenType,
-					null,
-					defaultStyle.fontStyle,
-					defaultStyle.foregroundId,
-					defaultStyle.backgroundId);
+			final int defaultMetadata = getDefaultTokenAttributes();
 
 			final var rootScopeName = this.getRule(rootId).getName(null, null);
 
@@ -335,7 +395,7 @@ private <T> T _tokenize(
 		final var onigLineText = OnigString.of(lineText);
 		final int lineLength = lineText.length();
 		final var lineTokens = new LineTokens(
-				emitBinaryTokens,
+				binaryTokens,
 				lineText,
 				_tokenTypeMatchers,
 				balancedBracketSelectors);
@@ -349,14 +409,89 @@ private <T> T _tokenize(
 				true,
 				timeLimit == null ? Duration.ZERO : timeLimit);
 
-		return (T) new TokenizeLineResult<>(
-				emitBinaryTokens
+		final var stateStackInterner = this.stateStackInterner;
+		return new TokenizeLineResult<>(
+				(T) (binaryTokens != null
 						? lineTokens.getBinaryResult(r.stack, lineLength)
-						: lineTokens.getResult(r.stack, lineLength),
-				r.stack,
+						: lineTokens.getResult(r.stack, lineLength)),
+				stateStackInterner == null ? r.stack : stateStackInterner.intern(r.stack),
 				r.stoppedEarly);
 	}
 
+	/**
+	 * @return the token attributes of the root scope of a document before the root scope name is applied
+	 */
+	int getDefaultTokenAttributes() {
+		final var rawDefaultMetadata = this._basicScopeAttributesProvider.getDefaultAttributes();
+		final var defaultStyle = this.themeProvider.getDefaults();
+		return EncodedTokenAttributes.set(
+				0,
+				rawDefaultMetadata.languageId,
+				rawDefaultMetadata.tokenType,
+				null,
+				defaultStyle.fontStyle,
+				defaultStyle.foregroundId,
+				defaultStyle.backgroundId);
+	}
+
+	/**
+	 * @return the scope name of the root rule, <code>null</code> if the root rule has no name
+	 */
+	@Nullable
+	String getRootScopeName() {
+		var rootId = this._rootId;
+		if (rootId == null) {
+			rootId = compileRootRule();
+		}
+		return this.getRule(rootId).getName(null, null);
+	}
+
+	/**
+	 * Compiles the rules of the grammar. Rules are only registered here, so once {@link #_rootId} is published,
+	 * {@link #_ruleId2desc} is effectively read-only and the grammar can be used by multiple threads concurrently.
+	 */
+	private synchronized RuleId compileRootRule() {
+		var rootId = this._rootId;
+		if (rootId == null) {
+			rootId = RuleFactory.getCompiledRuleId(
+					this._grammar.getRepository().getSelf(),
+					this,
+					this._grammar.getRepository());
+			// This ensures ids are deterministic, and thus equal in renderer and webworker.
+			this.getInjections();
+			this._rootId = rootId;
+		}
+		return rootId;
+	}
+
+	@Override
+	public void compileAllRules() {
+		if (this._rootId == null) {
+			compileRootRule();
+		}
+
+		// compiles the scanners of all rules LineTokenizer can push onto the state stack, for each combination of
+		// isFirstLine (allowA) and linePos == anchorPosition (allowG)
+		for (final var rule : this._ruleId2desc.values()) {
+			for (final boolean allowA : new boolean[] { false, true }) {
+				for (final boolean allowG : new boolean[] { false, true }) {
+					if (rule instanceof final IncludeOnlyRule includeOnlyRule) {
+						includeOnlyRule.compileAG(this, null, allowA, allowG);
+					} else if (rule instanceof final BeginEndRule beginEndRule) {
+						if (!beginEndRule.endHasBackReferences) {
+							beginEndRule.compileAG(this, null, allowA, allowG);
+						}
+					} else if (rule instanceof final BeginWhileRule beginWhileRule) {
+						beginWhileRule.compileAG(this, null, allowA, allowG);
+						if (!beginWhileRule.whileHasBackReferences) {
+							beginWhileRule.compileWhileAG(null, allowA, allowG);
+						}
+					}
+				}
+			}
+		}
+	}
+
 	@Override
 	@Nullable
 	public String getName() {
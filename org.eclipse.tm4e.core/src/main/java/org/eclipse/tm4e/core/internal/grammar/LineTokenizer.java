@@ -24,13 +24,13 @@
 import java.time.Duration;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.NonNull;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigCaptureIndex;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigMatchBuffer;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigScannerMatch;
 import org.eclipse.tm4e.core.internal.oniguruma.OnigString;
 import org.eclipse.tm4e.core.internal.rule.BeginEndRule;
@@ -99,6 +99,10 @@ static final class TokenizeStringResult {
 	private int anchorPosition = -1;
 	private boolean stop;
 
+	/** reused for the searches of injection rules, only the captures of the best match are materialized */
+	@Nullable
+	private OnigMatchBuffer injectionMatch;
+
 	private LineTokenizer(final Grammar grammar, final OnigString lineText, final boolean isFirstLine, final int linePos,
 			final StateStack stack, final LineTokens lineTokens) {
 		this.grammar = grammar;
@@ -335,7 +339,7 @@ private MatchResult matchRuleOrInjections(final Grammar grammar, final OnigStrin
 			return matchResult;
 		}
 
-		final var injectionResult = matchInjections(injections, grammar, lineText, isFirstLine, linePos, stack, anchorPosition);
+		final var injectionResult = matchInjections(grammar, lineText, isFirstLine, linePos, stack, anchorPosition);
 		if (injectionResult == null) {
 			// No injections matched => early return
 			return matchResult;
@@ -359,7 +363,7 @@ private MatchResult matchRuleOrInjections(final Grammar grammar, final OnigStrin
 	}
 
 	@Nullable
-	private MatchInjectionsResult matchInjections(final List<Injection> injections, final Grammar grammar, final OnigString lineText,
+	private MatchInjectionsResult matchInjections(final Grammar grammar, final OnigString lineText,
 			final boolean isFirstLine, final int linePos, final StateStack stack, final int anchorPosition) {
 
 		// The lower the better
@@ -368,20 +372,25 @@ private MatchInjectionsResult matchInjections(final List<Injection> injections,
 		var bestMatchRuleId = RuleId.END_RULE;
 		var bestMatchResultPriority = 0;
 
-		final List<String> scopes = stack.contentNameScopesList != null ? stack.contentNameScopesList.getScopeNames()
-				: Collections.emptyList();
+		final var contentNameScopesList = stack.contentNameScopesList;
+		final var applicableInjections = contentNameScopesList != null
+				? contentNameScopesList.getApplicableInjections(grammar)
+				: ApplicableInjections.of(grammar.getInjections(), grammar, null);
+		if (applicableInjections.isEmpty()) {
+			// no injection selector matches the stack
+			return null;
+		}
 
-		for (int i = 0, len = injections.size(); i < len; i++) {
-			final var injection = injections.get(i);
-			if (!injection.matches(scopes)) {
-				// injection selector doesn't match stack
-				continue;
-			}
+		var matchResult = injectionMatch;
+		if (matchResult == null) {
+			matchResult = injectionMatch = new OnigMatchBuffer();
+		}
 
-			final var rule = grammar.getRule(injection.ruleId);
-			final var ruleScanner = rule.compileAG(grammar, null, isFirstLine, linePos == anchorPosition);
-			final var matchResult = ruleScanner.scanner.findNextMatch(lineText, linePos);
-			if (matchResult == null) {
+		final var injections = applicableInjections.injections;
+		for (int i = 0, len = injections.length; i < len; i++) {
+			final var injection = injections[i];
+			final var ruleScanner = applicableInjections.getScanner(i, grammar, isFirstLine, linePos == anchorPosition);
+			if (!ruleScanner.scanner.findNextMatch(lineText, linePos, matchResult)) {
 				continue;
 			}
 
@@ -390,15 +399,15 @@ private MatchInjectionsResult matchInjections(final List<Injection> injections,
 				LOGGER.log(Level.TRACE, debugCompiledRuleToString(ruleScanner));
 			}
 
-			final int matchRating = matchResult.getCaptureIndices()[0].start;
+			final int matchRating = matchResult.getCaptureStart(0);
 			if (matchRating > bestMatchRating) {
 				// Injections are sorted by priority, so the previous injection had a better or equal priority
 				continue;
 			}
 
 			bestMatchRating = matchRating;
-			bestMatchCaptureIndices = matchResult.getCaptureIndices();
-			bestMatchRuleId = ruleScanner.rules[matchResult.index];
+			bestMatchCaptureIndices = matchResult.toCaptureIndices();
+			bestMatchRuleId = ruleScanner.rules[matchResult.getIndex()];
 			bestMatchResultPriority = injection.priority;
 
 			if (bestMatchRating == linePos) {
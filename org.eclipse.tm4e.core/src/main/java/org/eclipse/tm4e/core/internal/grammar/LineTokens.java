@@ -17,16 +17,15 @@
 package org.eclipse.tm4e.core.internal.grammar;
 
 import static java.lang.System.Logger.Level.TRACE;
-import static org.eclipse.tm4e.core.internal.utils.MoreCollections.*;
 
 import java.lang.System.Logger;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.BinaryTokenBuffer;
 import org.eclipse.tm4e.core.grammar.IToken;
 import org.eclipse.tm4e.core.internal.grammar.tokenattrs.EncodedTokenAttributes;
 import org.eclipse.tm4e.core.internal.grammar.tokenattrs.OptionalStandardTokenType;
@@ -83,6 +82,7 @@ public String toString() {
 	private static final Logger LOGGER = System.getLogger(LineTokens.class.getName());
 
 	private static final Deque<IToken> EMPTY_DEQUE = new ArrayDeque<>(0);
+	private static final BinaryTokenBuffer EMPTY_BUFFER = new BinaryTokenBuffer(0);
 
 	private final boolean _emitBinaryTokens;
 
@@ -99,7 +99,7 @@ public String toString() {
 	/**
 	 * used only if `emitBinaryTokens` is true.
 	 */
-	private final List<Integer> _binaryTokens;
+	private final BinaryTokenBuffer _binaryTokens;
 
 	private int _lastTokenEndIndex = 0;
 
@@ -108,20 +108,24 @@ public String toString() {
 	@Nullable
 	private final BalancedBracketSelectors balancedBracketSelectors;
 
-	LineTokens(final boolean emitBinaryTokens,
+	/**
+	 * @param binaryTokens if not null, binary tokens are emitted into the given buffer after clearing it
+	 */
+	LineTokens(@Nullable final BinaryTokenBuffer binaryTokens,
 			final String lineText,
 			final List<TokenTypeMatcher> tokenTypeOverrides,
 			@Nullable final BalancedBracketSelectors balancedBracketSelectors) {
 
-		this._emitBinaryTokens = emitBinaryTokens;
+		this._emitBinaryTokens = binaryTokens != null;
 		this._tokenTypeOverrides = tokenTypeOverrides;
 		this._lineText = LOGGER.isLoggable(TRACE) ? lineText : ""; // store line only if it's logged
-		if (this._emitBinaryTokens) {
+		if (binaryTokens != null) {
 			this._tokens = EMPTY_DEQUE;
-			this._binaryTokens = new ArrayList<>();
+			binaryTokens.clear();
+			this._binaryTokens = binaryTokens;
 		} else {
 			this._tokens = new ArrayDeque<>();
-			this._binaryTokens = Collections.emptyList();
+			this._binaryTokens = EMPTY_BUFFER;
 		}
 		this.balancedBracketSelectors = balancedBracketSelectors;
 	}
@@ -146,10 +150,9 @@ void produceFromScopes(@Nullable final AttributedScopeStack scopesList, final in
 			if (!_tokenTypeOverrides.isEmpty()
 					|| balancedBracketSelectors != null
 							&& !balancedBracketSelectors.matchesAlways() && !balancedBracketSelectors.matchesNever()) {
-				// Only generate scope array when required to improve performance
-				final List<String> scopes = scopesList != null ? scopesList.getScopeNames() : Collections.emptyList();
+				final var scopePath = scopesList != null ? scopesList.scopePath : null;
 				for (final var tokenType : _tokenTypeOverrides) {
-					if (tokenType.matcher.matches(scopes)) {
+					if (tokenType.matcher.matches(scopePath)) {
 						metadata = EncodedTokenAttributes.set(
 								metadata,
 								0,
@@ -161,7 +164,7 @@ void produceFromScopes(@Nullable final AttributedScopeStack scopesList, final in
 					}
 				}
 				if (balancedBracketSelectors != null) {
-					containsBalancedBrackets = balancedBracketSelectors.match(scopes);
+					containsBalancedBrackets = balancedBracketSelectors.match(scopePath);
 				}
 			}
 
@@ -176,7 +179,8 @@ void produceFromScopes(@Nullable final AttributedScopeStack scopesList, final in
 						0);
 			}
 
-			if (!this._binaryTokens.isEmpty() && getLastElement(this._binaryTokens) == metadata) {
+			if (!this._binaryTokens.isEmpty()
+					&& this._binaryTokens.getMetadata(this._binaryTokens.getTokenCount() - 1) == metadata) {
 				// no need to push a token with the same metadata
 				this._lastTokenEndIndex = endIndex;
 				return;
@@ -193,8 +197,7 @@ void produceFromScopes(@Nullable final AttributedScopeStack scopesList, final in
 				}
 			}
 
-			this._binaryTokens.add(this._lastTokenEndIndex);
-			this._binaryTokens.add(metadata);
+			this._binaryTokens.addToken(this._lastTokenEndIndex, metadata);
 
 			this._lastTokenEndIndex = endIndex;
 			return;
@@ -232,19 +235,19 @@ IToken[] getResult(final StateStack stack, final int lineLength) {
 		return this._tokens.toArray(IToken[]::new);
 	}
 
-	int[] getBinaryResult(final StateStack stack, final int lineLength) {
-		if (!this._binaryTokens.isEmpty() && getElementAt(this._binaryTokens, -2) == lineLength - 1) {
+	BinaryTokenBuffer getBinaryResult(final StateStack stack, final int lineLength) {
+		final var binaryTokens = this._binaryTokens;
+		if (!binaryTokens.isEmpty() && binaryTokens.getStartIndex(binaryTokens.getTokenCount() - 1) == lineLength - 1) {
 			// pop produced token for newline
-			removeLastElement(this._binaryTokens);
-			removeLastElement(this._binaryTokens);
+			binaryTokens.removeLastToken();
 		}
 
-		if (this._binaryTokens.isEmpty()) {
+		if (binaryTokens.isEmpty()) {
 			this._lastTokenEndIndex = -1;
 			this.produce(stack, lineLength);
-			this._binaryTokens.set(_binaryTokens.size() - 2, 0);
+			binaryTokens.setStartIndex(binaryTokens.getTokenCount() - 1, 0);
 		}
 
-		return _binaryTokens.stream().mapToInt(Integer::intValue).toArray();
+		return binaryTokens;
 	}
 }
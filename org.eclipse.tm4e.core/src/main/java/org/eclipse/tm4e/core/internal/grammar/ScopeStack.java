@@ -21,6 +21,7 @@
 import java.util.List;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.matcher.ScopeIds;
 
 /**
  * @see <a href=
@@ -63,9 +64,21 @@ public static ScopeStack from(final List<String> segments) {
 	public final ScopeStack parent;
 	public final String scopeName;
 
+	/** number of segments from the root to this scope */
+	public final int depth;
+
+	/**
+	 * If this stack is the canonical instance of a {@link StateStackInterner}.
+	 */
+	boolean interned;
+
+	/** lazily computed by {@link #getMatchingIds()} */
+	private volatile int @Nullable [] matchingIds;
+
 	public ScopeStack(@Nullable final ScopeStack parent, final String scopeName) {
 		this.parent = parent;
 		this.scopeName = scopeName;
+		this.depth = parent == null ? 1 : parent.depth + 1;
 	}
 
 	public ScopeStack push(final String scopeName) {
@@ -84,6 +97,18 @@ public List<String> getSegments() {
 		return result;
 	}
 
+	/**
+	 * @return the {@link ScopeIds#matchingIds(String) ids of the selector identifiers matching the scope name} of this
+	 *         segment, recomputed only if identifiers were registered since. The returned array must not be modified.
+	 */
+	public int[] getMatchingIds() {
+		var matchingIds = this.matchingIds;
+		if (matchingIds == null || !ScopeIds.isCurrent(matchingIds)) {
+			matchingIds = this.matchingIds = ScopeIds.matchingIds(scopeName);
+		}
+		return matchingIds;
+	}
+
 	@Override
 	public String toString() {
 		return String.join(" ", getSegments());
@@ -115,6 +115,11 @@ record Frame(
 	@Nullable
 	final AttributedScopeStack contentNameScopesList;
 
+	/**
+	 * If this state is the canonical instance of a {@link StateStackInterner}.
+	 */
+	boolean interned;
+
 	StateStack(
 			@Nullable final StateStack parent,
 			final RuleId ruleId,
@@ -187,6 +192,49 @@ private static boolean _structuralEquals(
 		} while (true);
 	}
 
+	/**
+	 * Compares the fields of the given states, the parents and scope lists by identity.
+	 */
+	static boolean shallowEquals(final StateStack a, final StateStack b) {
+		return a.parent == b.parent
+				&& a.nameScopesList == b.nameScopesList
+				&& a.contentNameScopesList == b.contentNameScopesList
+				&& a.beginRuleCapturedEOL == b.beginRuleCapturedEOL
+				&& a.ruleId.equals(b.ruleId)
+				&& Objects.equals(a.endRule, b.endRule);
+	}
+
+	static int shallowHashCode(final StateStack state) {
+		int result = 31 + System.identityHashCode(state.parent);
+		result = 31 * result + System.identityHashCode(state.nameScopesList);
+		result = 31 * result + System.identityHashCode(state.contentNameScopesList);
+		result = 31 * result + Objects.hashCode(state.endRule);
+		return 31 * result + state.ruleId.hashCode();
+	}
+
+	/**
+	 * @return this state or a copy of it with the given parent and scope lists, in both cases without the positions only
+	 *         meaningful for the line this state was created on
+	 */
+	StateStack withCanonicalParts(final @Nullable StateStack parent, final @Nullable AttributedScopeStack nameScopesList,
+			final @Nullable AttributedScopeStack contentNameScopesList) {
+		if (parent == this.parent && nameScopesList == this.nameScopesList
+				&& contentNameScopesList == this.contentNameScopesList) {
+			_enterPos = -1;
+			_anchorPos = -1;
+			return this;
+		}
+		return new StateStack(
+				parent,
+				ruleId,
+				-1,
+				-1,
+				beginRuleCapturedEOL,
+				endRule,
+				nameScopesList,
+				contentNameScopesList);
+	}
+
 	@Override
 	public int getDepth() {
 		return depth;
@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.internal.grammar.tokenattrs.EncodedTokenAttributes;
+import org.eclipse.tm4e.core.internal.rule.RuleId;
+
+/**
+ * Binary serialization of {@link StateStack}s based on their frame representation.
+ * <p>
+ * Each stack element is written once as a node referencing its parent node, so states of consecutive lines, which usually
+ * share most of their elements, are stored compactly. Strings are written as ids provided by the caller.
+ * <p>
+ * The rule ids of a state are only meaningful for the grammar that produced it, thus states must only be read back
+ * for an identical grammar. The theme of the grammar may differ though, the style of the token attributes is recomputed
+ * when reading the states, only the language id and token type are taken from the written attributes.
+ */
+public final class StateStackCodec {
+
+	/** node id of {@link StateStack#NULL} */
+	private static final int NULL_STATE_ID = -2;
+
+	/** parent node id of root elements */
+	private static final int NO_PARENT_ID = -1;
+
+	public static final class Writer {
+		private final ToIntFunction<String> stringIds;
+		private final Map<StateStack, Integer> nodeIds = new IdentityHashMap<>();
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream nodes = new DataOutputStream(bytes);
+
+		/**
+		 * @param stringIds provides the id under which a string is written
+		 */
+		public Writer(final ToIntFunction<String> stringIds) {
+			this.stringIds = stringIds;
+		}
+
+		/**
+		 * Adds the given state including all its parent elements to the nodes to be written.
+		 *
+		 * @return the id of the state to be passed to {@link Reader#get(int)}
+		 */
+		public int add(final IStateStack state) throws IOException {
+			final var stateStack = (StateStack) state;
+			if (stateStack == StateStack.NULL)
+				return NULL_STATE_ID;
+
+			final var existingId = castNullable(nodeIds.get(stateStack));
+			if (existingId != null)
+				return existingId;
+
+			final var parent = stateStack.pop();
+			final int parentId = parent == null ? NO_PARENT_ID : add(parent);
+			final var frame = stateStack.toStateStackFrame();
+			final var endRule = frame.endRule();
+			nodes.writeInt(parentId);
+			nodes.writeInt(frame.ruleId().id);
+			nodes.writeBoolean(frame.beginRuleCapturedEOL());
+			nodes.writeInt(endRule == null ? -1 : stringIds.applyAsInt(endRule));
+			writeScopeFrames(frame.nameScopesList());
+			writeScopeFrames(frame.contentNameScopesList());
+
+			final int id = nodeIds.size();
+			nodeIds.put(stateStack, id);
+			return id;
+		}
+
+		private void writeScopeFrames(final List<AttributedScopeStack.Frame> frames) throws IOException {
+			nodes.writeInt(frames.size());
+			for (final var frame : frames) {
+				nodes.writeInt(frame.encodedTokenAttributes());
+				nodes.writeInt(frame.scopeNames().size());
+				for (final var scopeName : frame.scopeNames()) {
+					nodes.writeInt(stringIds.applyAsInt(scopeName));
+				}
+			}
+		}
+
+		/**
+		 * Writes all added nodes.
+		 */
+		public void writeTo(final DataOutput out) throws IOException {
+			nodes.flush();
+			out.writeInt(nodeIds.size());
+			out.write(bytes.toByteArray());
+		}
+	}
+
+	public static final class Reader {
+		private final Grammar grammar;
+		private final List<StateStack> nodes;
+
+		/**
+		 * Reads the nodes written by {@link Writer#writeTo(DataOutput)} from the current position of the given buffer.
+		 *
+		 * @param strings resolves the ids of the strings
+		 * @param grammar the grammar the states were produced by, its current theme is applied to the read states
+		 */
+		public Reader(final ByteBuffer in, final IntFunction<String> strings, final IGrammar grammar) {
+			this.grammar = (Grammar) grammar;
+			final int nodeCount = in.getInt();
+			nodes = new ArrayList<>(nodeCount);
+			for (int i = 0; i < nodeCount; i++) {
+				final int parentId = in.getInt();
+				final int ruleId = in.getInt();
+				final boolean beginRuleCapturedEOL = in.get() != 0;
+				final int endRuleId = in.getInt();
+				final var parent = parentId == NO_PARENT_ID ? null : get(parentId);
+				final var parentNameScopes = parent == null ? null : parent.nameScopesList;
+				final var nameScopesList = restyle(readScopeFrames(in, strings), parentNameScopes);
+				final var contentNameScopesList = restyle(readScopeFrames(in, strings),
+						AttributedScopeStack.fromExtension(parentNameScopes, nameScopesList));
+				nodes.add(StateStack.pushFrame(
+						parent,
+						new StateStack.Frame(
+								ruleId == 0 ? RuleId.NO_RULE : RuleId.of(ruleId),
+								null,
+								null,
+								beginRuleCapturedEOL,
+								endRuleId == -1 ? null : strings.apply(endRuleId),
+								nameScopesList,
+								contentNameScopesList)));
+			}
+		}
+
+		private static List<AttributedScopeStack.Frame> readScopeFrames(final ByteBuffer in, final IntFunction<String> strings) {
+			final int frameCount = in.getInt();
+			final var frames = new ArrayList<AttributedScopeStack.Frame>(frameCount);
+			for (int i = 0; i < frameCount; i++) {
+				final int encodedTokenAttributes = in.getInt();
+				final int scopeCount = in.getInt();
+				final var scopeNames = new ArrayList<String>(scopeCount);
+				for (int j = 0; j < scopeCount; j++) {
+					scopeNames.add(strings.apply(in.getInt()));
+				}
+				frames.add(new AttributedScopeStack.Frame(encodedTokenAttributes, scopeNames));
+			}
+			return frames;
+		}
+
+		/**
+		 * Recomputes the style of the given frames pushed onto the given scope stack like
+		 * {@link AttributedScopeStack#pushAttributed(String, Grammar)} does, keeping the written language ids and token
+		 * types.
+		 */
+		private List<AttributedScopeStack.Frame> restyle(final List<AttributedScopeStack.Frame> frames,
+				final @Nullable AttributedScopeStack base) {
+			if (frames.isEmpty())
+				return frames;
+
+			final var result = new ArrayList<AttributedScopeStack.Frame>(frames.size());
+			@Nullable
+			ScopeStack scopePath = base == null ? null : base.scopePath;
+			int tokenAttributes = base == null ? grammar.getDefaultTokenAttributes() : base.tokenAttributes;
+			for (final var frame : frames) {
+				// the root scope of an unnamed root rule is not looked up in the theme, see Grammar#_tokenize
+				final boolean isUnnamedRoot = scopePath == null && grammar.getRootScopeName() == null;
+				scopePath = castNonNull(ScopeStack.push(scopePath, frame.scopeNames()));
+				tokenAttributes = AttributedScopeStack.mergeAttributes(
+						tokenAttributes,
+						new BasicScopeAttributes(
+								EncodedTokenAttributes.getLanguageId(frame.encodedTokenAttributes()),
+								EncodedTokenAttributes.getTokenType(frame.encodedTokenAttributes())),
+						isUnnamedRoot ? null : grammar.themeProvider.themeMatch(scopePath));
+				result.add(new AttributedScopeStack.Frame(tokenAttributes, frame.scopeNames()));
+			}
+			return result;
+		}
+
+		/**
+		 * @param id the id returned by {@link Writer#add(IStateStack)}
+		 */
+		public StateStack get(final int id) {
+			if (id == NULL_STATE_ID)
+				return StateStack.NULL;
+			if (id < 0 || id >= nodes.size())
+				throw new IllegalArgumentException("Invalid state id " + id);
+			return nodes.get(id);
+		}
+	}
+
+	private StateStackCodec() {
+	}
+}
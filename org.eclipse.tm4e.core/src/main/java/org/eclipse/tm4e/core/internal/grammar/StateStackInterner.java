@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.utils.WeakInterner;
+
+/**
+ * Hash-conses the {@link StateStack}s returned at the end of each line including their {@link AttributedScopeStack}s
+ * and {@link ScopeStack}s, so that structurally equal states of different lines share the same instances.
+ * <p>
+ * This reduces the memory retained by the line states of large documents, e.g. by <code>TMModel</code>, and makes
+ * comparing the end state of a line with the previously computed one mostly an identity check.
+ * <p>
+ * A stack element is interned after its parent, thus elements are compared shallowly, i.e. their parents by identity.
+ * Canonical elements are marked as such, so that only the elements pushed while tokenizing a line need to be looked
+ * up.
+ * <p>
+ * Interning can be disabled by setting the system property <code>tm4e.core.stateStackInterning</code> to <code>false</code>.
+ */
+final class StateStackInterner {
+
+	static final String SYSTEM_PROPERTY = "tm4e.core.stateStackInterning";
+
+	/**
+	 * @return a new interner or <code>null</code> if interning is disabled
+	 */
+	@Nullable
+	static StateStackInterner createIfEnabled() {
+		return Boolean.parseBoolean(System.getProperty(SYSTEM_PROPERTY, "true"))
+				? new StateStackInterner()
+				: null;
+	}
+
+	private final WeakInterner<StateStack> states = new WeakInterner<>(
+			StateStack::shallowHashCode,
+			StateStack::shallowEquals);
+
+	private final WeakInterner<AttributedScopeStack> attributedScopes = new WeakInterner<>(
+			AttributedScopeStack::shallowHashCode,
+			AttributedScopeStack::shallowEquals);
+
+	private final WeakInterner<ScopeStack> scopes = new WeakInterner<>(
+			scope -> 31 * System.identityHashCode(scope.parent) + scope.scopeName.hashCode(),
+			(a, b) -> a.parent == b.parent && a.scopeName.equals(b.scopeName));
+
+	/**
+	 * @return the canonical instance of the given state
+	 */
+	StateStack intern(final StateStack state) {
+		if (state.interned)
+			return state;
+
+		final var parent = state.pop();
+		final var candidate = state.withCanonicalParts(
+				parent == null ? null : intern(parent),
+				intern(state.nameScopesList),
+				intern(state.contentNameScopesList));
+		final var canonical = states.intern(candidate);
+		canonical.interned = true;
+		return canonical;
+	}
+
+	@Nullable
+	private AttributedScopeStack intern(final @Nullable AttributedScopeStack stack) {
+		if (stack == null || stack.interned)
+			return stack;
+
+		final var candidate = stack.withCanonicalParts(
+				intern(stack.getParent()),
+				intern(stack.getScopePath()));
+		final var canonical = attributedScopes.intern(candidate);
+		canonical.interned = true;
+		return canonical;
+	}
+
+	private ScopeStack intern(final ScopeStack scope) {
+		if (scope.interned)
+			return scope;
+
+		final var parent = scope.parent;
+		final var canonicalParent = parent == null ? null : intern(parent);
+		final var candidate = canonicalParent == parent ? scope : new ScopeStack(canonicalParent, scope.scopeName);
+		final var canonical = scopes.intern(candidate);
+		canonical.interned = true;
+		return canonical;
+	}
+
+	@Override
+	public String toString() {
+		return "StateStackInterner[states=" + states.size() + ", attributedScopes=" + attributedScopes.size() + ", scopes="
+				+ scopes.size() + "]";
+	}
+}
@@ -17,9 +17,7 @@
  */
 package org.eclipse.tm4e.core.internal.grammar;
 
-import java.util.List;
-
-import org.eclipse.tm4e.core.internal.matcher.Matcher;
+import org.eclipse.tm4e.core.internal.matcher.CompiledMatcher;
 
 /**
  * @see <a href=
@@ -28,10 +26,10 @@
  */
 final class TokenTypeMatcher {
 
-	final Matcher<List<String>> matcher;
+	final CompiledMatcher matcher;
 	final int /*StandardTokenType*/ type;
 
-	TokenTypeMatcher(final Matcher<List<String>> matcher, final int type) {
+	TokenTypeMatcher(final CompiledMatcher matcher, final int type) {
 		this.matcher = matcher;
 		this.type = type;
 	}
@@ -19,7 +19,6 @@
 import java.util.Collection;
 
 import org.eclipse.jdt.annotation.Nullable;
-import org.eclipse.tm4e.core.internal.rule.RuleId;
 
 /**
  * @see <a href=
@@ -28,12 +27,6 @@
  */
 public interface IRawRule {
 
-	/** This is not part of the spec only used internally */
-	@Nullable
-	RuleId getId();
-
-	void setId(RuleId id);
-
 	@Nullable
 	String getInclude();
 
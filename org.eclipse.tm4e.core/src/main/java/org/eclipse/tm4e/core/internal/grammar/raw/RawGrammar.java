@@ -90,12 +90,9 @@ public String getName() {
 
 	@Override
 	public IRawRepository getRepository() {
-		var repo = (IRawRepository) get(RawRule.REPOSITORY);
-		if (repo == null) {
-			repo = new RawRepository();
-			setRepository(repo);
-		}
-		return repo;
+		final var repo = (IRawRepository) get(RawRule.REPOSITORY);
+		// not stored, parsed grammars are shared by multiple grammars and must not be modified
+		return repo == null ? new RawRepository() : repo;
 	}
 
 	private Object getSafe(@Nullable final Object key) {
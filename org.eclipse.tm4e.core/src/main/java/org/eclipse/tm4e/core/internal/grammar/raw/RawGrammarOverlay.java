@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar.raw;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.parser.PropertySettable;
+
+/**
+ * Copy-on-write view of a parsed raw grammar, used instead of a deep clone so that one parsed grammar can be shared by
+ * many {@link org.eclipse.tm4e.core.internal.grammar.Grammar} instances.
+ * <p>
+ * Everything is read from the underlying grammar, except the <code>$self</code> and <code>$base</code> repository
+ * entries, which are stored in the view.
+ */
+public final class RawGrammarOverlay implements IRawGrammar {
+
+	private static final class Repository implements IRawRepository {
+
+		private final IRawRepository parent;
+
+		@Nullable
+		private IRawRule self;
+
+		@Nullable
+		private IRawRule base;
+
+		Repository(final IRawRepository parent) {
+			this.parent = parent;
+		}
+
+		@Override
+		public void putEntries(final PropertySettable<IRawRule> target) {
+			parent.putEntries(target);
+			final var self = this.self;
+			if (self != null) {
+				target.setProperty(RawRepository.DOLLAR_SELF, self);
+			}
+			final var base = this.base;
+			if (base != null) {
+				target.setProperty(RawRepository.DOLLAR_BASE, base);
+			}
+		}
+
+		@Override
+		public @Nullable IRawRule getRule(final String name) {
+			return switch (name) {
+				case RawRepository.DOLLAR_SELF -> self;
+				case RawRepository.DOLLAR_BASE -> base;
+				default -> parent.getRule(name);
+			};
+		}
+
+		@Override
+		public IRawRule getBase() {
+			final var base = this.base;
+			if (base == null)
+				throw new NoSuchElementException("Key '" + RawRepository.DOLLAR_BASE + "' does not exit found");
+			return base;
+		}
+
+		@Override
+		public IRawRule getSelf() {
+			final var self = this.self;
+			if (self == null)
+				throw new NoSuchElementException("Key '" + RawRepository.DOLLAR_SELF + "' does not exit found");
+			return self;
+		}
+
+		@Override
+		public void setSelf(final IRawRule self) {
+			this.self = self;
+		}
+
+		@Override
+		public void setBase(final IRawRule base) {
+			this.base = base;
+		}
+	}
+
+	private final IRawGrammar grammar;
+	private IRawRepository repository;
+
+	public RawGrammarOverlay(final IRawGrammar grammar) {
+		this.grammar = grammar;
+		this.repository = new Repository(grammar.getRepository());
+	}
+
+	@Override
+	public IRawRepository getRepository() {
+		return repository;
+	}
+
+	@Override
+	public void setRepository(final IRawRepository repository) {
+		this.repository = repository;
+	}
+
+	@Override
+	public String getScopeName() {
+		return grammar.getScopeName();
+	}
+
+	@Override
+	public @Nullable Collection<IRawRule> getPatterns() {
+		return grammar.getPatterns();
+	}
+
+	@Override
+	public @Nullable Map<String, IRawRule> getInjections() {
+		return grammar.getInjections();
+	}
+
+	@Override
+	public @Nullable String getInjectionSelector() {
+		return grammar.getInjectionSelector();
+	}
+
+	@Override
+	public Collection<String> getFileTypes() {
+		return grammar.getFileTypes();
+	}
+
+	@Override
+	public @Nullable String getName() {
+		return grammar.getName();
+	}
+
+	@Override
+	public @Nullable String getFirstLineMatch() {
+		return grammar.getFirstLineMatch();
+	}
+
+	@Override
+	public IRawRule toRawRule() {
+		return new RawRule() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public @Nullable String getName() {
+				return RawGrammarOverlay.this.getName();
+			}
+
+			@Override
+			public @Nullable Collection<IRawRule> getPatterns() {
+				return RawGrammarOverlay.this.getPatterns();
+			}
+
+			@Override
+			public @Nullable IRawRepository getRepository() {
+				return RawGrammarOverlay.this.getRepository();
+			}
+		};
+	}
+}
@@ -16,15 +16,22 @@
  */
 package org.eclipse.tm4e.core.internal.grammar.raw;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.util.List;
 
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.parser.PropertySettable;
 import org.eclipse.tm4e.core.internal.parser.TMParser;
 import org.eclipse.tm4e.core.internal.parser.TMParser.ObjectFactory;
 import org.eclipse.tm4e.core.internal.parser.TMParserJSON;
 import org.eclipse.tm4e.core.internal.parser.TMParserPList;
+import org.eclipse.tm4e.core.internal.parser.TMParserSnapshot;
 import org.eclipse.tm4e.core.internal.parser.TMParserYAML;
 import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.IGrammarSource.ContentType;
 
 /**
  * TextMate Grammar reader utilities.
@@ -50,6 +57,22 @@ public PropertySettable<?> createChild(final TMParser.PropertyPath path, final C
 	};
 
 	public static IRawGrammar readGrammar(final IGrammarSource source) throws Exception {
+		if (source.getContentType() == ContentType.SNAPSHOT) {
+			try (var in = source.getInputStream()) {
+				return TMParserSnapshot.INSTANCE.parse(ByteBuffer.wrap(in.readAllBytes()), OBJECT_FACTORY);
+			} catch (final IOException ex) {
+				// e.g. a snapshot of another format version, parse the grammar it was generated from instead
+				final var textSource = getTextSource(source);
+				if (textSource == null)
+					throw ex;
+				try {
+					return readGrammar(textSource);
+				} catch (final Exception textEx) {
+					textEx.addSuppressed(ex);
+					throw textEx;
+				}
+			}
+		}
 		try (var reader = source.getReader()) {
 			return switch (source.getContentType()) {
 				case JSON -> TMParserJSON.INSTANCE.parse(reader, OBJECT_FACTORY);
@@ -59,6 +82,44 @@ public static IRawGrammar readGrammar(final IGrammarSource source) throws Except
 		}
 	}
 
+	/**
+	 * @return the text grammar a snapshot was generated from, which is provided by the snapshot source's
+	 *         {@link IGrammarSource#getReader()} and has the snapshot's file path without the snapshot file extension,
+	 *         or <code>null</code> if no content type can be derived from that path
+	 */
+	@Nullable
+	private static IGrammarSource getTextSource(final IGrammarSource snapshotSource) {
+		final String snapshotPath = snapshotSource.getFilePath();
+		if (!snapshotPath.endsWith(IGrammarSource.SNAPSHOT_FILE_EXTENSION))
+			return null;
+
+		final String textPath = snapshotPath.substring(0,
+				snapshotPath.length() - IGrammarSource.SNAPSHOT_FILE_EXTENSION.length());
+		final var textSource = new IGrammarSource() {
+			@Override
+			public Reader getReader() throws IOException {
+				return snapshotSource.getReader();
+			}
+
+			@Override
+			public String getFilePath() {
+				return textPath;
+			}
+		};
+		try {
+			return textSource.getContentType() == ContentType.SNAPSHOT ? null : textSource;
+		} catch (final IllegalArgumentException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the given grammar as a snapshot which can be read with content type {@link ContentType#SNAPSHOT}.
+	 */
+	public static void writeSnapshot(final IRawGrammar grammar, final OutputStream target) throws IOException {
+		TMParserSnapshot.INSTANCE.write((RawGrammar) grammar, target);
+	}
+
 	/**
 	 * methods should be accessed statically
 	 */
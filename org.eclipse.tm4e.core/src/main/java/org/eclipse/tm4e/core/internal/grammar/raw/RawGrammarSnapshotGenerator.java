@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar.raw;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import org.eclipse.tm4e.core.internal.parser.TMParserSnapshot;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+
+/**
+ * Build time tool generating a snapshot (see {@link IGrammarSource#SNAPSHOT_FILE_EXTENSION}) for each TextMate grammar
+ * found in the given directory, e.g. invoked by the Maven build of this module for the language pack. The snapshots are
+ * written to the given output directory at the same relative path as their grammar.
+ * <p>
+ * Grammars are recognized by their file name containing <code>.tmLanguage</code>, Maven <code>target</code> directories
+ * are skipped. Snapshots newer than their grammar are not regenerated, unless they were written in another snapshot
+ * format version.
+ */
+public final class RawGrammarSnapshotGenerator {
+
+	public static void main(final String[] args) throws Exception {
+		if (args.length != 2) {
+			System.err.println("Usage: " + RawGrammarSnapshotGenerator.class.getName() + " <grammar directory> <output directory>");
+			System.exit(1);
+		}
+
+		final var grammarDir = Path.of(args[0]);
+		final var outputDir = Path.of(args[1]);
+		int generated = 0;
+		for (final Path grammarFile : findGrammars(grammarDir, outputDir)) {
+			final var snapshotFile = outputDir.resolve(grammarDir.relativize(grammarFile).toString()
+					+ IGrammarSource.SNAPSHOT_FILE_EXTENSION);
+			if (generate(grammarFile, snapshotFile)) {
+				generated++;
+			}
+		}
+		System.out.println("Generated " + generated + " grammar snapshot(s) in " + outputDir);
+	}
+
+	/**
+	 * @return <code>true</code> if the snapshot was (re-)generated
+	 */
+	static boolean generate(final Path grammarFile, final Path snapshotFile) throws Exception {
+		if (isUpToDate(snapshotFile, grammarFile))
+			return false;
+
+		final var grammar = RawGrammarReader.readGrammar(IGrammarSource.fromFile(grammarFile));
+		Files.createDirectories(snapshotFile.toAbsolutePath().getParent());
+		final var tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+		try (var out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+			RawGrammarReader.writeSnapshot(grammar, out);
+		}
+		Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return true;
+	}
+
+	private static boolean isUpToDate(final Path snapshotFile, final Path grammarFile) throws IOException {
+		if (!Files.exists(snapshotFile)
+				|| Files.getLastModifiedTime(snapshotFile).compareTo(Files.getLastModifiedTime(grammarFile)) <= 0)
+			return false;
+		try (var in = Files.newInputStream(snapshotFile)) {
+			return TMParserSnapshot.isCurrentFormat(in);
+		}
+	}
+
+	private static List<Path> findGrammars(final Path dir, final Path excludedDir) throws IOException {
+		final var excludedAbsoluteDir = excludedDir.toAbsolutePath().normalize();
+		try (Stream<Path> files = Files.walk(dir)) {
+			return files
+					.filter(Files::isRegularFile)
+					.filter(file -> !file.toAbsolutePath().normalize().startsWith(excludedAbsoluteDir))
+					.filter(file -> !isInTargetDir(dir.relativize(file)))
+					.filter(file -> {
+						final var fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+						return fileName.contains(".tmlanguage") && !fileName.endsWith(IGrammarSource.SNAPSHOT_FILE_EXTENSION);
+					})
+					.sorted()
+					.toList();
+		}
+	}
+
+	private static boolean isInTargetDir(final Path relativeFile) {
+		for (int i = 0; i < relativeFile.getNameCount() - 1; i++) {
+			if ("target".equals(relativeFile.getName(i).toString()))
+				return true;
+		}
+		return false;
+	}
+
+	private RawGrammarSnapshotGenerator() {
+	}
+}
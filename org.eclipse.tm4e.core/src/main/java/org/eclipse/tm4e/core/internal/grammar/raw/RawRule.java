@@ -16,7 +16,6 @@
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.parser.PropertySettable;
-import org.eclipse.tm4e.core.internal.rule.RuleId;
 
 public class RawRule extends PropertySettable.HashMap<@Nullable Object> implements IRawRule {
 
@@ -27,7 +26,6 @@ public class RawRule extends PropertySettable.HashMap<@Nullable Object> implemen
 	private static final String CONTENT_NAME = "contentName";
 	private static final String END = "end";
 	public static final String END_CAPTURES = "endCaptures";
-	private static final String ID = "id";
 	private static final String INCLUDE = "include";
 	private static final String MATCH = "match";
 	private static final String NAME = "name";
@@ -38,17 +36,6 @@ public class RawRule extends PropertySettable.HashMap<@Nullable Object> implemen
 
 	private static final long serialVersionUID = 1L;
 
-	@Nullable
-	@Override
-	public RuleId getId() {
-		return (RuleId) get(ID);
-	}
-
-	@Override
-	public void setId(final RuleId id) {
-		super.put(ID, id);
-	}
-
 	@Nullable
 	@Override
 	public String getName() {
@@ -75,23 +62,35 @@ public String getMatch() {
 	@Nullable
 	@Override
 	public IRawCaptures getCaptures() {
-		updateCaptures(CAPTURES);
 		return (IRawCaptures) get(CAPTURES);
 	}
 
-	private void updateCaptures(final String name) {
-		final Object captures = get(name);
-		if (captures instanceof final List<?> capturesList) {
-			final var rawCaptures = new RawRule();
+	/**
+	 * Captures given as a list are converted to a map keyed by the 1-based capture index while the grammar is parsed, so
+	 * that a raw grammar is not modified anymore once it was read and can be shared by multiple grammars.
+	 */
+	@Override
+	public void setProperty(final String name, final @Nullable Object value) {
+		if (value instanceof final List<?> capturesList && isCaptures(name)) {
+			final var rawCaptures = new RawCaptures();
 			int i = 0;
 			for (final var capture : capturesList) {
 				i++;
-				rawCaptures.put(Integer.toString(i), capture);
+				rawCaptures.put(Integer.toString(i), (IRawRule) capture);
 			}
-			super.put(name, rawCaptures);
+			super.setProperty(name, rawCaptures);
+		} else {
+			super.setProperty(name, value);
 		}
 	}
 
+	private static boolean isCaptures(final String name) {
+		return switch (name) {
+			case BEGIN_CAPTURES, CAPTURES, END_CAPTURES, WHILE_CAPTURES -> true;
+			default -> false;
+		};
+	}
+
 	@Nullable
 	@Override
 	public String getBegin() {
@@ -118,7 +117,6 @@ public RawRule setInclude(@Nullable final String include) {
 	@Nullable
 	@Override
 	public IRawCaptures getBeginCaptures() {
-		updateCaptures(BEGIN_CAPTURES);
 		return (IRawCaptures) get(BEGIN_CAPTURES);
 	}
 
@@ -131,14 +129,12 @@ public String getEnd() {
 	@Nullable
 	@Override
 	public IRawCaptures getEndCaptures() {
-		updateCaptures(END_CAPTURES);
 		return (IRawCaptures) get(END_CAPTURES);
 	}
 
 	@Nullable
 	@Override
 	public IRawCaptures getWhileCaptures() {
-		updateCaptures(WHILE_CAPTURES);
 		return (IRawCaptures) get(WHILE_CAPTURES);
 	}
 
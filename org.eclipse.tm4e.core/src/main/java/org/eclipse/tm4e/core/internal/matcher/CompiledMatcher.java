@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.matcher;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.grammar.ScopeStack;
+
+/**
+ * A scope selector compiled into a flat postfix program of {@link ScopeIds identifier ids} evaluated against a scope path.
+ * <p>
+ * Intermediate results are kept as bits of a <code>long</code>, so evaluating a program neither allocates nor needs
+ * synchronization.
+ */
+public final class CompiledMatcher implements Matcher<List<String>> {
+
+	/** <code>OP_NAMES, n, id1 ... idn</code>: pushes if the identifiers match the scope path in that order */
+	static final int OP_NAMES = 0;
+
+	/** pushes <code>false</code> */
+	static final int OP_FALSE = 1;
+
+	/** pushes <code>true</code> */
+	static final int OP_TRUE = 2;
+
+	/** replaces the top of the stack by its negation */
+	static final int OP_NOT = 3;
+
+	/** replaces the two topmost values by their conjunction */
+	static final int OP_AND = 4;
+
+	/** replaces the two topmost values by their disjunction */
+	static final int OP_OR = 5;
+
+	/** max nesting of sub-expressions supported by the <code>long</code> based stack */
+	static final int MAX_STACK_DEPTH = Long.SIZE;
+
+	private final int[] program;
+
+	CompiledMatcher(final int[] program) {
+		this.program = program;
+	}
+
+	/**
+	 * @param scopePath the innermost scope of a scope path or <code>null</code> for an empty path
+	 */
+	public boolean matches(@Nullable final ScopeStack scopePath) {
+		final int[] program = this.program;
+		long stack = 0;
+		for (int pc = 0; pc < program.length;) {
+			switch (program[pc++]) {
+				case OP_NAMES: {
+					final int count = program[pc++];
+					stack = stack << 1 | (matchesNames(program, pc, count, scopePath) ? 1 : 0);
+					pc += count;
+					break;
+				}
+				case OP_FALSE:
+					stack <<= 1;
+					break;
+				case OP_TRUE:
+					stack = stack << 1 | 1;
+					break;
+				case OP_NOT:
+					stack ^= 1;
+					break;
+				case OP_AND:
+					stack = stack >>> 1 & (stack | ~1L);
+					break;
+				case OP_OR:
+					stack = stack >>> 1 | stack & 1;
+					break;
+				default:
+					throw new IllegalStateException("Unknown opcode at " + (pc - 1));
+			}
+		}
+		return (stack & 1) != 0;
+	}
+
+	/**
+	 * Checks that each identifier matches one of the scopes. Like vscode-textmate the search for the next identifier
+	 * starts at the number of identifiers matched so far, counted from the root scope. The search for the i-th identifier
+	 * thus covers the innermost <code>depth - i</code> scopes.
+	 */
+	private static boolean matchesNames(final int[] program, final int offset, final int count,
+			@Nullable final ScopeStack scopePath) {
+		final int depth = scopePath == null ? 0 : scopePath.depth;
+		if (depth < count)
+			return false;
+		for (int i = 0; i < count; i++) {
+			if (!matchesAny(scopePath, depth - i, program[offset + i]))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean matchesAny(@Nullable ScopeStack scope, int scopeCount, final int identifierId) {
+		while (scope != null && scopeCount-- > 0) {
+			if (ScopeIds.matches(scope.getMatchingIds(), identifierId))
+				return true;
+			scope = scope.parent;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean matches(final List<String> scopes) {
+		return matches(ScopeStack.from(scopes));
+	}
+}
@@ -21,13 +21,8 @@
 @FunctionalInterface
 public interface Matcher<T> {
 
-	static List<MatcherWithPriority<List<String>>> createMatchers(final String selector) {
-		return createMatchers(selector, NameMatcher.DEFAULT);
-	}
-
-	static List<MatcherWithPriority<List<String>>> createMatchers(final String selector,
-			final NameMatcher<List<String>> matchesName) {
-		return new MatcherBuilder<>(selector, matchesName).results;
+	static List<MatcherWithPriority> createMatchers(final String selector) {
+		return new MatcherBuilder(selector).results;
 	}
 
 	boolean matches(T t);
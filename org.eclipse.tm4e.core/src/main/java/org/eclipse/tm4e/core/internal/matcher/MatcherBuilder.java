@@ -20,31 +20,38 @@
 
 import java.lang.System.Logger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Pattern;
 
 import org.eclipse.jdt.annotation.Nullable;
 
 /**
- * Matcher utilities.
+ * Parses scope selectors and compiles them into {@link CompiledMatcher}s.
  *
  * @see <a href="https://github.com/microsoft/vscode-textmate/blob/main/src/matcher.ts">
  *      github.com/microsoft/vscode-textmate/blob/main/src/matcher.ts</a>
  */
-final class MatcherBuilder<T> {
+final class MatcherBuilder {
 
 	private static final Logger LOGGER = System.getLogger(MatcherBuilder.class.getName());
 
-	final List<MatcherWithPriority<T>> results = new ArrayList<>();
+	final List<MatcherWithPriority> results = new ArrayList<>();
 	private final Tokenizer tokenizer;
-	private final NameMatcher<T> matchesName;
+	private final CharSequence selector;
 
 	@Nullable
 	private String token;
 
-	MatcherBuilder(final CharSequence selector, final NameMatcher<T> matchesName) {
+	/** program of the matcher currently compiled */
+	private int[] program = new int[16];
+	private int programLength;
+	private int stackDepth;
+	private int maxStackDepth;
+
+	MatcherBuilder(final CharSequence selector) {
 		tokenizer = new Tokenizer(selector);
-		this.matchesName = matchesName;
+		this.selector = selector;
 
 		// defining local token variable for annotation-based null analysis
 		var token = this.token = tokenizer.next();
@@ -63,8 +70,8 @@
 				}
 				this.token = tokenizer.next();
 			}
-			final Matcher<T> matcher = parseConjunction();
-			results.add(new MatcherWithPriority<>(matcher, priority));
+			parseConjunction();
+			results.add(new MatcherWithPriority(createMatcher(), priority));
 			if (!",".equals(this.token)) {
 				break;
 			}
@@ -72,81 +79,92 @@
 		}
 	}
 
-	@Nullable
-	private Matcher<T> parseOperand() {
+	private CompiledMatcher createMatcher() {
+		final var matcher = maxStackDepth > CompiledMatcher.MAX_STACK_DEPTH
+				? new CompiledMatcher(new int[] { CompiledMatcher.OP_FALSE })
+				: new CompiledMatcher(Arrays.copyOf(program, programLength));
+		if (maxStackDepth > CompiledMatcher.MAX_STACK_DEPTH) {
+			LOGGER.log(WARNING, "Scope selector {0} is nested too deeply and will never match", selector);
+		}
+		programLength = 0;
+		stackDepth = 0;
+		maxStackDepth = 0;
+		return matcher;
+	}
+
+	private void emit(final int opcode, final int stackDelta) {
+		emitOperand(opcode);
+		stackDepth += stackDelta;
+		maxStackDepth = Math.max(maxStackDepth, stackDepth);
+	}
+
+	private void emitOperand(final int value) {
+		if (programLength == program.length) {
+			program = Arrays.copyOf(program, program.length * 2);
+		}
+		program[programLength++] = value;
+	}
+
+	/**
+	 * @return <code>false</code> if no operand was found
+	 */
+	private boolean parseOperand() {
 		if ("-".equals(token)) {
 			token = tokenizer.next();
-			final var expressionToNegate = parseOperand();
-			return matcherInput -> expressionToNegate != null && !expressionToNegate.matches(matcherInput);
+			if (parseOperand()) {
+				emit(CompiledMatcher.OP_NOT, 0);
+			} else {
+				emit(CompiledMatcher.OP_FALSE, 1);
+			}
+			return true;
 		}
 
 		if ("(".equals(token)) {
 			token = tokenizer.next();
-			final var expressionInParents = parseInnerExpression();
+			parseInnerExpression();
 			if (")".equals(token)) {
 				token = tokenizer.next();
 			}
-			return expressionInParents;
+			return true;
 		}
 
 		// defining local token variable for annotation-based null analysis
 		var token = this.token;
 		if (token != null && isIdentifier(token)) {
-			final var identifiers = new ArrayList<String>();
+			emit(CompiledMatcher.OP_NAMES, 1);
+			final int countIndex = programLength;
+			emitOperand(0);
 			do {
-				identifiers.add(token);
+				emitOperand(ScopeIds.of(token));
+				program[countIndex]++;
 				token = this.token = tokenizer.next();
 			} while (token != null && isIdentifier(token));
-			return matcherInput -> matchesName.matches(identifiers, matcherInput);
+			return true;
 		}
-		return null;
+		return false;
 	}
 
-	private Matcher<T> parseConjunction() {
-		final var matchers = new ArrayList<Matcher<T>>();
-		Matcher<T> matcher = parseOperand();
-		while (matcher != null) {
-			matchers.add(matcher);
-			matcher = parseOperand();
-		}
-
+	private void parseConjunction() {
 		// every (and)
-		return matcherInput -> {
-			// same as 'matchers.stream().allMatch(m -> m.test(matcherInput))' but more memory friendly
-			for (final Matcher<T> matcher1 : matchers) {
-				if (!matcher1.matches(matcherInput)) {
-					return false;
-				}
-			}
-			return true;
-		};
-	}
-
-	private Matcher<T> parseInnerExpression() {
-		final var matchers = new ArrayList<Matcher<T>>();
-		Matcher<T> matcher = parseConjunction();
-		while (true) {
-			matchers.add(matcher);
-			if ("|".equals(token) || ",".equals(token)) {
-				do {
-					token = tokenizer.next();
-				} while ("|".equals(token) || ",".equals(token)); // ignore subsequent commas
-			} else {
-				break;
-			}
-			matcher = parseConjunction();
+		if (!parseOperand()) {
+			emit(CompiledMatcher.OP_TRUE, 1);
+			return;
 		}
+		while (parseOperand()) {
+			emit(CompiledMatcher.OP_AND, -1);
+		}
+	}
 
+	private void parseInnerExpression() {
 		// some (or)
-		return matcherInput -> {
-			// same as 'matchers.stream().anyMatch(m -> m.test(matcherInput))' but more memory friendly
-			for (final Matcher<T> matcher1 : matchers) {
-				if (matcher1.matches(matcherInput)) {
-					return true;
-				}
-			}
-			return false;
-		};
+		parseConjunction();
+		while ("|".equals(token) || ",".equals(token)) {
+			do {
+				token = tokenizer.next();
+			} while ("|".equals(token) || ",".equals(token)); // ignore subsequent commas
+			parseConjunction();
+			emit(CompiledMatcher.OP_OR, -1);
+		}
 	}
 
 	/**
@@ -16,12 +16,12 @@
  */
 package org.eclipse.tm4e.core.internal.matcher;
 
-public final class MatcherWithPriority<T> {
+public final class MatcherWithPriority {
 
-	public final Matcher<T> matcher;
+	public final CompiledMatcher matcher;
 	public final int priority;
 
-	MatcherWithPriority(final Matcher<T> matcher, final int priority) {
+	MatcherWithPriority(final CompiledMatcher matcher, final int priority) {
 		this.matcher = matcher;
 		this.priority = priority;
 	}
@@ -0,0 +1,104 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.matcher;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.tm4e.core.internal.grammar.ScopeStack;
+
+/**
+ * Thread-safe global table interning the identifiers of scope selectors to integer ids.
+ * <p>
+ * Only selector identifiers are interned, so the table is bounded by the selectors of the loaded grammars and does not
+ * grow with the scope names produced by tokenization, e.g. names with substituted capture groups. For a scope name the
+ * ids of the identifiers matching it, i.e. equal to it or a prefix of it ending before a dot, are computed by
+ * {@link #matchingIds(String)} and cached per segment by {@link ScopeStack#getMatchingIds()}. Whether an identifier
+ * matches a scope name is thus a lookup of the identifier's id in a short int array.
+ */
+public final class ScopeIds {
+
+	private static final Map<String, Integer> IDS = new ConcurrentHashMap<>();
+	private static int nextId = 0;
+
+	/** incremented when an identifier is registered, invalidates the previously computed matching ids */
+	private static volatile int generation = 0;
+
+	/**
+	 * @return the id of the given scope selector identifier, assigning a new one if the identifier was not seen before
+	 */
+	static int of(final String identifier) {
+		final Integer id = IDS.get(identifier);
+		return id == null ? register(identifier) : id;
+	}
+
+	/**
+	 * @return the ids of the registered identifiers matching the given scope name, preceded by the generation they were
+	 *         computed for
+	 */
+	public static int[] matchingIds(final String scopeName) {
+		final int generation = ScopeIds.generation;
+		var result = new int[8];
+		result[0] = generation;
+		int count = 1;
+		for (int i = scopeName.indexOf('.'); i != -1; i = scopeName.indexOf('.', i + 1)) {
+			final Integer prefixId = IDS.get(scopeName.substring(0, i));
+			if (prefixId != null) {
+				if (count == result.length - 1) {
+					result = Arrays.copyOf(result, result.length * 2);
+				}
+				result[count++] = prefixId;
+			}
+		}
+		final Integer id = IDS.get(scopeName);
+		if (id != null) {
+			result[count++] = id;
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * @return <code>true</code> if the given result of {@link #matchingIds(String)} includes all identifiers registered
+	 *         so far
+	 */
+	public static boolean isCurrent(final int[] matchingIds) {
+		return matchingIds[0] == generation;
+	}
+
+	/**
+	 * @param matchingIds the result of {@link #matchingIds(String)} for a scope name
+	 *
+	 * @return <code>true</code> if the selector identifier with the given id matches the scope name
+	 */
+	static boolean matches(final int[] matchingIds, final int identifierId) {
+		for (int i = 1; i < matchingIds.length; i++) {
+			if (matchingIds[i] == identifierId)
+				return true;
+		}
+		return false;
+	}
+
+	private static int register(final String identifier) {
+		synchronized (IDS) {
+			final Integer existingId = IDS.get(identifier);
+			if (existingId != null)
+				return existingId;
+
+			final int id = nextId++;
+			IDS.put(identifier, id);
+			generation++; // published after the id, so a current generation implies the id is visible
+			return id;
+		}
+	}
+
+	private ScopeIds() {
+	}
+}
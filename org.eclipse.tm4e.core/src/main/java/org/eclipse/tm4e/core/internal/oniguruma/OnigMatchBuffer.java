@@ -0,0 +1,86 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import java.util.Arrays;
+
+/**
+ * Reusable holder of a match found by {@link OnigScanner#findNextMatch(OnigString, int, OnigMatchBuffer)}, storing the
+ * capture indices as primitive ints instead of {@link OnigCaptureIndex} objects.
+ * <p>
+ * Instances are not thread-safe and are overwritten by each search they are passed to.
+ */
+public final class OnigMatchBuffer {
+
+	private int index = -1;
+	private int captureCount;
+
+	/** start and end char index of each capture, stored in consecutive elements */
+	private int[] captures = new int[16];
+
+	/**
+	 * @return index of the matching pattern in the scanner
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	public int getCaptureCount() {
+		return captureCount;
+	}
+
+	public int getCaptureStart(final int captureIndex) {
+		return captures[checkCaptureIndex(captureIndex) * 2];
+	}
+
+	public int getCaptureEnd(final int captureIndex) {
+		return captures[checkCaptureIndex(captureIndex) * 2 + 1];
+	}
+
+	/**
+	 * @return the captures in the format returned by {@link OnigScannerMatch#getCaptureIndices()}
+	 */
+	public OnigCaptureIndex[] toCaptureIndices() {
+		final var result = new OnigCaptureIndex[captureCount];
+		for (int i = 0; i < captureCount; i++) {
+			final int captureStart = captures[i * 2];
+			final int captureEnd = captures[i * 2 + 1];
+			result[i] = captureStart == 0 && captureEnd == 0
+					? OnigCaptureIndex.EMPTY
+					: new OnigCaptureIndex(captureStart, captureEnd);
+		}
+		return result;
+	}
+
+	void set(final OnigResult result, final OnigString source) {
+		final int resultCount = result.count();
+		if (captures.length < resultCount * 2) {
+			captures = new int[resultCount * 2];
+		}
+		for (int i = 0; i < resultCount; i++) {
+			final int loc = result.locationAt(i);
+			captures[i * 2] = Math.max(0, source.getCharIndexOfByte(loc));
+			captures[i * 2 + 1] = Math.max(0, source.getCharIndexOfByte(loc + result.lengthAt(i)));
+		}
+		captureCount = resultCount;
+		index = result.getIndex();
+	}
+
+	private int checkCaptureIndex(final int captureIndex) {
+		if (captureIndex < 0 || captureIndex >= captureCount)
+			throw new IndexOutOfBoundsException("Capture index " + captureIndex + " out of bounds for length " + captureCount);
+		return captureIndex;
+	}
+
+	@Override
+	public String toString() {
+		return "{index: " + index + ", captures: " + Arrays.toString(Arrays.copyOf(captures, captureCount * 2)) + "}";
+	}
+}
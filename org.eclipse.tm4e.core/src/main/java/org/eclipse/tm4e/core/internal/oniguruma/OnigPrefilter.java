@@ -0,0 +1,452 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Cheap necessary condition for a regular expression to match, derived from its source, which allows skipping the
+ * search of regular expressions that cannot match in the rest of a string.
+ * <p>
+ * A prefilter knows either a literal every match starts with or the set of bytes the UTF-8 encoding of a match can start
+ * with. Leading zero-width assertions are skipped, a leading <code>\G</code> anchors the prefilter to the search
+ * position. The analysis is conservative, regular expressions using constructs it does not understand, e.g.
+ * case-insensitive or extended mode, get no prefilter.
+ * <p>
+ * Prefilters can be disabled by setting the system property <code>tm4e.core.regexPrefilter</code> to <code>false</code>.
+ */
+final class OnigPrefilter {
+
+	static final String SYSTEM_PROPERTY = "tm4e.core.regexPrefilter";
+
+	/**
+	 * if the searches are counted, disabled by default since {@link #mayMatch(byte[], int, int)} is called for every
+	 * regular expression search of all threads
+	 */
+	static volatile boolean collectStatistics = Boolean.getBoolean(OnigScanner.PREFILTER_STATISTICS_PROPERTY);
+
+	/** number of searches checked by a prefilter */
+	static final LongAdder CHECKED_SEARCHES = new LongAdder();
+
+	/** number of searches skipped because the prefilter ruled out a match */
+	static final LongAdder SKIPPED_SEARCHES = new LongAdder();
+
+	private static final Pattern UNSUPPORTED_OPTIONS = Pattern.compile("\\(\\?[imx]*-?[imx]*[ix]");
+
+	/**
+	 * @return the prefilter of the given regular expression or <code>null</code> if prefilters are disabled or none
+	 *         could be derived
+	 */
+	@Nullable
+	static OnigPrefilter of(final String regExp) {
+		if (!Boolean.parseBoolean(System.getProperty(SYSTEM_PROPERTY, "true"))
+				|| UNSUPPORTED_OPTIONS.matcher(regExp).find())
+			return null;
+		try {
+			return new Parser(regExp).parse();
+		} catch (final IndexOutOfBoundsException ex) {
+			// unbalanced constructs, which are reported by Joni
+			return null;
+		}
+	}
+
+	/** the UTF-8 bytes of a literal every match starts with, or <code>null</code> */
+	private final byte @Nullable [] literal;
+
+	/** the possible first bytes of a match */
+	private final boolean[] firstBytes;
+
+	/** <code>true</code> if matches can only start at the search position */
+	private final boolean anchored;
+
+	private OnigPrefilter(final @Nullable String literal, final boolean[] firstBytes, final boolean anchored) {
+		this.literal = literal == null ? null : literal.getBytes(StandardCharsets.UTF_8);
+		this.firstBytes = firstBytes;
+		this.anchored = anchored;
+	}
+
+	/**
+	 * @return <code>false</code> if the regular expression cannot match in the given bytes at or after the start position
+	 */
+	boolean mayMatch(final byte[] bytes, final int start, final int end) {
+		final boolean collectStatistics = OnigPrefilter.collectStatistics;
+		if (collectStatistics) {
+			CHECKED_SEARCHES.increment();
+		}
+		final int lastStart = anchored ? start : end - 1;
+		final var literal = this.literal;
+		if (literal == null) {
+			for (int i = start; i <= lastStart && i < end; i++) {
+				if (firstBytes[bytes[i] & 0xFF])
+					return true;
+			}
+		} else {
+			final byte first = literal[0];
+			for (int i = start, max = Math.min(lastStart, end - literal.length); i <= max; i++) {
+				if (bytes[i] == first && startsWith(bytes, i, literal))
+					return true;
+			}
+		}
+		if (collectStatistics) {
+			SKIPPED_SEARCHES.increment();
+		}
+		return false;
+	}
+
+	private static boolean startsWith(final byte[] bytes, final int offset, final byte[] prefix) {
+		for (int i = 1; i < prefix.length; i++) {
+			if (bytes[offset + i] != prefix[i])
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		final var literal = this.literal;
+		final var sb = new StringBuilder("OnigPrefilter[");
+		if (literal != null) {
+			sb.append("literal=").append(new String(literal, StandardCharsets.UTF_8));
+		} else {
+			sb.append("firstBytes=");
+			for (int b = 0; b < firstBytes.length; b++) {
+				if (firstBytes[b]) {
+					sb.append(b < 0x7F && b > 0x20 ? Character.toString(b) : "\\x" + Integer.toHexString(b));
+				}
+			}
+		}
+		return sb.append(", anchored=").append(anchored).append(']').toString();
+	}
+
+	/**
+	 * Recursive descent over the subset of the Oniguruma syntax relevant for the start of a match.
+	 */
+	private static final class Parser {
+		private final String regExp;
+		private int pos;
+
+		Parser(final String regExp) {
+			this.regExp = regExp;
+		}
+
+		@Nullable
+		OnigPrefilter parse() {
+			final boolean anchored = skipZeroWidth();
+			final int sequenceStart = pos;
+
+			// a literal is only required if the pattern has no top-level alternatives
+			String literal = null;
+			if (!hasTopLevelAlternatives()) {
+				final var sb = new StringBuilder();
+				while (pos < regExp.length()) {
+					final int elementStart = pos;
+					final int ch = parseLiteralChar();
+					if (ch == -1) {
+						pos = elementStart;
+						break;
+					}
+					final int quantifier = parseQuantifier();
+					if (quantifier == QUANTIFIER_OPTIONAL)
+						break;
+					sb.appendCodePoint(ch);
+					if (quantifier == QUANTIFIER_REPEATED)
+						break;
+				}
+				if (sb.length() > 0) {
+					literal = sb.toString();
+				}
+			}
+
+			pos = sequenceStart;
+			final boolean[] firstBytes = new boolean[256];
+			if (literal == null && !parseAlternatives(firstBytes))
+				return null;
+			return new OnigPrefilter(literal, firstBytes, anchored && !hasTopLevelAlternatives());
+		}
+
+		/**
+		 * Skips zero-width assertions.
+		 *
+		 * @return <code>true</code> if a <code>\G</code> anchor was skipped
+		 */
+		private boolean skipZeroWidth() {
+			boolean anchorG = false;
+			while (pos < regExp.length()) {
+				if (regExp.startsWith("\\G", pos)) {
+					anchorG = true;
+					pos += 2;
+				} else if (regExp.startsWith("\\b", pos) || regExp.startsWith("\\B", pos)) {
+					pos += 2;
+				} else if (regExp.charAt(pos) == '^') {
+					pos++;
+				} else if (regExp.startsWith("(?=", pos) || regExp.startsWith("(?!", pos)
+						|| regExp.startsWith("(?<=", pos) || regExp.startsWith("(?<!", pos)) {
+					skipGroup();
+				} else {
+					break;
+				}
+			}
+			return anchorG;
+		}
+
+		/**
+		 * Adds the possible first bytes of the alternatives starting at the current position to the given set.
+		 *
+		 * @return <code>false</code> if they cannot be determined
+		 */
+		private boolean parseAlternatives(final boolean[] firstBytes) {
+			while (true) {
+				skipZeroWidth();
+				if (!parseFirstElement(firstBytes))
+					return false;
+				skipToAlternativeEnd();
+				if (pos >= regExp.length() || regExp.charAt(pos) == ')')
+					return true;
+				pos++; // '|'
+			}
+		}
+
+		private boolean parseFirstElement(final boolean[] firstBytes) {
+			if (pos >= regExp.length())
+				return false;
+
+			final char ch = regExp.charAt(pos);
+			if (ch == '[') {
+				if (!parseCharClass(firstBytes))
+					return false;
+			} else if (ch == '(') {
+				pos++;
+				if (regExp.startsWith("?:", pos) || regExp.startsWith("?>", pos)) {
+					pos += 2;
+				} else if (regExp.startsWith("?<", pos)) {
+					final int nameEnd = regExp.indexOf('>', pos);
+					if (nameEnd == -1)
+						return false;
+					pos = nameEnd + 1;
+				} else if (regExp.startsWith("?", pos)) {
+					return false;
+				}
+				if (!parseAlternatives(firstBytes))
+					return false;
+				pos++; // ')'
+			} else {
+				final int literalChar = parseLiteralChar();
+				if (literalChar == -1)
+					return false;
+				addFirstBytes(firstBytes, literalChar, literalChar);
+			}
+			return parseQuantifier() != QUANTIFIER_OPTIONAL;
+		}
+
+		private boolean parseCharClass(final boolean[] firstBytes) {
+			pos++; // '['
+			if (regExp.charAt(pos) == '^' || regExp.charAt(pos) == ']')
+				return false;
+			while (regExp.charAt(pos) != ']') {
+				if (regExp.charAt(pos) == '[' || regExp.startsWith("&&", pos))
+					return false;
+				final int from = parseClassChar();
+				if (from == -1)
+					return false;
+				int to = from;
+				if (regExp.charAt(pos) == '-' && regExp.charAt(pos + 1) != ']') {
+					pos++;
+					to = parseClassChar();
+					if (to < from)
+						return false;
+				}
+				addFirstBytes(firstBytes, from, to);
+			}
+			pos++; // ']'
+			return true;
+		}
+
+		private int parseClassChar() {
+			return regExp.charAt(pos) == '\\' ? parseEscapedChar() : nextCodePoint();
+		}
+
+		/**
+		 * @return the code point of the literal character at the current position or -1
+		 */
+		private int parseLiteralChar() {
+			final char ch = regExp.charAt(pos);
+			if (ch == '\\')
+				return parseEscapedChar();
+			if (".*+?{}[]()|^$".indexOf(ch) != -1)
+				return -1;
+			return nextCodePoint();
+		}
+
+		private int parseEscapedChar() {
+			pos++; // '\'
+			final char ch = regExp.charAt(pos);
+			if (Character.isLetterOrDigit(ch)) {
+				pos++;
+				switch (ch) {
+					case 't': return '\t';
+					case 'n': return '\n';
+					case 'r': return '\r';
+					case 'f': return '\f';
+					case 'v': return 0x0B;
+					case 'a': return 0x07;
+					case 'e': return 0x1B;
+					default: return -1; // character types, backreferences, numeric escapes, etc.
+				}
+			}
+			return nextCodePoint();
+		}
+
+		private int nextCodePoint() {
+			final int codePoint = regExp.codePointAt(pos);
+			pos += Character.charCount(codePoint);
+			return codePoint;
+		}
+
+		private static final int QUANTIFIER_NONE = 0;
+		private static final int QUANTIFIER_OPTIONAL = 1;
+		private static final int QUANTIFIER_REPEATED = 2;
+
+		/**
+		 * Skips the quantifier at the current position, incl. lazy and possessive modifiers.
+		 *
+		 * @return {@link #QUANTIFIER_OPTIONAL} if the preceding element may occur zero times
+		 */
+		private int parseQuantifier() {
+			if (pos >= regExp.length())
+				return QUANTIFIER_NONE;
+			final int result;
+			switch (regExp.charAt(pos)) {
+				case '?', '*':
+					pos++;
+					result = QUANTIFIER_OPTIONAL;
+					break;
+				case '+':
+					pos++;
+					result = QUANTIFIER_REPEATED;
+					break;
+				case '{':
+					int i = pos + 1;
+					while (i < regExp.length() && Character.isDigit(regExp.charAt(i))) {
+						i++;
+					}
+					// {0}, {0,n}, {,n} and braces which are no interval at all
+					if (i == pos + 1 || Integer.parseInt(regExp.substring(pos + 1, i)) == 0)
+						return QUANTIFIER_OPTIONAL;
+					pos = regExp.indexOf('}', i) + 1;
+					if (pos == 0)
+						return QUANTIFIER_OPTIONAL;
+					result = QUANTIFIER_REPEATED;
+					break;
+				default:
+					return QUANTIFIER_NONE;
+			}
+			if (pos < regExp.length() && (regExp.charAt(pos) == '?' || regExp.charAt(pos) == '+')) {
+				pos++;
+			}
+			return result;
+		}
+
+		private boolean hasTopLevelAlternatives() {
+			final int start = pos;
+			pos = 0;
+			while (true) {
+				skipToAlternativeEnd();
+				if (pos >= regExp.length()) {
+					pos = start;
+					return false;
+				}
+				if (regExp.charAt(pos) == '|') {
+					pos = start;
+					return true;
+				}
+				pos++; // unbalanced ')'
+			}
+		}
+
+		/**
+		 * Moves to the next <code>|</code> or <code>)</code> at the current nesting level or to the end of the pattern.
+		 */
+		private void skipToAlternativeEnd() {
+			while (pos < regExp.length()) {
+				switch (regExp.charAt(pos)) {
+					case '|', ')':
+						return;
+					case '\\':
+						pos += 2;
+						break;
+					case '[':
+						skipCharClass();
+						break;
+					case '(':
+						skipGroup();
+						break;
+					default:
+						pos++;
+				}
+			}
+		}
+
+		private void skipGroup() {
+			pos++; // '('
+			skipToAlternativeEnd();
+			while (regExp.charAt(pos) == '|') {
+				pos++;
+				skipToAlternativeEnd();
+			}
+			pos++; // ')'
+		}
+
+		private void skipCharClass() {
+			pos++; // '['
+			if (regExp.charAt(pos) == '^') {
+				pos++;
+			}
+			if (regExp.charAt(pos) == ']') {
+				pos++;
+			}
+			while (regExp.charAt(pos) != ']') {
+				switch (regExp.charAt(pos)) {
+					case '\\':
+						pos += 2;
+						break;
+					case '[':
+						skipCharClass();
+						break;
+					default:
+						pos++;
+				}
+			}
+			pos++; // ']'
+		}
+
+		/**
+		 * Adds the first UTF-8 bytes of the given code point range, which are a contiguous range as well.
+		 */
+		private static void addFirstBytes(final boolean[] firstBytes, final int from, final int to) {
+			for (int b = firstByte(from), last = firstByte(to); b <= last; b++) {
+				firstBytes[b] = true;
+			}
+		}
+
+		private static int firstByte(final int codePoint) {
+			if (codePoint < 0x80)
+				return codePoint;
+			if (codePoint < 0x800)
+				return 0xC0 | codePoint >> 6;
+			if (codePoint < 0x10000)
+				return 0xE0 | codePoint >> 12;
+			return 0xF0 | codePoint >> 18;
+		}
+	}
+}
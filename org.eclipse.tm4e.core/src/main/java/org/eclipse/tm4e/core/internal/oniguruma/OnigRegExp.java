@@ -18,6 +18,8 @@
  */
 package org.eclipse.tm4e.core.internal.oniguruma;
 
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNullable;
+
 import java.lang.System.Logger;
 import java.lang.System.Logger.Level;
 import java.nio.charset.StandardCharsets;
@@ -28,7 +30,6 @@
 import org.joni.Matcher;
 import org.joni.Option;
 import org.joni.Regex;
-import org.joni.Region;
 import org.joni.Syntax;
 import org.joni.WarnCallback;
 import org.joni.exception.SyntaxException;
@@ -45,19 +46,38 @@ final class OnigRegExp {
 	 */
 	private static final WarnCallback LOGGER_WARN_CALLBACK = message -> LOGGER.log(Level.WARNING, message);
 
-	@Nullable
-	private OnigString lastSearchString;
+	/**
+	 * Matcher reused for all searches of a regular expression in the same subject string, together with the result of
+	 * the last search, i.e. the fact that the regular expression has no match at or after the last search position or
+	 * that its next match starts at the location of the result.
+	 * <p>
+	 * The contexts are stored in the searched {@link OnigString}, so they only live as long as the line being tokenized
+	 * and are shared by all scanners searching a regular expression with the same source, e.g. the patterns of a
+	 * repository rule included by several rules and injections.
+	 */
+	static final class SearchContext {
+		final Matcher matcher;
+		final OnigResult result;
+		int lastPosition = -1;
+		boolean lastMatched;
 
-	private int lastSearchPosition = -1;
+		SearchContext(final Matcher matcher) {
+			this.matcher = matcher;
+			result = new OnigResult(matcher, -1);
+		}
+	}
 
-	@Nullable
-	private OnigResult lastSearchResult;
+	private final String source;
 
 	private final Regex regex;
 
 	private final boolean hasGAnchor;
 
+	@Nullable
+	private final OnigPrefilter prefilter;
+
 	OnigRegExp(final String source) {
+		this.source = source;
 		hasGAnchor = source.contains("\\G");
 		final byte[] pattern = source.getBytes(StandardCharsets.UTF_8);
 		try {
@@ -66,37 +86,42 @@ final class OnigRegExp {
 		} catch (final SyntaxException ex) {
 			throw new TMException("Parsing regex pattern \"" + source + "\" failed with " + ex, ex);
 		}
+		prefilter = OnigPrefilter.of(source);
 	}
 
-	@Nullable
-	OnigResult search(final OnigString str, final int startPosition) {
-		if (hasGAnchor) {
-			// Should not use caching, because the regular expression
-			// targets the current search position (\G)
-			return search(str.bytesUTF8, startPosition, str.bytesCount);
-		}
-
-		final var lastSearchResult0 = this.lastSearchResult;
-		if (lastSearchString == str
-				&& lastSearchPosition <= startPosition
-				&& (lastSearchResult0 == null || lastSearchResult0.locationAt(0) >= startPosition)) {
-			return lastSearchResult0;
-		}
-
-		lastSearchString = str;
-		lastSearchPosition = startPosition;
-		lastSearchResult = search(str.bytesUTF8, startPosition, str.bytesCount);
-		return lastSearchResult;
+	/**
+	 * @return the number of capture groups of this regular expression
+	 */
+	int numberOfCaptures() {
+		return regex.numberOfCaptures();
 	}
 
+	/**
+	 * @return the result of the search, which is reused by subsequent searches of regular expressions with the same
+	 *         source in the same string and thus only valid until then
+	 */
 	@Nullable
-	private OnigResult search(final byte[] data, final int startPosition, final int end) {
-		final Matcher matcher = regex.matcher(data);
-		final int status = matcher.search(startPosition, end, Option.DEFAULT);
-		if (status != Matcher.FAILED) {
-			final Region region = matcher.getEagerRegion();
-			return new OnigResult(region, -1);
+	OnigResult search(final OnigString str, final int startPosition) {
+		final var searchContexts = str.getSearchContexts();
+		var ctx = searchContexts == null ? null : castNullable(searchContexts.get(source));
+		if (ctx == null) {
+			ctx = new SearchContext(regex.matcher(str.bytesUTF8));
+			if (searchContexts != null) {
+				searchContexts.put(source, ctx);
+			}
+		} else if (ctx.lastPosition == startPosition
+				// regular expressions with \G target the current search position, so only results of the same position apply
+				|| !hasGAnchor
+						&& ctx.lastPosition != -1
+						&& ctx.lastPosition <= startPosition
+						&& (!ctx.lastMatched || ctx.result.locationAt(0) >= startPosition)) {
+			return ctx.lastMatched ? ctx.result : null;
 		}
-		return null;
+
+		final var prefilter = this.prefilter;
+		ctx.lastMatched = (prefilter == null || prefilter.mayMatch(str.bytesUTF8, startPosition, str.bytesCount))
+				&& ctx.matcher.search(startPosition, str.bytesCount, Option.DEFAULT) != Matcher.FAILED;
+		ctx.lastPosition = startPosition;
+		return ctx.lastMatched ? ctx.result : null;
 	}
 }
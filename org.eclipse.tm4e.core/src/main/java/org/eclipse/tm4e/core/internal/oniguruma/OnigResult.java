@@ -16,6 +16,8 @@
  */
 package org.eclipse.tm4e.core.internal.oniguruma;
 
+import org.eclipse.jdt.annotation.Nullable;
+import org.joni.Matcher;
 import org.joni.Region;
 
 /**
@@ -25,10 +27,18 @@
 final class OnigResult {
 
 	private int indexInScanner;
+	private final Matcher matcher;
+
+	/**
+	 * the region of the matcher which is updated in place by each search, or <code>null</code> if the regular expression
+	 * has no capture groups
+	 */
+	@Nullable
 	private final Region region;
 
-	OnigResult(final Region region, final int indexInScanner) {
-		this.region = region;
+	OnigResult(final Matcher matcher, final int indexInScanner) {
+		this.matcher = matcher;
+		this.region = matcher.getRegion();
 		this.indexInScanner = indexInScanner;
 	}
 
@@ -41,19 +51,32 @@ void setIndex(final int index) {
 	}
 
 	int locationAt(final int index) {
-		final int bytes = region.getBeg(index);
+		final var region = this.region;
+		final int bytes = region == null ? matcher.getBegin() : region.getBeg(index);
 		if (bytes > 0) {
 			return bytes;
 		}
 		return 0;
 	}
 
+	/**
+	 * @return <code>true</code> if the capture group with the given index participated in the match
+	 */
+	boolean isCaptured(final int index) {
+		final var region = this.region;
+		return region == null ? index == 0 : region.getBeg(index) != -1;
+	}
+
 	int count() {
-		return region.getNumRegs();
+		final var region = this.region;
+		return region == null ? 1 : region.getNumRegs();
 	}
 
 	int lengthAt(final int index) {
-		final int bytes = region.getEnd(index) - region.getBeg(index);
+		final var region = this.region;
+		final int bytes = region == null
+				? matcher.getEnd() - matcher.getBegin()
+				: region.getEnd(index) - region.getBeg(index);
 		if (bytes > 0) {
 			return bytes;
 		}
@@ -26,10 +26,48 @@
  */
 public final class OnigScanner {
 
+	/**
+	 * System property which, if set to <code>true</code> when a scanner is created, makes the scanner search all its
+	 * regular expressions in one pass as a single combined regular expression instead of one after another
+	 */
+	public static final String COMBINED_SEARCH_PROPERTY = "tm4e.core.combinedScanner";
+
+	/**
+	 * System property which, if set to <code>true</code>, enables the collection of {@link #getPrefilterStatistics()}
+	 * from startup
+	 */
+	public static final String PREFILTER_STATISTICS_PROPERTY = "tm4e.core.regexPrefilterStatistics";
+
+	/**
+	 * @param checkedSearches number of regular expression searches checked by a prefilter
+	 * @param skippedSearches number of checked searches skipped because the prefilter ruled out a match
+	 */
+	public record PrefilterStatistics(long checkedSearches, long skippedSearches) {
+	}
+
+	/**
+	 * Enables or disables counting the searches checked by prefilters, which is disabled by default unless the system
+	 * property {@value #PREFILTER_STATISTICS_PROPERTY} is set.
+	 */
+	public static void setPrefilterStatisticsEnabled(final boolean enabled) {
+		OnigPrefilter.collectStatistics = enabled;
+	}
+
+	/**
+	 * @return the statistics of the prefilters of all scanners collected while statistics were enabled
+	 */
+	public static PrefilterStatistics getPrefilterStatistics() {
+		return new PrefilterStatistics(OnigPrefilter.CHECKED_SEARCHES.sum(), OnigPrefilter.SKIPPED_SEARCHES.sum());
+	}
+
 	private final OnigSearcher searcher;
 
 	public OnigScanner(final List<String> regexps) {
-		searcher = new OnigSearcher(regexps);
+		this(regexps, Boolean.getBoolean(COMBINED_SEARCH_PROPERTY));
+	}
+
+	OnigScanner(final List<String> regexps, final boolean combinedSearch) {
+		searcher = new OnigSearcher(regexps, combinedSearch);
 	}
 
 	@Nullable
@@ -40,4 +78,19 @@ public OnigScannerMatch findNextMatch(final OnigString source, final int startPo
 		}
 		return null;
 	}
+
+	/**
+	 * Allocation-free variant of {@link #findNextMatch(OnigString, int)} which stores the match in the given reusable
+	 * buffer.
+	 *
+	 * @return <code>true</code> if a match was found and written to <code>match</code>
+	 */
+	public boolean findNextMatch(final OnigString source, final int startPosition, final OnigMatchBuffer match) {
+		final OnigResult bestResult = searcher.search(source, startPosition);
+		if (bestResult != null) {
+			match.set(bestResult, source);
+			return true;
+		}
+		return false;
+	}
 }
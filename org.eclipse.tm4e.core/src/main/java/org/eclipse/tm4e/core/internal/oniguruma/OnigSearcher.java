@@ -17,8 +17,10 @@
 package org.eclipse.tm4e.core.internal.oniguruma;
 
 import java.util.List;
+import java.util.regex.Pattern;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.TMException;
 
 /**
  * @see <a href="https://github.com/atom/node-oniguruma/blob/master/src/onig-searcher.cc">
@@ -26,16 +28,90 @@
  */
 final class OnigSearcher {
 
+	/**
+	 * Constructs which behave differently when a regular expression becomes an alternative of a combined regular
+	 * expression: numbered backreferences and subexpression calls, conditionals, <code>\K</code> and extended mode,
+	 * where a trailing comment would swallow the closing parenthesis of the alternative.
+	 */
+	private static final Pattern NOT_COMBINABLE = Pattern.compile("\\\\(?:[1-9]|[kg]|K)|\\(\\?\\(|\\(\\?[imx]*-?[imx]*x");
+
 	private final List<OnigRegExp> regExps;
 
+	/**
+	 * All regular expressions combined into one alternation, which finds the leftmost match of all regular expressions
+	 * in a single pass, or <code>null</code> if the regular expressions are searched one after another
+	 */
+	@Nullable
+	private final OnigRegExp combinedRegExp;
+
+	/** the capture group of {@link #combinedRegExp} enclosing each regular expression */
+	private final int[] alternativeGroups;
+
 	OnigSearcher(final List<String> regExps) {
+		this(regExps, false);
+	}
+
+	/**
+	 * @param combine if <code>true</code> the regular expressions are searched as one combined regular expression where
+	 *            possible
+	 */
+	OnigSearcher(final List<String> regExps, final boolean combine) {
 		this.regExps = regExps.stream().map(OnigRegExp::new).toList();
+		alternativeGroups = new int[regExps.size()];
+		combinedRegExp = combine ? combine(regExps) : null;
+	}
+
+	@Nullable
+	private OnigRegExp combine(final List<String> regExps) {
+		if (regExps.size() < 2 || regExps.stream().anyMatch(regExp -> NOT_COMBINABLE.matcher(regExp).find()))
+			return null;
+
+		final var combined = new StringBuilder();
+		int group = 1;
+		for (int i = 0; i < regExps.size(); i++) {
+			if (i > 0) {
+				combined.append('|');
+			}
+			combined.append('(').append(regExps.get(i)).append(')');
+			alternativeGroups[i] = group;
+			group += 1 + this.regExps.get(i).numberOfCaptures();
+		}
+
+		try {
+			final var combinedRegExp = new OnigRegExp(combined.toString());
+			return combinedRegExp.numberOfCaptures() == group - 1 ? combinedRegExp : null;
+		} catch (final TMException ex) {
+			// e.g. named groups defined by multiple regular expressions
+			return null;
+		}
 	}
 
 	@Nullable
 	OnigResult search(final OnigString source, final int charOffset) {
 		final int byteOffset = source.getByteIndexOfChar(charOffset);
 
+		final var combinedRegExp = this.combinedRegExp;
+		if (combinedRegExp != null) {
+			/*
+			 * At the leftmost position where any of the regular expressions matches, the alternation tries the regular
+			 * expressions in order, so the first alternative that participated in the match denotes the regular
+			 * expression the sequential search would have found. This regular expression is searched again to obtain its
+			 * own capture groups, which is a single search for the already known location.
+			 */
+			final OnigResult combinedResult = combinedRegExp.search(source, byteOffset);
+			if (combinedResult == null)
+				return null;
+			for (int index = 0; index < alternativeGroups.length; index++) {
+				if (combinedResult.isCaptured(alternativeGroups[index])) {
+					final OnigResult result = regExps.get(index).search(source, byteOffset);
+					if (result == null)
+						break;
+					result.setIndex(index);
+					return result;
+				}
+			}
+		}
+
 		int bestLocation = 0;
 		OnigResult bestResult = null;
 		int index = 0;
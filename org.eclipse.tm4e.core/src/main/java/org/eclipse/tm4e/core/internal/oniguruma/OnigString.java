@@ -20,8 +20,11 @@
 
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.oniguruma.OnigRegExp.SearchContext;
 import org.jcodings.specific.UTF8Encoding;
 
 /**
@@ -160,6 +163,16 @@ public static OnigString of(final String str) {
 	public final int bytesCount;
 	final byte[] bytesUTF8;
 
+	/**
+	 * the thread which created this string and is the only one using {@link #searchContexts}, other threads search
+	 * without caching, so that concurrent searches do not alter each other's results
+	 */
+	private final Thread owner = Thread.currentThread();
+
+	/** the search contexts of the regular expressions searched in this string by their source */
+	@Nullable
+	private Map<String, SearchContext> searchContexts;
+
 	private OnigString(final String content, final byte[] bytesUTF8) {
 		this.content = content;
 		this.bytesUTF8 = bytesUTF8;
@@ -171,6 +184,20 @@ protected final String throwOutOfBoundsException(final String indexName, final i
 				indexName + " index " + index + " is out of range " + minIndex + ".." + maxIndex + " of " + this);
 	}
 
+	/**
+	 * @return the search contexts of this string or <code>null</code> if the current thread must not use them
+	 */
+	@Nullable
+	Map<String, SearchContext> getSearchContexts() {
+		if (Thread.currentThread() != owner)
+			return null;
+		var searchContexts = this.searchContexts;
+		if (searchContexts == null) {
+			searchContexts = this.searchContexts = new HashMap<>();
+		}
+		return searchContexts;
+	}
+
 	abstract int getByteIndexOfChar(int charIndex);
 
 	abstract int getCharIndexOfByte(int byteIndex);
@@ -12,60 +12,88 @@
  */
 package org.eclipse.tm4e.core.internal.parser;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.util.List;
 import java.util.Map;
 
-import org.eclipse.jdt.annotation.NonNull;
+import org.eclipse.jdt.annotation.Nullable;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 
-public class TMParserJSON implements TMParser {
+/**
+ * Streaming JSON parser that creates the {@link PropertySettable} objects directly while reading the document, i.e. without
+ * materializing an intermediate {@link Map}/{@link List} tree first.
+ */
+public final class TMParserJSON implements TMParser {
 
 	public static final TMParserJSON INSTANCE = new TMParserJSON();
 
-	private static final Gson LOADER = new Gson();
-
-	protected Map<String, Object> loadRaw(final Reader source) {
-		return LOADER.fromJson(source, Map.class);
-	}
-
 	@Override
-	public final <T extends PropertySettable<?>> T parse(final Reader source, final ObjectFactory<T> factory) throws Exception {
-		final Map<String, Object> rawRoot = loadRaw(source);
-		return transform(rawRoot, factory);
-	}
+	public <T extends PropertySettable<?>> T parse(final Reader source, final ObjectFactory<T> factory) throws Exception {
+		final var reader = new JsonReader(source);
+		reader.setLenient(true); // same as Gson#fromJson, e.g. tolerates comments in grammar files
 
-	private <T extends PropertySettable<?>> T transform(final Map<String, Object> rawRoot, final ObjectFactory<T> factory) {
 		final var root = factory.createRoot();
 		final var path = new TMParserPropertyPath();
 
-		for (final var e : rawRoot.entrySet()) {
-			addChild(factory, path, root, e.getKey(), e.getValue());
+		reader.beginObject();
+		while (reader.hasNext()) {
+			addChild(reader, factory, path, root, reader.nextName());
 		}
+		reader.endObject();
+
+		if (reader.peek() != JsonToken.END_DOCUMENT)
+			throw new JsonSyntaxException("JSON document was not fully consumed.");
 		return root;
 	}
 
 	/**
 	 * @param propertyId String | Integer
 	 */
-	private <T extends PropertySettable<?>> void addChild(final ObjectFactory<T> handler, final TMParserPropertyPath path,
-			final PropertySettable<?> parent, final Object propertyId, final Object rawChild) {
+	private <T extends PropertySettable<?>> void addChild(final JsonReader reader, final ObjectFactory<T> handler,
+			final TMParserPropertyPath path, final PropertySettable<?> parent, final Object propertyId) throws IOException {
 		path.add(propertyId);
-		if (rawChild instanceof final Map<?, ?> map) {
-			final var transformedChild = handler.createChild(path, Map.class);
-			for (final Map.Entry<@NonNull ?, @NonNull ?> e : map.entrySet()) {
-				addChild(handler, path, transformedChild, e.getKey(), e.getValue());
+		final JsonToken token = reader.peek();
+		switch (token) {
+			case BEGIN_OBJECT: {
+				final var transformedChild = handler.createChild(path, Map.class);
+				reader.beginObject();
+				while (reader.hasNext()) {
+					addChild(reader, handler, path, transformedChild, reader.nextName());
+				}
+				reader.endObject();
+				setProperty(parent, propertyId, transformedChild);
+				break;
 			}
-			setProperty(parent, propertyId, transformedChild);
-		} else if (rawChild instanceof final List list) {
-			final var transformedChild = handler.createChild(path, List.class);
-			for (int i = 0, l = list.size(); i < l; i++) {
-				addChild(handler, path, transformedChild, i, list.get(i));
+			case BEGIN_ARRAY: {
+				final var transformedChild = handler.createChild(path, List.class);
+				reader.beginArray();
+				for (int i = 0; reader.hasNext(); i++) {
+					addChild(reader, handler, path, transformedChild, i);
+				}
+				reader.endArray();
+				setProperty(parent, propertyId, transformedChild);
+				break;
 			}
-			setProperty(parent, propertyId, transformedChild);
-		} else {
-			setProperty(parent, propertyId, rawChild);
+			case STRING:
+				setProperty(parent, propertyId, reader.nextString());
+				break;
+			case NUMBER:
+				// Gson deserializes untyped JSON numbers as Double, keep it that way
+				setProperty(parent, propertyId, reader.nextDouble());
+				break;
+			case BOOLEAN:
+				setProperty(parent, propertyId, reader.nextBoolean());
+				break;
+			case NULL:
+				reader.nextNull();
+				setProperty(parent, propertyId, null);
+				break;
+			default:
+				throw new JsonSyntaxException("Unexpected " + token + " at " + reader.getPath());
 		}
 		path.removeLast();
 	}
@@ -74,7 +102,7 @@ private <T extends PropertySettable<?>> void addChild(final ObjectFactory<T> han
 	 * @param propertyId String | Integer
 	 */
 	@SuppressWarnings("unchecked")
-	private void setProperty(final PropertySettable<?> settable, final Object propertyId, final Object value) {
+	private void setProperty(final PropertySettable<?> settable, final Object propertyId, final @Nullable Object value) {
 		((PropertySettable<Object>) settable).setProperty(propertyId.toString(), value);
 	}
 }
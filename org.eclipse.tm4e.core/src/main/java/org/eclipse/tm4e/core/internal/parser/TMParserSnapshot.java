@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.parser;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNullable;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.parser.TMParser.ObjectFactory;
+
+/**
+ * Reads and writes the property tree produced by the other parsers in a compact binary format, which can be loaded
+ * without any text parsing.
+ * <p>
+ * Format: magic number, format version, table of all distinct strings (keys and values), followed by the tree, where
+ * each node is a type tag followed by its value. Strings are referenced by their index in the table, maps and lists
+ * are written as their size followed by their entries.
+ */
+public final class TMParserSnapshot {
+
+	public static final TMParserSnapshot INSTANCE = new TMParserSnapshot();
+
+	private static final int MAGIC = 0x544D4753; // "TMGS"
+	private static final int FORMAT_VERSION = 1;
+
+	private static final byte TAG_NULL = 0;
+	private static final byte TAG_STRING = 1;
+	private static final byte TAG_TRUE = 2;
+	private static final byte TAG_FALSE = 3;
+	private static final byte TAG_INTEGER = 4;
+	private static final byte TAG_LONG = 5;
+	private static final byte TAG_FLOAT = 6;
+	private static final byte TAG_DOUBLE = 7;
+	private static final byte TAG_DATE = 8;
+	private static final byte TAG_MAP = 9;
+	private static final byte TAG_LIST = 10;
+
+	private TMParserSnapshot() {
+	}
+
+	/**
+	 * @return <code>true</code> if the given stream starts with the header of a snapshot in the current format version
+	 */
+	public static boolean isCurrentFormat(final InputStream in) throws IOException {
+		final var data = new DataInputStream(in);
+		try {
+			return data.readInt() == MAGIC && data.readInt() == FORMAT_VERSION;
+		} catch (final EOFException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * @throws IOException if the snapshot is corrupt or was written in an unsupported format version
+	 */
+	public <T extends PropertySettable<?>> T parse(final ByteBuffer source, final ObjectFactory<T> factory) throws IOException {
+		try {
+			if (source.getInt() != MAGIC)
+				throw new IOException("Not a grammar snapshot");
+			final int version = source.getInt();
+			if (version != FORMAT_VERSION)
+				throw new IOException("Unsupported grammar snapshot format version " + version);
+
+			final var strings = new String[source.getInt()];
+			for (int i = 0; i < strings.length; i++) {
+				final var bytes = new byte[source.getInt()];
+				source.get(bytes);
+				strings[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+
+			if (source.get() != TAG_MAP)
+				throw new IOException("Grammar snapshot has no root object");
+			final var root = factory.createRoot();
+			readEntries(source, strings, factory, new TMParserPropertyPath(), root);
+			return root;
+		} catch (final BufferUnderflowException | IndexOutOfBoundsException | ClassCastException ex) {
+			throw new IOException("Corrupt grammar snapshot", ex);
+		}
+	}
+
+	private void readEntries(final ByteBuffer source, final String[] strings, final ObjectFactory<?> factory,
+			final TMParserPropertyPath path, final PropertySettable<?> parent) throws IOException {
+		final int size = source.getInt();
+		for (int i = 0; i < size; i++) {
+			final String key = strings[source.getInt()];
+			path.add(key);
+			setProperty(parent, key, readValue(source, strings, factory, path));
+			path.removeLast();
+		}
+	}
+
+	@Nullable
+	private Object readValue(final ByteBuffer source, final String[] strings, final ObjectFactory<?> factory,
+			final TMParserPropertyPath path) throws IOException {
+		final byte tag = source.get();
+		switch (tag) {
+			case TAG_NULL:
+				return null;
+			case TAG_STRING:
+				return strings[source.getInt()];
+			case TAG_TRUE:
+				return Boolean.TRUE;
+			case TAG_FALSE:
+				return Boolean.FALSE;
+			case TAG_INTEGER:
+				return source.getInt();
+			case TAG_LONG:
+				return source.getLong();
+			case TAG_FLOAT:
+				return source.getFloat();
+			case TAG_DOUBLE:
+				return source.getDouble();
+			case TAG_DATE:
+				return ZonedDateTime.parse(strings[source.getInt()]);
+			case TAG_MAP: {
+				final var map = factory.createChild(path, Map.class);
+				readEntries(source, strings, factory, path, map);
+				return map;
+			}
+			case TAG_LIST: {
+				final var list = factory.createChild(path, List.class);
+				final int size = source.getInt();
+				for (int i = 0; i < size; i++) {
+					path.add(i);
+					setProperty(list, Integer.toString(i), readValue(source, strings, factory, path));
+					path.removeLast();
+				}
+				return list;
+			}
+			default:
+				throw new IOException("Unknown type tag " + tag + " in grammar snapshot");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void setProperty(final PropertySettable<?> settable, final String name, final @Nullable Object value) {
+		((PropertySettable<@Nullable Object>) settable).setProperty(name, value);
+	}
+
+	/**
+	 * Writes the given property tree, which may only consist of maps with string keys, lists, strings, booleans, numbers
+	 * and dates as produced by the other parsers.
+	 *
+	 * @throws IllegalArgumentException if the tree contains values of other types
+	 */
+	public void write(final Map<String, ?> root, final OutputStream target) throws IOException {
+		final var stringIds = new HashMap<String, Integer>();
+		final var strings = new ArrayList<String>();
+		collectStrings(root, stringIds, strings);
+
+		final var out = new DataOutputStream(target);
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(strings.size());
+		for (final String string : strings) {
+			final var bytes = string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+		writeValue(root, stringIds, out);
+		out.flush();
+	}
+
+	private void collectStrings(final @Nullable Object value, final Map<String, Integer> stringIds, final List<String> strings) {
+		if (value instanceof final String string) {
+			if (!stringIds.containsKey(string)) {
+				stringIds.put(string, strings.size());
+				strings.add(string);
+			}
+		} else if (value instanceof final ZonedDateTime date) {
+			collectStrings(date.toString(), stringIds, strings);
+		} else if (value instanceof final Map<?, ?> map) {
+			for (final var entry : map.entrySet()) {
+				collectStrings(entry.getKey(), stringIds, strings);
+				collectStrings(entry.getValue(), stringIds, strings);
+			}
+		} else if (value instanceof final List<?> list) {
+			for (final Object element : list) {
+				collectStrings(element, stringIds, strings);
+			}
+		}
+	}
+
+	private void writeValue(final @Nullable Object value, final Map<String, Integer> stringIds, final DataOutputStream out)
+			throws IOException {
+		if (value == null) {
+			out.writeByte(TAG_NULL);
+		} else if (value instanceof final String string) {
+			out.writeByte(TAG_STRING);
+			out.writeInt(stringId(string, stringIds));
+		} else if (value instanceof final Boolean bool) {
+			out.writeByte(bool ? TAG_TRUE : TAG_FALSE);
+		} else if (value instanceof final Integer number) {
+			out.writeByte(TAG_INTEGER);
+			out.writeInt(number);
+		} else if (value instanceof final Long number) {
+			out.writeByte(TAG_LONG);
+			out.writeLong(number);
+		} else if (value instanceof final Float number) {
+			out.writeByte(TAG_FLOAT);
+			out.writeFloat(number);
+		} else if (value instanceof final Double number) {
+			out.writeByte(TAG_DOUBLE);
+			out.writeDouble(number);
+		} else if (value instanceof final ZonedDateTime date) {
+			out.writeByte(TAG_DATE);
+			out.writeInt(stringId(date.toString(), stringIds));
+		} else if (value instanceof final Map<?, ?> map) {
+			out.writeByte(TAG_MAP);
+			out.writeInt(map.size());
+			for (final var entry : map.entrySet()) {
+				if (!(entry.getKey() instanceof final String key))
+					throw new IllegalArgumentException("Unsupported key: " + entry.getKey());
+				out.writeInt(stringId(key, stringIds));
+				writeValue(entry.getValue(), stringIds, out);
+			}
+		} else if (value instanceof final List<?> list) {
+			out.writeByte(TAG_LIST);
+			out.writeInt(list.size());
+			for (final Object element : list) {
+				writeValue(element, stringIds, out);
+			}
+		} else
+			throw new IllegalArgumentException("Unsupported value of type " + value.getClass().getName() + ": " + value);
+	}
+
+	private int stringId(final String string, final Map<String, Integer> stringIds) {
+		final var id = castNullable(stringIds.get(string));
+		if (id == null)
+			throw new IllegalStateException("String was not collected: " + string);
+		return id;
+	}
+}
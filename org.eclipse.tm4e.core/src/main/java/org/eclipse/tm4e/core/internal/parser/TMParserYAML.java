@@ -13,27 +13,192 @@
 package org.eclipse.tm4e.core.internal.parser;
 
 import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
-import org.snakeyaml.engine.v2.api.Load;
+import org.eclipse.jdt.annotation.Nullable;
+import org.snakeyaml.engine.v2.api.ConstructNode;
 import org.snakeyaml.engine.v2.api.LoadSettings;
+import org.snakeyaml.engine.v2.api.lowlevel.Parse;
+import org.snakeyaml.engine.v2.events.AliasEvent;
+import org.snakeyaml.engine.v2.events.Event;
+import org.snakeyaml.engine.v2.events.NodeEvent;
+import org.snakeyaml.engine.v2.events.ScalarEvent;
+import org.snakeyaml.engine.v2.nodes.ScalarNode;
+import org.snakeyaml.engine.v2.nodes.Tag;
+import org.snakeyaml.engine.v2.resolver.ScalarResolver;
 
-public final class TMParserYAML extends TMParserJSON {
+/**
+ * Streaming YAML parser that creates the {@link PropertySettable} objects directly from the low-level parser events, i.e.
+ * without composing a node graph and constructing an intermediate {@link Map}/{@link List} tree first.
+ */
+public final class TMParserYAML implements TMParser {
 
 	public static final TMParserYAML INSTANCE = new TMParserYAML();
 
-	private static final LoadSettings LOAD_SETTINGS = LoadSettings.builder()
-			.setDefaultList(ArrayList::new)
-			.setDefaultMap(HashMap::new)
-			.setDefaultSet(HashSet::new)
-			.build();
+	private static final LoadSettings LOAD_SETTINGS = LoadSettings.builder().build();
+	private static final ScalarResolver SCALAR_RESOLVER = LOAD_SETTINGS.getSchema().getScalarResolver();
+	private static final Map<Tag, ConstructNode> SCALAR_CONSTRUCTORS = LOAD_SETTINGS.getSchema().getSchemaTagConstructors();
+
+	/**
+	 * Event stream that records the events of anchored nodes so they can be replayed when an alias is encountered.
+	 */
+	private static final class EventSource {
+		final Iterator<Event> events;
+		final Map<String, List<Event>> recordedAnchors;
+		final Deque<List<Event>> activeRecordings = new ArrayDeque<>();
+
+		EventSource(final Iterator<Event> events, final Map<String, List<Event>> recordedAnchors) {
+			this.events = events;
+			this.recordedAnchors = recordedAnchors;
+		}
+
+		Event next() {
+			if (!events.hasNext())
+				throw new NoSuchElementException("Unexpected end of YAML document");
+			final Event event = events.next();
+			for (final var recording : activeRecordings) {
+				recording.add(event);
+			}
+			return event;
+		}
+
+		void startRecording(final Event nodeStart) {
+			final var recording = new ArrayList<Event>();
+			recording.add(nodeStart);
+			activeRecordings.push(recording);
+		}
+
+		void stopRecording(final String anchor) {
+			recordedAnchors.put(anchor, activeRecordings.pop());
+		}
+	}
 
 	@Override
-	@SuppressWarnings({ "null", "unchecked" })
-	protected Map<String, Object> loadRaw(final Reader source) {
-		return (Map<String, Object>) new Load(LOAD_SETTINGS).loadFromReader(source);
+	public <T extends PropertySettable<?>> T parse(final Reader source, final ObjectFactory<T> factory) throws Exception {
+		final var events = new EventSource(new Parse(LOAD_SETTINGS).parseReader(source).iterator(), new HashMap<>());
+		final var root = factory.createRoot();
+		final var path = new TMParserPropertyPath();
+
+		Event event = events.next();
+		while (event.getEventId() == Event.ID.StreamStart || event.getEventId() == Event.ID.DocumentStart) {
+			event = events.next();
+		}
+		if (event.getEventId() != Event.ID.MappingStart)
+			throw new IllegalArgumentException("Expected a YAML mapping as document root but found: " + event);
+
+		addMappingEntries(events, factory, path, root);
+		return root;
+	}
+
+	private <T extends PropertySettable<?>> void addMappingEntries(final EventSource events, final ObjectFactory<T> handler,
+			final TMParserPropertyPath path, final PropertySettable<?> parent) {
+		for (Event event = events.next(); event.getEventId() != Event.ID.MappingEnd; event = events.next()) {
+			final Object key;
+			if (event instanceof final ScalarEvent keyEvent) {
+				key = String.valueOf(toScalarValue(keyEvent));
+				keyEvent.getAnchor().ifPresent(anchor -> events.recordedAnchors.put(anchor.getValue(), List.of(keyEvent)));
+			} else if (event instanceof final AliasEvent aliasEvent
+					&& getRecordedAnchor(events, aliasEvent).get(0) instanceof final ScalarEvent keyEvent) {
+				key = String.valueOf(toScalarValue(keyEvent));
+			} else
+				throw new IllegalArgumentException("Only scalar mapping keys are supported but found: " + event);
+			addChild(events, handler, path, parent, key, events.next());
+		}
+	}
+
+	private <T extends PropertySettable<?>> void addSequenceItems(final EventSource events, final ObjectFactory<T> handler,
+			final TMParserPropertyPath path, final PropertySettable<?> parent) {
+		int i = 0;
+		for (Event event = events.next(); event.getEventId() != Event.ID.SequenceEnd; event = events.next()) {
+			addChild(events, handler, path, parent, i++, event);
+		}
+	}
+
+	/**
+	 * @param propertyId String | Integer
+	 * @param event the first event of the child node
+	 */
+	private <T extends PropertySettable<?>> void addChild(final EventSource events, final ObjectFactory<T> handler,
+			final TMParserPropertyPath path, final PropertySettable<?> parent, final Object propertyId, final Event event) {
+
+		if (event instanceof final AliasEvent aliasEvent) {
+			final var replay = new EventSource(getRecordedAnchor(events, aliasEvent).iterator(), events.recordedAnchors);
+			addChild(replay, handler, path, parent, propertyId, replay.next());
+			return;
+		}
+
+		final @Nullable String anchor = event instanceof final NodeEvent nodeEvent
+				? nodeEvent.getAnchor().map(a -> a.getValue()).orElse(null)
+				: null;
+		if (anchor != null) {
+			events.startRecording(event);
+		}
+
+		path.add(propertyId);
+		switch (event.getEventId()) {
+			case MappingStart: {
+				final var transformedChild = handler.createChild(path, Map.class);
+				addMappingEntries(events, handler, path, transformedChild);
+				setProperty(parent, propertyId, transformedChild);
+				break;
+			}
+			case SequenceStart: {
+				final var transformedChild = handler.createChild(path, List.class);
+				addSequenceItems(events, handler, path, transformedChild);
+				setProperty(parent, propertyId, transformedChild);
+				break;
+			}
+			case Scalar:
+				setProperty(parent, propertyId, toScalarValue((ScalarEvent) event));
+				break;
+			default:
+				throw new IllegalArgumentException("Unexpected YAML event at " + path + ": " + event);
+		}
+		path.removeLast();
+
+		if (anchor != null) {
+			events.stopRecording(anchor);
+		}
+	}
+
+	private List<Event> getRecordedAnchor(final EventSource events, final AliasEvent aliasEvent) {
+		final var anchor = aliasEvent.getAlias().getValue();
+		final var recorded = events.recordedAnchors.get(anchor);
+		if (recorded == null)
+			throw new IllegalArgumentException("Found undefined alias: " + anchor);
+		return recorded;
+	}
+
+	/**
+	 * Resolves and constructs the value of a scalar the same way the YAML composer/constructor would.
+	 */
+	@SuppressWarnings("null")
+	private static @Nullable Object toScalarValue(final ScalarEvent event) {
+		final String value = event.getValue();
+		final var explicitTag = event.getTag();
+		final Tag tag = explicitTag.isEmpty() || "!".equals(explicitTag.get())
+				? SCALAR_RESOLVER.resolve(value, event.getImplicit().canOmitTagInPlainScalar())
+				: new Tag(explicitTag.get());
+		if (Tag.STR.equals(tag))
+			return value;
+		final ConstructNode constructor = SCALAR_CONSTRUCTORS.get(tag);
+		return constructor == null
+				? value
+				: constructor.construct(new ScalarNode(tag, value, event.getScalarStyle()));
+	}
+
+	/**
+	 * @param propertyId String | Integer
+	 */
+	@SuppressWarnings("unchecked")
+	private void setProperty(final PropertySettable<?> settable, final Object propertyId, final @Nullable Object value) {
+		((PropertySettable<Object>) settable).setProperty(propertyId.toString(), value);
 	}
 }
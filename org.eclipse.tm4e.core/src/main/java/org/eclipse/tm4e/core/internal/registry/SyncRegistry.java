@@ -17,9 +17,9 @@
 package org.eclipse.tm4e.core.internal.registry;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.grammar.IGrammar;
@@ -31,16 +31,18 @@
 import org.eclipse.tm4e.core.internal.theme.Theme;
 
 /**
+ * Thread-safe registry of raw grammars and the grammars created from them.
+ *
  * @see <a href=
  *      "https://github.com/microsoft/vscode-textmate/blob/88baacf1a6637c5ec08dce18cea518d935fcf0a0/src/registry.ts">
  *      github.com/microsoft/vscode-textmate/blob/main/src/registry.ts</a>
  */
 public final class SyncRegistry implements IGrammarRepository, IThemeProvider {
 
-	private final Map<String, Grammar> _grammars = new HashMap<>();
-	private final Map<String, @Nullable IRawGrammar> _rawGrammars = new HashMap<>();
-	private final Map<String, Collection<String>> _injectionGrammars = new HashMap<>();
-	private Theme _theme;
+	private final Map<String, Grammar> _grammars = new ConcurrentHashMap<>();
+	private final Map<String, IRawGrammar> _rawGrammars = new ConcurrentHashMap<>();
+	private final Map<String, Collection<String>> _injectionGrammars = new ConcurrentHashMap<>();
+	private volatile Theme _theme;
 
 	public SyncRegistry(final Theme theme) {
 		this._theme = theme;
@@ -111,21 +113,25 @@ public IGrammar grammarForScopeName(
 			@Nullable final Map<String, Integer> embeddedLanguages,
 			@Nullable final Map<String, Integer> tokenTypes,
 			@Nullable final BalancedBracketSelectors balancedBracketSelectors) {
-		if (!this._grammars.containsKey(scopeName)) {
-			final var rawGrammar = lookup(scopeName);
-			if (rawGrammar == null) {
-				return null;
-			}
-			this._grammars.put(scopeName, new Grammar(
-					scopeName,
-					rawGrammar,
-					initialLanguage,
-					embeddedLanguages,
-					tokenTypes,
-					balancedBracketSelectors,
-					this,
-					this));
+		final var grammar = this._grammars.get(scopeName);
+		if (grammar != null)
+			return grammar;
+
+		final var rawGrammar = lookup(scopeName);
+		if (rawGrammar == null) {
+			return null;
 		}
-		return this._grammars.get(scopeName);
+		final var newGrammar = new Grammar(
+				scopeName,
+				rawGrammar,
+				initialLanguage,
+				embeddedLanguages,
+				tokenTypes,
+				balancedBracketSelectors,
+				this,
+				this);
+		// if another thread created the grammar in the meantime, use that one so all callers share the same instance
+		final var existingGrammar = this._grammars.putIfAbsent(scopeName, newGrammar);
+		return existingGrammar == null ? newGrammar : existingGrammar;
 	}
 }
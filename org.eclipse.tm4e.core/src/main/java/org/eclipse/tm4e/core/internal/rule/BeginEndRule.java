@@ -42,7 +42,7 @@ public final class BeginEndRule extends Rule {
 	final RuleId[] patterns;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledPatterns;
+	private volatile RegExpSourceList cachedCompiledPatterns;
 
 	BeginEndRule(final RuleId id, @Nullable final String name, @Nullable final String contentName, final String begin,
 			final List<@Nullable CaptureRule> beginCaptures, @Nullable final String end,
@@ -78,16 +78,32 @@ public void collectPatterns(final IRuleRegistry grammar, final RegExpSourceList
 
 	@Override
 	public CompiledRule compile(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
-		return getCachedCompiledPatterns(grammar, endRegexSource).compile();
+		final var cachedCompiledPatterns = getCachedCompiledPatterns(grammar);
+		if (this.endHasBackReferences) {
+			// the shared pattern list is modified according to the given end pattern, thus it must not be used concurrently
+			synchronized (cachedCompiledPatterns) {
+				setEndRegexSource(cachedCompiledPatterns, endRegexSource);
+				return cachedCompiledPatterns.compile();
+			}
+		}
+		return cachedCompiledPatterns.compile();
 	}
 
 	@Override
 	public CompiledRule compileAG(final IRuleRegistry grammar, @Nullable final String endRegexSource, final boolean allowA,
 			final boolean allowG) {
-		return getCachedCompiledPatterns(grammar, endRegexSource).compileAG(allowA, allowG);
+		final var cachedCompiledPatterns = getCachedCompiledPatterns(grammar);
+		if (this.endHasBackReferences) {
+			// the shared pattern list is modified according to the given end pattern, thus it must not be used concurrently
+			synchronized (cachedCompiledPatterns) {
+				setEndRegexSource(cachedCompiledPatterns, endRegexSource);
+				return cachedCompiledPatterns.compileAG(allowA, allowG);
+			}
+		}
+		return cachedCompiledPatterns.compileAG(allowA, allowG);
 	}
 
-	private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar, @Nullable final String endRegexSource) {
+	private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar) {
 		var cachedCompiledPatterns = this.cachedCompiledPatterns;
 		if (cachedCompiledPatterns == null) {
 			cachedCompiledPatterns = new RegExpSourceList();
@@ -104,13 +120,16 @@ private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar,
 			}
 			this.cachedCompiledPatterns = cachedCompiledPatterns;
 		}
-		if (this.endHasBackReferences && endRegexSource != null) {
+		return cachedCompiledPatterns;
+	}
+
+	private void setEndRegexSource(final RegExpSourceList cachedCompiledPatterns, @Nullable final String endRegexSource) {
+		if (endRegexSource != null) {
 			if (this.applyEndPatternLast) {
 				cachedCompiledPatterns.setSource(cachedCompiledPatterns.length() - 1, endRegexSource);
 			} else {
 				cachedCompiledPatterns.setSource(0, endRegexSource);
 			}
 		}
-		return cachedCompiledPatterns;
 	}
 }
@@ -39,10 +39,10 @@ public final class BeginWhileRule extends Rule {
 	final RuleId[] patterns;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledPatterns;
+	private volatile RegExpSourceList cachedCompiledPatterns;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledWhilePatterns;
+	private volatile RegExpSourceList cachedCompiledWhilePatterns;
 
 	BeginWhileRule(final RuleId id, @Nullable final String name, @Nullable final String contentName,
 			final String begin, final List<@Nullable CaptureRule> beginCaptures,
@@ -82,35 +82,48 @@ private RegExpSourceList getCachedCompiledPatterns(final IRuleRegistry grammar)
 		var cachedCompiledPatterns = this.cachedCompiledPatterns;
 		if (cachedCompiledPatterns == null) {
 			cachedCompiledPatterns = new RegExpSourceList();
-			this.cachedCompiledPatterns = cachedCompiledPatterns;
 
 			for (final var pattern : this.patterns) {
 				final var rule = grammar.getRule(pattern);
 				rule.collectPatterns(grammar, cachedCompiledPatterns);
 			}
+			this.cachedCompiledPatterns = cachedCompiledPatterns;
 		}
 		return cachedCompiledPatterns;
 	}
 
 	public CompiledRule compileWhile(@Nullable final String endRegexSource) {
-		return getCachedCompiledWhilePatterns(endRegexSource).compile();
+		final var cachedCompiledWhilePatterns = getCachedCompiledWhilePatterns();
+		if (whileHasBackReferences) {
+			// the shared pattern list is modified according to the given while pattern, thus it must not be used concurrently
+			synchronized (cachedCompiledWhilePatterns) {
+				cachedCompiledWhilePatterns.setSource(0, defaultIfNull(endRegexSource, "\uFFFF"));
+				return cachedCompiledWhilePatterns.compile();
+			}
+		}
+		return cachedCompiledWhilePatterns.compile();
 	}
 
 	public CompiledRule compileWhileAG(@Nullable final String endRegexSource,
 			final boolean allowA, final boolean allowG) {
-		return getCachedCompiledWhilePatterns(endRegexSource).compileAG(allowA, allowG);
+		final var cachedCompiledWhilePatterns = getCachedCompiledWhilePatterns();
+		if (whileHasBackReferences) {
+			// the shared pattern list is modified according to the given while pattern, thus it must not be used concurrently
+			synchronized (cachedCompiledWhilePatterns) {
+				cachedCompiledWhilePatterns.setSource(0, defaultIfNull(endRegexSource, "\uFFFF"));
+				return cachedCompiledWhilePatterns.compileAG(allowA, allowG);
+			}
+		}
+		return cachedCompiledWhilePatterns.compileAG(allowA, allowG);
 	}
 
-	private RegExpSourceList getCachedCompiledWhilePatterns(@Nullable final String endRegexSource) {
+	private RegExpSourceList getCachedCompiledWhilePatterns() {
 		var cachedCompiledWhilePatterns = this.cachedCompiledWhilePatterns;
 		if (cachedCompiledWhilePatterns == null) {
 			cachedCompiledWhilePatterns = new RegExpSourceList();
 			cachedCompiledWhilePatterns.add(this.whileHasBackReferences ? this._while.clone() : this._while);
 			this.cachedCompiledWhilePatterns = cachedCompiledWhilePatterns;
 		}
-		if (whileHasBackReferences) {
-			cachedCompiledWhilePatterns.setSource(0, defaultIfNull(endRegexSource, "\uFFFF"));
-		}
 		return cachedCompiledWhilePatterns;
 	}
 }
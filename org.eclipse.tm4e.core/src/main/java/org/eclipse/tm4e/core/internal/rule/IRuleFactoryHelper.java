@@ -16,6 +16,9 @@
  */
 package org.eclipse.tm4e.core.internal.rule;
 
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.internal.grammar.raw.IRawRule;
+
 /**
  * @see <a href=
  *      "https://github.com/microsoft/vscode-textmate/blob/88baacf1a6637c5ec08dce18cea518d935fcf0a0/src/rule.ts#L40">
@@ -23,4 +26,13 @@
  */
 public interface IRuleFactoryHelper extends IRuleRegistry, IGrammarRegistry {
 
+	/**
+	 * Raw rules are shared between grammars and thus don't hold their compiled rule id themselves.
+	 *
+	 * @return the id of the rule compiled from the given raw rule or <code>null</code> if not compiled yet
+	 */
+	@Nullable
+	RuleId getCompiledRuleId(IRawRule rawRule);
+
+	void setCompiledRuleId(IRawRule rawRule, RuleId ruleId);
 }
@@ -23,13 +23,13 @@
  *      "https://github.com/microsoft/vscode-textmate/blob/88baacf1a6637c5ec08dce18cea518d935fcf0a0/src/rule.ts#L166">
  *      github.com/microsoft/vscode-textmate/blob/main/src/rule.ts</a>
  */
-final class IncludeOnlyRule extends Rule {
+public final class IncludeOnlyRule extends Rule {
 
 	final boolean hasMissingPatterns;
 	final RuleId[] patterns;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledPatterns;
+	private volatile RegExpSourceList cachedCompiledPatterns;
 
 	IncludeOnlyRule(final RuleId id, @Nullable final String name, @Nullable final String contentName,
 			final CompilePatternsResult patterns) {
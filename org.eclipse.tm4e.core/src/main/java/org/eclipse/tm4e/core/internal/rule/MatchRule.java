@@ -31,7 +31,7 @@ public final class MatchRule extends Rule {
 	public final List<@Nullable CaptureRule> captures;
 
 	@Nullable
-	private RegExpSourceList cachedCompiledPatterns;
+	private volatile RegExpSourceList cachedCompiledPatterns;
 
 	MatchRule(final RuleId id, @Nullable final String name, final String match, final List<@Nullable CaptureRule> captures) {
 		super(id, name, null);
@@ -32,6 +32,11 @@ final class RegExpSourceList {
 	private final List<RegExpSource> items = new ArrayList<>();
 	private boolean hasAnchors;
 
+	/*
+	 * The compiled rules are immutable and safely published via their final fields, so the caches are filled lazily
+	 * without locking. Concurrent readers may compile the same rule twice but never observe a partially constructed one.
+	 * Lists modified via setSource must be guarded by the caller, see BeginEndRule and BeginWhileRule.
+	 */
 	@Nullable
 	private CompiledRule cached;
 	private final CompiledRule[][] anchorCache = new CompiledRule[2][2];
@@ -47,9 +47,9 @@ private static CaptureRule createCaptureRule(final IRuleFactoryHelper helper, @N
 	}
 
 	public static RuleId getCompiledRuleId(final IRawRule desc, final IRuleFactoryHelper helper, final IRawRepository repository) {
-		if (desc.getId() == null) {
+		if (helper.getCompiledRuleId(desc) == null) {
 			helper.registerRule(ruleId -> {
-				desc.setId(ruleId);
+				helper.setCompiledRuleId(desc, ruleId);
 
 				final var ruleMatch = desc.getMatch();
 				if (ruleMatch != null) {
@@ -99,7 +99,7 @@ begin, _compileCaptures(defaultIfNull(desc.getBeginCaptures(), desc.getCaptures(
 						_compilePatterns(desc.getPatterns(), helper, repository));
 			});
 		}
-		return castNonNull(desc.getId());
+		return castNonNull(helper.getCompiledRuleId(desc));
 	}
 
 	private static List<@Nullable CaptureRule> _compileCaptures(@Nullable final IRawCaptures captures, final IRuleFactoryHelper helper,
@@ -16,10 +16,11 @@
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.internal.grammar.ScopeStack;
@@ -44,7 +45,29 @@ public static Theme createFromParsedTheme(final List<ParsedThemeRule> source, @N
 		return resolveParsedThemeRules(source, colorMap);
 	}
 
-	private final Map<String /* scopeName */, List<ThemeTrieElementRule>> _cachedMatchRoot = new HashMap<>();
+	/**
+	 * Match results of scopes depending on their parent scopes, keyed by the identity of the parent scope path.
+	 * <p>
+	 * Scope paths of line states are interned, so the same parent instance is pushed the same scopes over and over again.
+	 */
+	private record ParentScopesMatchKey(@Nullable ScopeStack parent, String scopeName) {
+	}
+
+	static final String MATCH_CACHE_SYSTEM_PROPERTY = "tm4e.core.themeMatchCache";
+
+	/** max number of entries of {@link #_cachedParentScopesMatches} before it is cleared */
+	private static final int MAX_CACHED_PARENT_SCOPES_MATCHES = 10_000;
+
+	/** marks cached lookups without a matching rule */
+	private static final ThemeTrieElementRule NO_MATCHING_RULE = new ThemeTrieElementRule(0, null, FontStyle.NotSet, 0, 0);
+
+	private final Map<String /* scopeName */, List<ThemeTrieElementRule>> _cachedMatchRoot = new ConcurrentHashMap<>();
+	private final @Nullable Map<ParentScopesMatchKey, ThemeTrieElementRule> _cachedParentScopesMatches = Boolean
+			.parseBoolean(System.getProperty(MATCH_CACHE_SYSTEM_PROPERTY, "true"))
+					? new ConcurrentHashMap<>()
+					: null;
+	private final LongAdder _parentScopesMatchCacheHits = new LongAdder();
+	private final LongAdder _parentScopesMatchCacheMisses = new LongAdder();
 
 	private final ColorMap _colorMap;
 	private final StyleAttributes _defaults;
@@ -73,16 +96,53 @@ public StyleAttributes match(@Nullable final ScopeStack scopePath) {
 
 		final var matchingTrieElements = this._cachedMatchRoot.computeIfAbsent(scopeName, _root::match);
 
+		final ThemeTrieElementRule effectiveRule;
+		if (matchingTrieElements.isEmpty() || matchingTrieElements.get(0).parentScopes == null) {
+			// the result does not depend on the parent scopes
+			effectiveRule = matchingTrieElements.isEmpty() ? null : matchingTrieElements.get(0);
+		} else {
+			effectiveRule = _matchParentScopes(scopePath, matchingTrieElements);
+		}
+		return effectiveRule == null ? null : effectiveRule.getStyleAttributes();
+	}
+
+	@Nullable
+	private ThemeTrieElementRule _matchParentScopes(final ScopeStack scopePath, final List<ThemeTrieElementRule> matchingTrieElements) {
+		final var cache = this._cachedParentScopesMatches;
+		if (cache == null) {
+			return findFirstMatching(matchingTrieElements, v -> _scopePathMatchesParentScopes(scopePath.parent, v.parentScopes));
+		}
+
+		final var key = new ParentScopesMatchKey(scopePath.parent, scopePath.scopeName);
+		final var cachedRule = cache.get(key);
+		if (cachedRule != null) {
+			this._parentScopesMatchCacheHits.increment();
+			return cachedRule == NO_MATCHING_RULE ? null : cachedRule;
+		}
+
+		this._parentScopesMatchCacheMisses.increment();
 		final var effectiveRule = findFirstMatching(matchingTrieElements,
 				v -> _scopePathMatchesParentScopes(scopePath.parent, v.parentScopes));
-		if (effectiveRule == null) {
-			return null;
+		if (cache.size() >= MAX_CACHED_PARENT_SCOPES_MATCHES) {
+			cache.clear();
 		}
+		cache.put(key, effectiveRule == null ? NO_MATCHING_RULE : effectiveRule);
+		return effectiveRule;
+	}
 
-		return StyleAttributes.of(
-				effectiveRule.fontStyle,
-				effectiveRule.foreground,
-				effectiveRule.background);
+	/**
+	 * @return number of {@link #match(ScopeStack)} calls of scopes with parent scoped theme rules that were answered from
+	 *         the cache
+	 */
+	public long getMatchCacheHits() {
+		return this._parentScopesMatchCacheHits.sum();
+	}
+
+	/**
+	 * @return number of {@link #match(ScopeStack)} calls of scopes with parent scoped theme rules that were not cached yet
+	 */
+	public long getMatchCacheMisses() {
+		return this._parentScopesMatchCacheMisses.sum();
 	}
 
 	private boolean _scopePathMatchesParentScopes(@Nullable ScopeStack scopePath, @Nullable final List<String> parentScopeNames) {
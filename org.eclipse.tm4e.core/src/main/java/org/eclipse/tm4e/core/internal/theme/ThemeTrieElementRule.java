@@ -33,6 +33,10 @@ public class ThemeTrieElementRule {
 	public int foreground;
 	public int background;
 
+	/** lazily created by {@link #getStyleAttributes()} once the theme is built and the rule no longer changes */
+	@Nullable
+	private StyleAttributes styleAttributes;
+
 	public ThemeTrieElementRule(final int scopeDepth, @Nullable final List<String> parentScopes, final int fontStyle, final int foreground,
 			final int background) {
 		this.scopeDepth = scopeDepth;
@@ -42,6 +46,17 @@ public ThemeTrieElementRule(final int scopeDepth, @Nullable final List<String> p
 		this.background = background;
 	}
 
+	/**
+	 * @return the style attributes of this rule, the same instance on every call
+	 */
+	public StyleAttributes getStyleAttributes() {
+		var styleAttributes = this.styleAttributes;
+		if (styleAttributes == null) {
+			styleAttributes = this.styleAttributes = StyleAttributes.of(fontStyle, foreground, background);
+		}
+		return styleAttributes;
+	}
+
 	@Override
 	public ThemeTrieElementRule clone() {
 		return new ThemeTrieElementRule(this.scopeDepth, this.parentScopes, this.fontStyle, this.foreground, this.background);
@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.utils;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNullable;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * Thread-safe interner returning a canonical instance for equal objects. The canonical instances are only weakly
+ * referenced, i.e. they are garbage collected once no longer used elsewhere.
+ * <p>
+ * Equality is defined by the given functions instead of {@link Object#equals(Object)}, so that objects can be interned
+ * by a cheap shallow comparison, e.g. of linked list nodes whose parents are already interned.
+ *
+ * @param <T> the type of the interned objects
+ */
+public final class WeakInterner<T> {
+
+	/**
+	 * Common interface of the map entries and of the keys used to look them up.
+	 */
+	private interface Key<T> {
+		@Nullable
+		T referent();
+	}
+
+	private final class Entry extends WeakReference<T> implements Key<T> {
+		final int hash;
+
+		Entry(final T referent, final int hash, final ReferenceQueue<? super T> queue) {
+			super(referent, queue);
+			this.hash = hash;
+		}
+
+		@Override
+		public @Nullable T referent() {
+			return get();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final @Nullable Object obj) {
+			// cleared entries are only equal to themselves, so that they can be removed
+			return obj == this || keyEquals(this, obj);
+		}
+	}
+
+	/**
+	 * Strongly referencing key used to look up an existing entry without creating a {@link WeakReference}, which are
+	 * comparatively expensive for the garbage collector.
+	 */
+	private final class Lookup implements Key<T> {
+		final T referent;
+		final int hash;
+
+		Lookup(final T referent, final int hash) {
+			this.referent = referent;
+			this.hash = hash;
+		}
+
+		@Override
+		public T referent() {
+			return referent;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(final @Nullable Object obj) {
+			return obj == this || keyEquals(this, obj);
+		}
+	}
+
+	private final ConcurrentHashMap<Key<T>, Entry> entries = new ConcurrentHashMap<>();
+	private final ReferenceQueue<T> staleEntries = new ReferenceQueue<>();
+	private final ToIntFunction<T> hashFunction;
+	private final BiPredicate<T, T> equality;
+
+	/**
+	 * @param hashFunction computes the hash of an object consistent with the given equality
+	 * @param equality determines if two objects are equal
+	 */
+	public WeakInterner(final ToIntFunction<T> hashFunction, final BiPredicate<T, T> equality) {
+		this.hashFunction = hashFunction;
+		this.equality = equality;
+	}
+
+	/**
+	 * @return the canonical instance equal to the given object, which is the given object itself if no equal object was
+	 *         interned before
+	 */
+	public T intern(final T obj) {
+		expungeStaleEntries();
+
+		final int hash = hashFunction.applyAsInt(obj);
+		final var existingEntry = castNullable(entries.get(new Lookup(obj, hash)));
+		if (existingEntry != null) {
+			final T canonical = existingEntry.get();
+			if (canonical != null)
+				return canonical;
+		}
+
+		final var entry = new Entry(obj, hash, staleEntries);
+		while (true) {
+			final var existing = castNullable(entries.putIfAbsent(entry, entry));
+			if (existing == null)
+				return obj;
+			final T canonical = existing.get();
+			if (canonical != null)
+				return canonical;
+			// the canonical instance was garbage collected in the meantime
+			entries.remove(existing, existing);
+		}
+	}
+
+	/**
+	 * @return the number of interned objects, including objects that were garbage collected but not yet removed
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean keyEquals(final Key<T> key, final @Nullable Object obj) {
+		if (!(obj instanceof Key) || key.hashCode() != obj.hashCode())
+			return false;
+		final var referent = key.referent();
+		final var otherReferent = ((Key<T>) obj).referent();
+		return referent != null && otherReferent != null && equality.test(referent, otherReferent);
+	}
+
+	private void expungeStaleEntries() {
+		Object staleEntry;
+		while ((staleEntry = staleEntries.poll()) != null) {
+			entries.remove(staleEntry, staleEntry);
+		}
+	}
+}
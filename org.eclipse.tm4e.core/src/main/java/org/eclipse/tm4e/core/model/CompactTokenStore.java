@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.model;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import org.eclipse.tm4e.core.model.TMModel.LineTokens;
+
+/**
+ * Stores the tokens of the lines of a {@link TMModel} in shared primitive arrays instead of {@link TMToken} instances.
+ * <p>
+ * Each token occupies two ints, its start index and the id of its type in a type table. The tokens of a line are
+ * appended to the current chunk of 16K ints and exposed as a {@link List} view on the chunk, so inserting or removing
+ * lines does not move any token data. Chunks are never modified once written, so views remain valid when the tokens of
+ * their line are replaced. Chunks only containing tokens of replaced lines become garbage, chunks partially containing
+ * such tokens are reclaimed by compaction.
+ * <p>
+ * Not thread-safe, all methods except the ones of the returned views must be called by the tokenizer thread.
+ */
+final class CompactTokenStore {
+
+	/** number of ints of a chunk */
+	static final int CHUNK_SIZE = 16 * 1024;
+
+	/** lines with more tokens get a dedicated array */
+	private static final int MAX_TOKENS_PER_CHUNKED_LINE = CHUNK_SIZE / 2 / 8;
+
+	/** number of ints that must have been appended before {@link #isCompactionDue()} reports <code>true</code> */
+	private static final int MIN_INTS_BEFORE_COMPACTION = 4 * CHUNK_SIZE;
+
+	/**
+	 * Read-only view on the tokens of one line.
+	 */
+	final class Tokens extends AbstractList<TMToken> implements RandomAccess {
+		final int[] data;
+		final int offset;
+		final int size;
+
+		Tokens(final int[] data, final int offset, final int size) {
+			this.data = data;
+			this.offset = offset;
+			this.size = size;
+		}
+
+		@Override
+		public TMToken get(final int index) {
+			if (index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			final int i = offset + 2 * index;
+			return new TMToken(data[i], types[data[i + 1]]);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		CompactTokenStore store() {
+			return CompactTokenStore.this;
+		}
+	}
+
+	private final Map<String, Integer> typeIds = new HashMap<>();
+
+	/** written by the tokenizer thread before the views referencing the types are published */
+	private volatile String[] types = new String[64];
+	private int typeCount;
+
+	private int[] chunk = new int[0];
+	private int chunkUsed;
+
+	/** total size of the arrays allocated since the last compaction that copied the tokens */
+	private long allocatedInts;
+	private long intsAppendedSinceCompaction;
+	private long liveIntsAfterCompaction;
+
+	/**
+	 * @return a view on the given tokens copied to this store
+	 */
+	List<TMToken> store(final List<TMToken> tokens) {
+		final int size = tokens.size();
+		final int[] data = allocate(size);
+		final int offset = data == chunk ? chunkUsed - 2 * size : 0;
+		int i = offset;
+		for (final TMToken token : tokens) {
+			data[i++] = token.startIndex;
+			data[i++] = typeId(token.type);
+		}
+		return new Tokens(data, offset, size);
+	}
+
+	/**
+	 * @return the array to write the given number of tokens to, either {@link #chunk} or a dedicated array
+	 */
+	private int[] allocate(final int tokenCount) {
+		final int ints = 2 * tokenCount;
+		intsAppendedSinceCompaction += ints;
+		if (tokenCount > MAX_TOKENS_PER_CHUNKED_LINE) {
+			allocatedInts += ints;
+			return new int[ints];
+		}
+		if (chunkUsed + ints > chunk.length) {
+			allocatedInts += CHUNK_SIZE;
+			chunk = new int[CHUNK_SIZE];
+			chunkUsed = 0;
+		}
+		chunkUsed += ints;
+		return chunk;
+	}
+
+	private int typeId(final String type) {
+		final var id = castNullable(typeIds.get(type));
+		if (id != null)
+			return id;
+
+		var types = this.types;
+		if (typeCount == types.length) {
+			types = Arrays.copyOf(types, typeCount * 2);
+		}
+		types[typeCount] = type;
+		this.types = types;
+		typeIds.put(type, typeCount);
+		return typeCount++;
+	}
+
+	/**
+	 * @return <code>true</code> if more tokens were stored since the last compaction than were live after it
+	 */
+	boolean isCompactionDue() {
+		return intsAppendedSinceCompaction > Math.max(MIN_INTS_BEFORE_COMPACTION, liveIntsAfterCompaction);
+	}
+
+	/**
+	 * Copies the tokens of the given lines stored by this store to new chunks if more than half of the allocated space is
+	 * occupied by tokens of replaced lines, so that the chunks also containing such tokens can be garbage collected.
+	 *
+	 * @return <code>true</code> if the tokens were copied
+	 */
+	boolean compact(final List<LineTokens> lines) {
+		long liveInts = 0;
+		for (final LineTokens line : lines) {
+			if (line.tokens instanceof final Tokens tokens && tokens.store() == this) {
+				liveInts += 2 * tokens.size;
+			}
+		}
+		liveIntsAfterCompaction = liveInts;
+		intsAppendedSinceCompaction = 0;
+		if (allocatedInts <= 2 * liveInts)
+			return false;
+
+		chunk = new int[0];
+		chunkUsed = 0;
+		allocatedInts = 0;
+		for (final LineTokens line : lines) {
+			if (line.tokens instanceof final Tokens tokens && tokens.store() == this) {
+				final int ints = 2 * tokens.size;
+				final int[] data = allocate(tokens.size);
+				final int offset = data == chunk ? chunkUsed - ints : 0;
+				System.arraycopy(tokens.data, tokens.offset, data, offset, ints);
+				line.tokens = new Tokens(data, offset, tokens.size);
+			}
+		}
+		intsAppendedSinceCompaction = 0;
+		return true;
+	}
+}
@@ -64,4 +64,12 @@ enum BackgroundTokenizationState {
 	 */
 	@Nullable
 	List<TMToken> getLineTokens(int lineIndex);
+
+	/**
+	 * Informs the model about the lines currently visible to the user. Lines of these ranges are (re)tokenized before any
+	 * other out-of-date lines, starting with the nearest known state above the range.
+	 *
+	 * @param ranges the visible line ranges (1-based line numbers), an empty list if no lines are visible
+	 */
+	void setVisibleLineRanges(List<Range> ranges);
 }
@@ -20,15 +20,27 @@
 import java.lang.System.Logger;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.grammar.IToken;
+import org.eclipse.tm4e.core.grammar.ITokenizeLineResult;
 import org.eclipse.tm4e.core.internal.grammar.StateStack;
 import org.eclipse.tm4e.core.internal.utils.MoreCollections;
 import org.eclipse.tm4e.core.internal.utils.StringUtils;
@@ -53,14 +65,31 @@ private static final class Edit {
 		final int replacedCount;
 		final int replacementCount;
 
+		/** tokens of lines restored from a {@link TokensCacheFile}, if not null the edit does not change the line count */
+		final @Nullable List<@Nullable LineTokens> restoredLines;
+		final long @Nullable [] restoredLineHashes;
+
 		public Edit(final int lineIndex, final int replacedCount, final int replacementCount) {
 			this.lineIndex = lineIndex;
 			this.replacedCount = replacedCount;
 			this.replacementCount = replacementCount;
+			this.restoredLines = null;
+			this.restoredLineHashes = null;
+		}
+
+		Edit(final List<@Nullable LineTokens> restoredLines, final long[] restoredLineHashes) {
+			this.lineIndex = 0;
+			this.replacedCount = 0;
+			this.replacementCount = 0;
+			this.restoredLines = restoredLines;
+			this.restoredLineHashes = restoredLineHashes;
 		}
 
 		@Override
 		public String toString() {
+			final var restoredLines = this.restoredLines;
+			if (restoredLines != null)
+				return "{restoredLines=" + restoredLines.size() + '}';
 			return "{lineNumber=" + (lineIndex + 1) + ", replacedCount=" + replacedCount + ", replacementCount=" + replacementCount + '}';
 		}
 	}
@@ -85,8 +114,74 @@ public String toString() {
 		}
 	}
 
+	/**
+	 * Result of tokenizing a chunk of consecutive lines on a worker thread assuming {@link #startState} as the state at the
+	 * beginning of the first line of the chunk.
+	 */
+	private static final class SpeculativeChunk {
+
+		/**
+		 * A line tokenized by a worker thread. Its token types are decoded by the {@link TokenizerThread} in document order,
+		 * because the decoded token types depend on the order in which scopes are first seen.
+		 */
+		record UndecodedLine(IStateStack startState, ITokenizeLineResult<IToken[]> result, int lineLength) {
+		}
+
+		final int firstLineIndex;
+		final IStateStack startState;
+		final @Nullable UndecodedLine[] results;
+
+		/** number of lines of the chunk actually tokenized, may be less than <code>results.length</code> if aborted early */
+		int tokenizedLines;
+
+		SpeculativeChunk(final int firstLineIndex, final int lineCount, final IStateStack startState) {
+			this.firstLineIndex = firstLineIndex;
+			this.startState = startState;
+			results = new @Nullable UndecodedLine[lineCount];
+		}
+
+		/**
+		 * @return the result for the given line if it was tokenized by this chunk using the given start state
+		 */
+		@Nullable
+		UndecodedLine getResult(final int lineIndex, final IStateStack startState) {
+			final int i = lineIndex - firstLineIndex;
+			if (i < 0 || i >= tokenizedLines)
+				return null;
+			final var result = results[i];
+			return result != null && result.startState.equals(startState) ? result : null;
+		}
+	}
+
+	/**
+	 * Lazily initialized pool of worker threads shared by all models for {@link TMModel#setTokenizerParallelism(int) parallel
+	 * tokenization}. The threads run with minimal priority and terminate when idle.
+	 */
+	private static final class SpeculativeTokenizerPool {
+		static final ExecutorService INSTANCE;
+		static {
+			final int threads = Runtime.getRuntime().availableProcessors();
+			final var threadCount = new AtomicInteger();
+			final var pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+				final var thread = new Thread(runnable, "tm4e." + SpeculativeTokenizerPool.class.getSimpleName() + "-"
+						+ threadCount.incrementAndGet());
+				thread.setPriority(Thread.MIN_PRIORITY);
+				thread.setDaemon(true);
+				return thread;
+			});
+			pool.allowCoreThreadTimeOut(true);
+			INSTANCE = pool;
+		}
+	}
+
 	private static final Logger LOGGER = System.getLogger(TMModel.class.getName());
 
+	/** number of lines tokenized by a worker thread in one go during parallel tokenization */
+	private static final int LINES_PER_SPECULATIVE_CHUNK = 500;
+
+	/** max number of lines above a visible line range that are searched for a known state to start tokenizing the range with */
+	private static final int MAX_VISIBLE_RANGE_LOOKBACK_LINES = 200;
+
 	/** The TextMate grammar to use to tokenize lines of the attached document **/
 	private @Nullable IGrammar grammar;
 
@@ -97,6 +192,14 @@ public String toString() {
 	private @Nullable volatile TokenizerThread tokenizerThread;
 	private volatile boolean tokenizerThreadHasWork;
 	private TMTokenizationSupport tokenizer = lazyNonNull();
+	private volatile int tokenizerParallelism = 1;
+	private volatile boolean compactTokenStorage;
+
+	/** only accessed by the TokenizerThread, see {@link #setCompactTokenStorage(boolean)} */
+	private final CompactTokenStore tokenStore = new CompactTokenStore();
+
+	/** The lines currently visible to the user, which are tokenized before all other out-of-date lines **/
+	private volatile List<Range> visibleLineRanges = List.of();
 
 	/** package visibility for tests **/
 	final ArrayList<LineTokens> lines;
@@ -104,6 +207,9 @@ public String toString() {
 
 	private final BlockingQueue<Edit> edits = new LinkedBlockingQueue<>();
 
+	/** number of calls to {@link #onLinesReplaced(int, int, int)}, see {@link #getModificationCount()} */
+	private final AtomicLong modificationCount = new AtomicLong();
+
 	protected TMModel(final int initialNumberOfLines) {
 		lines = new ArrayList<>(Math.max(10, initialNumberOfLines));
 		linesWriteLock = lines;
@@ -205,6 +311,14 @@ private void revalidateTokens() throws InterruptedException {
 			final int linesCount = lines.size();
 			int currLineIndex = -1;
 
+			var visibleLineRanges = TMModel.this.visibleLineRanges;
+			tokenizeVisibleLines(visibleLineRanges);
+
+			final int parallelism = tokenizerParallelism;
+			final var speculation = parallelism > 1 && linesCount - startLineIndex > LINES_PER_SPECULATIVE_CHUNK
+					? new SpeculativeTokenization(startLineIndex, linesCount, parallelism)
+					: null;
+
 			// iterate over all lines from startLineIndex to end of file to check if (re)tokenization is required
 			for (currLineIndex = startLineIndex; currLineIndex < linesCount; currLineIndex++) {
 
@@ -218,6 +332,12 @@ private void revalidateTokens() throws InterruptedException {
 					break;
 				}
 
+				// check if the user scrolled -> if so, tokenize the now visible lines first
+				if (visibleLineRanges != TMModel.this.visibleLineRanges) {
+					visibleLineRanges = TMModel.this.visibleLineRanges;
+					tokenizeVisibleLines(visibleLineRanges);
+				}
+
 				final var currLineTokens = lines.get(currLineIndex);
 
 				if (currLineIndex == 0) {
@@ -240,28 +360,18 @@ private void revalidateTokens() throws InterruptedException {
 						currLineTokens.startState = prevLineTokens.endState;
 				}
 
-				// (re)tokenize the line
-				if (DEBUG_LOGGING)
-					logDebug("(%d) >> tokenizing line %d...", startLineNumber, currLineNumber);
-				TokenizationResult r;
-				try {
-					final String lineText = getLineText(currLineIndex);
-					r = tokenizer.tokenize(lineText, currLineTokens.startState, 0, MAX_TIME_PER_LINE_TOKENIZATION);
-				} catch (final Exception ex) {
-					LOGGER.log(ERROR, ex.toString());
-					r = new TokenizationResult(new ArrayList<>(1), 0, currLineTokens.startState, true);
-				}
+				// use the result of the parallel tokenization if it was based on the correct start state
+				var r = speculation == null ? null : speculation.getResult(currLineIndex, currLineTokens.startState);
 
-				// check if complete line was tokenized
-				if (r.stoppedEarly) {
-					// treat the rest of the line as one default token
-					r.tokens.add(new TMToken(r.actualStopOffset, ""));
-					// Use the line's starting state as end state in case of incomplete tokenization
-					r.endState = currLineTokens.startState;
+				// (re)tokenize the line
+				if (r == null) {
+					if (DEBUG_LOGGING)
+						logDebug("(%d) >> tokenizing line %d...", startLineNumber, currLineNumber);
+					r = tokenizeLine(currLineIndex, currLineTokens.startState);
 				}
 
 				currLineTokens.endState = r.endState;
-				currLineTokens.tokens = r.tokens;
+				currLineTokens.tokens = storeTokens(r.tokens);
 				prevLineTokens = currLineTokens;
 				firstLineToRevalidate = currLineIndex + 1;
 
@@ -284,12 +394,232 @@ private void revalidateTokens() throws InterruptedException {
 				}
 			}
 
+			if (speculation != null)
+				speculation.cancel();
+
 			// notify listeners about remaining line changes
 			if (DEBUG_LOGGING)
 				logDebug("(%d) >> changedRanges: %s", startLineNumber, changedRanges);
 			listeners.dispatchEvent(changedRanges, TMModel.this);
 
 			setAllTokensAreValid();
+
+			if (tokenStore.isCompactionDue())
+				tokenStore.compact(lines);
+		}
+
+		/**
+		 * (Re)tokenizes the out-of-date lines of the given visible line ranges ahead of the regular revalidation, starting with
+		 * the nearest known end state above each range. If no such state is found within {@link #MAX_VISIBLE_RANGE_LOOKBACK_LINES}
+		 * the initial state is assumed.
+		 * <p>
+		 * Lines located after {@link #firstLineToRevalidate} are verified later by {@link #revalidateTokens()} as usual, i.e.
+		 * if a line was tokenized with a start state that turns out to be wrong, the line is tokenized again.
+		 */
+		private void tokenizeVisibleLines(final List<Range> visibleLineRanges) {
+			final var changedRanges = new ArrayList<Range>();
+			Range prevRange = null;
+			for (final Range visibleLineRange : visibleLineRanges) {
+				final int fromLineIndex = Math.max(firstLineToRevalidate, visibleLineRange.fromLineNumber - 1);
+				final int toLineIndex = Math.min(lines.size(), visibleLineRange.toLineNumber); // exclusive
+				if (isAllTokensAreValid() || fromLineIndex >= toLineIndex)
+					continue;
+
+				// find the nearest line above the visible range with a known end state
+				int lineIndex = fromLineIndex;
+				IStateStack state = null;
+				while (lineIndex > 0 && fromLineIndex - lineIndex < MAX_VISIBLE_RANGE_LOOKBACK_LINES) {
+					state = lines.get(lineIndex - 1).endState;
+					if (state != null)
+						break;
+					lineIndex--;
+				}
+				if (state == null)
+					state = tokenizer.getInitialState();
+
+				if (DEBUG_LOGGING)
+					logDebug("(%s) >> tokenizing lines %d-%d...", visibleLineRange, lineIndex + 1, toLineIndex);
+
+				for (; lineIndex < toLineIndex; lineIndex++) {
+					if (isInterrupted() || !edits.isEmpty())
+						break;
+
+					final var lineTokens = lines.get(lineIndex);
+					final var endState = lineTokens.endState;
+					if (lineTokens.tokens != null && endState != null && lineTokens.startState.equals(state)) {
+						// tokens are based on the same start state ==> tokenization would yield the same result
+						state = endState;
+						continue;
+					}
+
+					final var r = tokenizeLine(lineIndex, state);
+					lineTokens.startState = state;
+					lineTokens.endState = r.endState;
+					lineTokens.tokens = storeTokens(r.tokens);
+					state = r.endState;
+
+					// add the line number to the changed ranges
+					final int lineNumber = lineIndex + 1;
+					if (prevRange != null && prevRange.toLineNumber == lineNumber - 1) {
+						prevRange.toLineNumber = lineNumber; // extend range from previous line change
+					} else {
+						prevRange = new Range(lineNumber);
+						changedRanges.add(prevRange); // insert new range
+					}
+				}
+			}
+			listeners.dispatchEvent(changedRanges, TMModel.this);
+		}
+
+		private TokenizationResult tokenizeLine(final int lineIndex, final IStateStack startState) {
+			TokenizationResult r;
+			try {
+				final String lineText = getLineText(lineIndex);
+				r = tokenizer.tokenize(lineText, startState, 0, MAX_TIME_PER_LINE_TOKENIZATION);
+			} catch (final Exception ex) {
+				LOGGER.log(ERROR, ex.toString());
+				r = new TokenizationResult(new ArrayList<>(1), 0, startState, true);
+			}
+			handleIncompleteTokenization(r, startState);
+			return r;
+		}
+
+		private void handleIncompleteTokenization(final TokenizationResult r, final IStateStack startState) {
+			// check if complete line was tokenized
+			if (r.stoppedEarly) {
+				// treat the rest of the line as one default token
+				r.tokens.add(new TMToken(r.actualStopOffset, ""));
+				// Use the line's starting state as end state in case of incomplete tokenization
+				r.endState = startState;
+			}
+		}
+
+		/**
+		 * Tokenizes chunks of lines ahead of the current line on the {@link SpeculativeTokenizerPool}.
+		 * <p>
+		 * Each chunk starts with the last known start state of its first line (which is {@link StateStack#NULL} for lines
+		 * that have never been tokenized). The {@link TokenizerThread} only uses the result for a line if the state assumed
+		 * by the chunk matches the actual end state of the preceding line. Otherwise it re-tokenizes the line itself until the
+		 * resulting end state converges with the one computed by the chunk.
+		 */
+		private final class SpeculativeTokenization {
+			private final int firstLineIndex;
+			private final int linesCount;
+			private final int parallelism;
+			private final TMTokenizationSupport tokenizer = TMModel.this.tokenizer;
+			private final Map<Integer /*chunkIndex*/, Future<SpeculativeChunk>> pendingChunks = new HashMap<>();
+			private int nextChunkIndex = 1; // the first chunk is always tokenized by the TokenizerThread itself
+			private @Nullable SpeculativeChunk currentChunk;
+
+			SpeculativeTokenization(final int firstLineIndex, final int linesCount, final int parallelism) {
+				this.firstLineIndex = firstLineIndex;
+				this.linesCount = linesCount;
+				this.parallelism = parallelism;
+				submitChunks(0);
+			}
+
+			/**
+			 * @return the result of the parallel tokenization for the given line if it was based on the given start state
+			 */
+			@Nullable
+			TokenizationResult getResult(final int lineIndex, final IStateStack startState) throws InterruptedException {
+				final int chunkIndex = (lineIndex - firstLineIndex) / LINES_PER_SPECULATIVE_CHUNK;
+				submitChunks(chunkIndex);
+
+				var chunk = currentChunk;
+				if (chunk == null || lineIndex < chunk.firstLineIndex || lineIndex >= chunk.firstLineIndex + chunk.results.length) {
+					chunk = currentChunk = awaitChunk(chunkIndex);
+					if (chunk == null)
+						return null;
+				}
+				final var line = chunk.getResult(lineIndex, startState);
+				if (line == null)
+					return null;
+				final var r = tokenizer.decode(line.result(), line.lineLength(), 0);
+				handleIncompleteTokenization(r, startState);
+				return r;
+			}
+
+			/**
+			 * @return the tokenized chunk or <code>null</code> if the chunk was not submitted or waiting was aborted
+			 *         because of new edits
+			 */
+			@Nullable
+			private SpeculativeChunk awaitChunk(final int chunkIndex) throws InterruptedException {
+				final var future = castNullable(pendingChunks.remove(chunkIndex));
+				if (future == null)
+					return null;
+				while (edits.isEmpty()) {
+					try {
+						return future.get(50, TimeUnit.MILLISECONDS);
+					} catch (final TimeoutException ex) {
+						// check for new edits and continue waiting
+					} catch (final ExecutionException | CancellationException ex) {
+						return null;
+					} catch (final InterruptedException ex) {
+						future.cancel(true);
+						cancel();
+						throw ex;
+					}
+				}
+				future.cancel(true);
+				return null;
+			}
+
+			/**
+			 * Ensures the chunks following the given chunk are submitted to the worker pool. Only chunks containing lines
+			 * without tokens are submitted, since re-tokenizing lines from their last known state does not yield new results.
+			 */
+			private void submitChunks(final int currentChunkIndex) {
+				for (; nextChunkIndex <= currentChunkIndex + parallelism; nextChunkIndex++) {
+					final int chunkStart = firstLineIndex + nextChunkIndex * LINES_PER_SPECULATIVE_CHUNK;
+					if (chunkStart >= linesCount)
+						return;
+					final int chunkEnd = Math.min(chunkStart + LINES_PER_SPECULATIVE_CHUNK, linesCount);
+					if (!hasLinesWithoutTokens(chunkStart, chunkEnd))
+						continue;
+					final var chunk = new SpeculativeChunk(chunkStart, chunkEnd - chunkStart, lines.get(chunkStart).startState);
+					pendingChunks.put(nextChunkIndex, SpeculativeTokenizerPool.INSTANCE.submit(() -> tokenizeChunk(chunk)));
+				}
+			}
+
+			private boolean hasLinesWithoutTokens(final int fromLineIndex, final int toLineIndex) {
+				for (int i = fromLineIndex; i < toLineIndex; i++) {
+					if (lines.get(i).tokens == null)
+						return true;
+				}
+				return false;
+			}
+
+			/**
+			 * Runs on a worker thread.
+			 */
+			private SpeculativeChunk tokenizeChunk(final SpeculativeChunk chunk) {
+				var state = chunk.startState;
+				for (int i = 0; i < chunk.results.length; i++) {
+					if (Thread.currentThread().isInterrupted())
+						break;
+					final String lineText;
+					try {
+						lineText = getLineText(chunk.firstLineIndex + i);
+					} catch (final Exception ex) {
+						// the document was probably modified concurrently, the TokenizerThread will handle the line
+						break;
+					}
+					final var r = tokenizer.tokenizeUndecoded(lineText, state, MAX_TIME_PER_LINE_TOKENIZATION);
+					chunk.results[i] = new SpeculativeChunk.UndecodedLine(state, r, lineText.length());
+					chunk.tokenizedLines = i + 1;
+					// see handleIncompleteTokenization()
+					state = r.isStoppedEarly() ? state : r.getRuleStack();
+				}
+				return chunk;
+			}
+
+			void cancel() {
+				pendingChunks.values().forEach(future -> future.cancel(true));
+				pendingChunks.clear();
+				currentChunk = null;
+			}
 		}
 
 		private void applyEdit(final Edit edit) {
@@ -300,6 +630,13 @@ private void applyEdit(final Edit edit) {
 			if (isAllTokensAreValid() || lineIndex < firstLineToRevalidate)
 				firstLineToRevalidate = lineIndex;
 
+			final var restoredLines = edit.restoredLines;
+			final var restoredLineHashes = edit.restoredLineHashes;
+			if (restoredLines != null && restoredLineHashes != null) {
+				applyRestoredLines(restoredLines, restoredLineHashes);
+				return;
+			}
+
 			// check if single line update
 			if (edit.replacedCount == 1 && edit.replacementCount == 1) {
 				final var firstLineOfEdit = getLineTokensOrNull(lineIndex);
@@ -348,6 +685,77 @@ private void applyEdit(final Edit edit) {
 		}
 	}
 
+	/**
+	 * Replaces the tokens of the lines whose text still has the given hash with the restored ones. The revalidation, which
+	 * follows after this edit, skips all restored lines whose start state matches the end state of the preceding line.
+	 */
+	private void applyRestoredLines(final List<@Nullable LineTokens> restoredLines, final long[] restoredLineHashes) {
+		final var changedRanges = new ArrayList<Range>();
+		Range prevRange = null;
+		for (int i = 0, n = Math.min(restoredLines.size(), lines.size()); i < n; i++) {
+			final var restored = restoredLines.get(i);
+			if (restored == null)
+				continue;
+
+			try {
+				if (TokensCacheFile.hash(getLineText(i)) != restoredLineHashes[i])
+					continue;
+			} catch (final Exception ex) {
+				// the document was modified in the meantime, the pending edits will invalidate the affected lines
+				LOGGER.log(DEBUG, ex.getMessage(), ex);
+				break;
+			}
+
+			final var lineTokens = lines.get(i);
+			lineTokens.startState = restored.startState;
+			lineTokens.endState = restored.endState;
+			final var restoredTokens = restored.tokens;
+			lineTokens.tokens = restoredTokens == null ? null : storeTokens(restoredTokens);
+
+			final int lineNumber = i + 1;
+			if (prevRange != null && prevRange.toLineNumber == lineNumber - 1) {
+				prevRange.toLineNumber = lineNumber;
+			} else {
+				prevRange = new Range(lineNumber);
+				changedRanges.add(prevRange);
+			}
+		}
+		if (!changedRanges.isEmpty())
+			listeners.dispatchEvent(changedRanges, this);
+	}
+
+	/**
+	 * Must only be called by the {@link TokenizerThread}.
+	 */
+	private List<TMToken> storeTokens(final List<TMToken> tokens) {
+		return compactTokenStorage ? tokenStore.store(tokens) : tokens;
+	}
+
+	/**
+	 * @return the number of document modifications reported so far, changes whenever the document was modified
+	 */
+	long getModificationCount() {
+		return modificationCount.get();
+	}
+
+	/**
+	 * @return <code>true</code> if the document was modified and the tokenizer thread did not yet apply the change
+	 */
+	boolean hasPendingEdits() {
+		return !edits.isEmpty();
+	}
+
+	/**
+	 * Queues the tokens of lines restored by {@link TokensCacheFile#restore(TMModel, java.nio.file.Path, String)}, which are
+	 * applied by the tokenizer thread in order with the edits.
+	 *
+	 * @param restoredLines the restored tokens by line index, <code>null</code> for lines that must be tokenized
+	 * @param restoredLineHashes the hashes of the texts of the restored lines, lines whose text changed are not restored
+	 */
+	void restoreLineTokens(final List<@Nullable LineTokens> restoredLines, final long[] restoredLineHashes) {
+		edits.add(new Edit(restoredLines, restoredLineHashes));
+	}
+
 	private @Nullable LineTokens getLineTokensOrNull(final int index) {
 		return index > -1 && index < lines.size()
 				? lines.get(index)
@@ -379,6 +787,45 @@ public synchronized void setGrammar(final IGrammar grammar) {
 		}
 	}
 
+	/**
+	 * Sets whether the tokens of newly tokenized lines are kept in primitive arrays shared by all lines of the document instead
+	 * of one {@link TMToken} instance per token, which considerably reduces the memory retained by large documents.
+	 * <p>
+	 * In compact mode {@link #getLineTokens(int)} returns a read-only view on the stored tokens, which creates the
+	 * {@link TMToken} instances on access. Lines tokenized before changing the mode keep their current tokens.
+	 *
+	 * @param enabled <code>false</code> (the default) to keep the tokens as a list of {@link TMToken}s per line
+	 */
+	public void setCompactTokenStorage(final boolean enabled) {
+		compactTokenStorage = enabled;
+	}
+
+	/**
+	 * Sets the number of threads used to tokenize larger blocks of lines without tokens, e.g. after a big document was opened.
+	 * <p>
+	 * If greater than one, chunks of lines ahead of the background tokenizer thread are tokenized speculatively on a shared
+	 * pool of worker threads, each chunk starting with the last known state of its first line. The background tokenizer thread
+	 * verifies the results in order and only re-tokenizes lines whose assumed start state differs from the end state of the
+	 * preceding line.
+	 *
+	 * @param parallelism number of chunks tokenized in parallel, <code>1</code> (the default) disables parallel tokenization
+	 */
+	public void setTokenizerParallelism(final int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("[parallelism] must be greater than 0 but was " + parallelism);
+		tokenizerParallelism = parallelism;
+	}
+
+	@Override
+	public void setVisibleLineRanges(final List<Range> ranges) {
+		final var newRanges = ranges.stream().map(r -> new Range(r.fromLineNumber, r.toLineNumber)).toList();
+		if (!newRanges.equals(visibleLineRanges)) {
+			if (DEBUG_LOGGING)
+				logDebug("(%s)", newRanges);
+			visibleLineRanges = newRanges;
+		}
+	}
+
 	/**
 	 * Informs the model about lines being replaced at the given index.
 	 * <p>
@@ -399,6 +846,7 @@ public void onLinesReplaced(final int lineIndex, final int replacedLinesCount, f
 		if (DEBUG_LOGGING)
 			logDebug("(%d, -%d, +%d)", lineIndex + 1, replacedLinesCount, replacementLinesCount);
 
+		modificationCount.incrementAndGet();
 		edits.add(new Edit(lineIndex, replacedLinesCount, replacementLinesCount));
 	}
 
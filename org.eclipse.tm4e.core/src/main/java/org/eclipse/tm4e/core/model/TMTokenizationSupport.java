@@ -29,6 +29,8 @@
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.grammar.IToken;
+import org.eclipse.tm4e.core.grammar.ITokenizeLineResult;
 import org.eclipse.tm4e.core.internal.grammar.StateStack;
 import org.eclipse.tm4e.core.internal.utils.MoreCollections;
 import org.eclipse.tm4e.core.internal.utils.StringUtils;
@@ -77,20 +79,43 @@ public TokenizationResult tokenize(final String line,
 			@Nullable final Duration timeLimit) {
 
 		final int offsetDelta = offsetDeltaOrNull == null ? 0 : offsetDeltaOrNull;
-		final var tokenizationResult = _grammar.tokenizeLine(line, state, timeLimit);
+		return decode(tokenizeUndecoded(line, state, timeLimit), line.length(), offsetDelta);
+	}
+
+	/**
+	 * Tokenizes the given line without decoding the token types, see {@link #decode(ITokenizeLineResult, int, int)}. Can be
+	 * called by multiple threads concurrently.
+	 */
+	ITokenizeLineResult<IToken[]> tokenizeUndecoded(final String line, @Nullable final IStateStack state,
+			@Nullable final Duration timeLimit) {
+		return _grammar.tokenizeLine(line, state, timeLimit);
+	}
+
+	/**
+	 * Decodes the token types of a line tokenized by {@link #tokenizeUndecoded(String, IStateStack, Duration)}.
+	 *
+	 * @param lineLength the length of the tokenized line
+	 */
+	TokenizationResult decode(final ITokenizeLineResult<IToken[]> tokenizationResult, final int lineLength,
+			final int offsetDelta) {
 		final var tokens = tokenizationResult.getTokens();
 
 		// Create the result early and fill in the tokens later
 		final var tmTokens = new ArrayList<TMToken>(tokens.length < 10 ? tokens.length : 10);
 		String lastTokenType = null;
-		for (final var token : tokens) {
-			final String tokenType = decodeTextMateTokenCached.apply(decodeMap, token.getScopes());
-
-			// do not push a new token if the type is exactly the same (also helps with ligatures)
-			if (!tokenType.equals(lastTokenType)) {
-				final int tokenStartIndex = token.getStartIndex();
-				tmTokens.add(new TMToken(tokenStartIndex + offsetDelta, tokenType));
-				lastTokenType = tokenType;
+		// the decoded token types depend on the order in which scopes are first seen by the decodeMap, thus the same instance
+		// must be used for all lines of the same document to get consistent token types, and lines must be decoded in the
+		// same order to get identical token types
+		synchronized (decodeMap) {
+			for (final var token : tokens) {
+				final String tokenType = decodeTextMateTokenCached.apply(decodeMap, token.getScopes());
+
+				// do not push a new token if the type is exactly the same (also helps with ligatures)
+				if (!tokenType.equals(lastTokenType)) {
+					final int tokenStartIndex = token.getStartIndex();
+					tmTokens.add(new TMToken(tokenStartIndex + offsetDelta, tokenType));
+					lastTokenType = tokenType;
+				}
 			}
 		}
 
@@ -102,7 +127,7 @@ public TokenizationResult tokenize(final String line,
 				// TODO Math.min() is a temporary workaround because currently in some cases lastToken.getEndIndex()
 				// incorrectly returns larger values than line.length() for some reasons.
 				// See for example GrammarTest#testTokenize1IllegalToken()
-				offsetDelta + Math.min(line.length(), lastToken.getEndIndex()),
+				offsetDelta + Math.min(lineLength, lastToken.getEndIndex()),
 
 				tokenizationResult.getRuleStack(),
 				tokenizationResult.isStoppedEarly());
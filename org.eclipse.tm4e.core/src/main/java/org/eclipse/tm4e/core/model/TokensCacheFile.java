@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.model;
+
+import static java.lang.System.Logger.Level.*;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.internal.grammar.StateStackCodec;
+import org.eclipse.tm4e.core.model.ITMModel.BackgroundTokenizationState;
+import org.eclipse.tm4e.core.model.TMModel.LineTokens;
+
+/**
+ * Persists the tokens and line states of a {@link TMModel} to a file, so that they can be restored when the same
+ * document is opened again instead of tokenizing it from scratch.
+ * <p>
+ * The file is keyed by the scope name of the grammar and a grammar version provided by the caller, and each line by the
+ * hash of its content. The version must change whenever the grammar changes, because the persisted line states reference
+ * the grammar's rules. The theme may change though: the persisted token types are scope names and the styles of the
+ * persisted line states are recomputed with the grammar's current theme on restore.
+ * <p>
+ * When restoring a document that was modified in the meantime, only the lines whose content hash matches the persisted
+ * one are restored. The modified lines are tokenized as usual and if the resulting end state of a modified line equals
+ * the restored end state, the tokens of the following lines are kept.
+ * <p>
+ * Strings, i.e. token types and scope names, are stored once in a string table and line states share their common
+ * stack elements.
+ */
+public final class TokensCacheFile {
+
+	private static final Logger LOGGER = System.getLogger(TokensCacheFile.class.getName());
+
+	private static final int MAGIC = 0x544D3443; // "TM4C"
+	private static final int FORMAT_VERSION = 1;
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	/**
+	 * Writes the tokens of all lines of the given model to the given file. Nothing is written if the model has no grammar or
+	 * its background tokenization is still in progress.
+	 *
+	 * @param grammarVersion version of the model's grammar, e.g. the version of the bundle contributing the grammar
+	 *
+	 * @return <code>true</code> if the file was written
+	 *
+	 * @throws IOException if writing the file fails
+	 */
+	public static boolean save(final TMModel model, final Path file, final String grammarVersion) throws IOException {
+		final var grammar = model.getGrammar();
+		if (grammar == null || model.getBackgroundTokenizationState() != BackgroundTokenizationState.COMPLETED
+				|| model.hasPendingEdits())
+			return false;
+
+		final long modificationCount = model.getModificationCount();
+		final var strings = new ArrayList<String>();
+		final var stringIds = new HashMap<String, Integer>();
+		final var states = new StateStackCodec.Writer(s -> stringId(s, strings, stringIds));
+		final var linesBytes = new ByteArrayOutputStream();
+		final var linesOut = new DataOutputStream(linesBytes);
+
+		// encode the tokens under the lock, but read the document outside of it to neither block the tokenizer thread nor
+		// acquire the document's lock while holding the model's lock
+		final int lineCount;
+		final int[] lineOffsets;
+		synchronized (model.linesWriteLock) {
+			if (model.hasPendingEdits())
+				return false;
+			lineCount = model.lines.size();
+			lineOffsets = new int[lineCount + 1];
+			for (int i = 0; i < lineCount; i++) {
+				lineOffsets[i] = linesOut.size();
+				final var lineTokens = model.lines.get(i);
+				final var endState = lineTokens.endState;
+				final var tokens = lineTokens.tokens;
+				if (endState == null || tokens == null) {
+					linesOut.writeInt(-1);
+					continue;
+				}
+				linesOut.writeInt(tokens.size());
+				linesOut.writeInt(states.add(lineTokens.startState));
+				linesOut.writeInt(states.add(endState));
+				for (final var token : tokens) {
+					linesOut.writeInt(token.startIndex);
+					linesOut.writeInt(stringId(token.type, strings, stringIds));
+				}
+			}
+			lineOffsets[lineCount] = linesOut.size();
+		}
+
+		final var lineHashes = new long[lineCount];
+		for (int i = 0; i < lineCount; i++) {
+			try {
+				lineHashes[i] = hash(model.getLineText(i));
+			} catch (final Exception ex) {
+				LOGGER.log(DEBUG, "Not saving tokens cache, document was modified concurrently: " + ex);
+				return false;
+			}
+		}
+		// the hashed line texts must match the encoded tokens
+		if (model.getModificationCount() != modificationCount || model.hasPendingEdits()) {
+			LOGGER.log(DEBUG, "Not saving tokens cache, document was modified concurrently");
+			return false;
+		}
+
+		final var tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+		try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			writeString(out, grammar.getScopeName());
+			writeString(out, grammarVersion);
+			out.writeInt(lineCount);
+			out.writeInt(strings.size());
+			for (final var string : strings) {
+				writeString(out, string);
+			}
+			states.writeTo(out);
+			linesOut.flush();
+			final byte[] lines = linesBytes.toByteArray();
+			for (int i = 0; i < lineCount; i++) {
+				out.writeLong(lineHashes[i]);
+				out.write(lines, lineOffsets[i], lineOffsets[i + 1] - lineOffsets[i]);
+			}
+		}
+		try {
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (final AtomicMoveNotSupportedException ex) {
+			Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		return true;
+	}
+
+	/**
+	 * Loads the tokens of the lines of the given model from the given file. Should be called right after the model's
+	 * grammar was set. The loaded tokens are applied asynchronously by the model's tokenizer thread to all lines whose
+	 * content hash is unchanged.
+	 *
+	 * @param grammarVersion version of the model's grammar, must equal the version the file was saved with
+	 *
+	 * @return the number of lines loaded from the file, <code>0</code> if the file does not exist or was saved for a
+	 *         different grammar
+	 *
+	 * @throws IOException if reading the file fails
+	 */
+	public static int restore(final TMModel model, final Path file, final String grammarVersion) throws IOException {
+		final var grammar = model.getGrammar();
+		if (grammar == null)
+			return 0;
+
+		// not memory-mapped, because a mapping prevents replacing or deleting the file on Windows until it is garbage
+		// collected, and the content is decoded right away anyway
+		final ByteBuffer in;
+		try {
+			in = ByteBuffer.wrap(Files.readAllBytes(file));
+		} catch (final NoSuchFileException ex) {
+			return 0;
+		}
+
+		try {
+			if (in.getInt() != MAGIC || in.getInt() != FORMAT_VERSION
+					|| !readString(in).equals(grammar.getScopeName())
+					|| !readString(in).equals(grammarVersion))
+				return 0;
+
+			final int lineCount = in.getInt();
+
+			final var strings = new String[in.getInt()];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = readString(in);
+			}
+			final var states = new StateStackCodec.Reader(in, id -> strings[id], grammar);
+
+			final var restoredLines = new ArrayList<@Nullable LineTokens>(lineCount);
+			final var lineHashes = new long[lineCount];
+			int restoredLineCount = 0;
+			for (int i = 0; i < lineCount; i++) {
+				lineHashes[i] = in.getLong();
+				final int tokenCount = in.getInt();
+				if (tokenCount == -1) {
+					restoredLines.add(null);
+					continue;
+				}
+				final IStateStack startState = states.get(in.getInt());
+				final IStateStack endState = states.get(in.getInt());
+				final var tokens = new ArrayList<TMToken>(tokenCount);
+				for (int t = 0; t < tokenCount; t++) {
+					tokens.add(new TMToken(in.getInt(), strings[in.getInt()]));
+				}
+				final var lineTokens = new LineTokens();
+				lineTokens.startState = startState;
+				lineTokens.endState = endState;
+				lineTokens.tokens = tokens;
+				restoredLines.add(lineTokens);
+				restoredLineCount++;
+			}
+
+			if (restoredLineCount > 0) {
+				model.restoreLineTokens(restoredLines, lineHashes);
+			}
+			return restoredLineCount;
+		} catch (final BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+			LOGGER.log(WARNING, "Ignoring corrupt tokens cache file " + file + ": " + ex);
+			return 0;
+		}
+	}
+
+	/**
+	 * 64-bit FNV-1a hash of the given line
+	 */
+	static long hash(final String lineText) {
+		long hash = FNV_OFFSET_BASIS;
+		for (int i = 0, l = lineText.length(); i < l; i++) {
+			hash = (hash ^ lineText.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	private static int stringId(final String string, final List<String> strings, final Map<String, Integer> stringIds) {
+		return stringIds.computeIfAbsent(string, s -> {
+			strings.add(s);
+			return strings.size() - 1;
+		});
+	}
+
+	private static void writeString(final DataOutput out, final String string) throws IOException {
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(final ByteBuffer in) {
+		final var bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private TokensCacheFile() {
+	}
+}
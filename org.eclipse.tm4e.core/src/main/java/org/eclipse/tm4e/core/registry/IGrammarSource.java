@@ -10,7 +10,9 @@
 package org.eclipse.tm4e.core.registry;
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
@@ -29,9 +31,23 @@ public interface IGrammarSource {
 	enum ContentType {
 		JSON,
 		YAML,
-		XML
+		XML,
+
+		/**
+		 * Precompiled binary grammar, see {@link IGrammarSource#SNAPSHOT_FILE_EXTENSION}. Read via
+		 * {@link IGrammarSource#getInputStream()}. If the snapshot cannot be read, e.g. because it was generated for
+		 * another version of the snapshot format, and the file path ends with the snapshot file extension, the text
+		 * grammar provided by {@link IGrammarSource#getReader()} is parsed instead.
+		 */
+		SNAPSHOT
 	}
 
+	/**
+	 * Extension of precompiled binary grammar files. They are generated at build time next to the grammars they were
+	 * created from, e.g. <code>java.tmLanguage.json.tmsnapshot</code>, and load without parsing the grammar text.
+	 */
+	String SNAPSHOT_FILE_EXTENSION = ".tmsnapshot";
+
 	private static ContentType guessFileFormat(final String fileName) {
 		final String extension = fileName.substring(fileName.lastIndexOf('.') + 1).trim().toLowerCase();
 
@@ -39,6 +55,7 @@ private static ContentType guessFileFormat(final String fileName) {
 			case "json" -> ContentType.JSON;
 			case "yaml", "yaml-tmlanguage", "yml" -> ContentType.YAML;
 			case "plist", "tmlanguage", "xml" -> ContentType.XML;
+			case "tmsnapshot" -> ContentType.SNAPSHOT;
 			default -> throw new IllegalArgumentException("Unsupported file type: " + fileName);
 		};
 	}
@@ -57,6 +74,11 @@ public Reader getReader() throws IOException {
 				return Files.newBufferedReader(file, charset == null ? StandardCharsets.UTF_8 : charset);
 			}
 
+			@Override
+			public InputStream getInputStream() throws IOException {
+				return Files.newInputStream(file);
+			}
+
 			@Override
 			public String getFilePath() {
 				return filePath;
@@ -91,6 +113,14 @@ public Reader getReader() throws IOException {
 						charset == null ? StandardCharsets.UTF_8 : charset));
 			}
 
+			@Override
+			public InputStream getInputStream() throws IOException {
+				final var in = clazz.getResourceAsStream(resourceName);
+				if (in == null)
+					throw new FileNotFoundException(resourceName);
+				return in;
+			}
+
 			@Override
 			public String getFilePath() {
 				return resourceName;
@@ -130,4 +160,14 @@ default ContentType getContentType() {
 	String getFilePath();
 
 	Reader getReader() throws IOException;
+
+	/**
+	 * @return the raw bytes of the grammar, required for content type {@link ContentType#SNAPSHOT}
+	 *
+	 * @throws IOException if the bytes cannot be read, by default because this source only provides text. A snapshot
+	 *             is then replaced by the text grammar provided by {@link #getReader()}.
+	 */
+	default InputStream getInputStream() throws IOException {
+		throw new IOException("Grammar source " + getFilePath() + " only provides text");
+	}
 }
@@ -21,9 +21,14 @@
 import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
 
 import java.lang.System.Logger;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.TMException;
@@ -49,7 +54,12 @@ public final class Registry {
 
 	private final IRegistryOptions _options;
 	private final SyncRegistry _syncRegistry;
-	private final Map<String, Boolean> _ensureGrammarCache = new HashMap<>();
+
+	/**
+	 * Loads of single grammars by scope name. Completed futures indicate if a grammar source was found, pending futures represent
+	 * in-flight loads which are shared by all callers requesting the same scope.
+	 */
+	private final Map<String, CompletableFuture<Boolean>> _ensureGrammarCache = new ConcurrentHashMap<>();
 
 	public Registry() {
 		this(new IRegistryOptions() {
@@ -125,6 +135,49 @@ public IGrammar loadGrammar(final String initialScopeName) {
 		return this._loadGrammar(initialScopeName, 0, null, null, null);
 	}
 
+	/**
+	 * Load the grammar for `scopeName` and all referenced included grammars asynchronously using the
+	 * {@link ForkJoinPool#commonPool() common pool}.
+	 *
+	 * @see #loadGrammarAsync(String, Executor)
+	 */
+	public CompletableFuture<@Nullable IGrammar> loadGrammarAsync(final String initialScopeName) {
+		return loadGrammarAsync(initialScopeName, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Load the grammar for `scopeName` and all referenced included grammars asynchronously.
+	 * <p>
+	 * The grammar sources of all dependencies found on the same include level are fetched and parsed in parallel on the given
+	 * executor, i.e. {@link IRegistryOptions#getGrammarSource(String)} may be called concurrently. Concurrent loads of the same
+	 * scope, including the ones triggered by {@link #loadGrammar(String)}, are only performed once.
+	 */
+	public CompletableFuture<@Nullable IGrammar> loadGrammarAsync(final String initialScopeName, final Executor executor) {
+		return this._loadGrammarAsync(initialScopeName, 0, null, null, null, executor);
+	}
+
+	/**
+	 * Load the grammar for `scopeName` and all referenced included grammars asynchronously.
+	 * Please do not use language id 0.
+	 *
+	 * @see #loadGrammarAsync(String, Executor)
+	 */
+	public CompletableFuture<@Nullable IGrammar> loadGrammarWithConfigurationAsync(
+			final String initialScopeName,
+			final int initialLanguage,
+			final IGrammarConfiguration configuration,
+			final Executor executor) {
+		return this._loadGrammarAsync(
+				initialScopeName,
+				initialLanguage,
+				configuration.getEmbeddedLanguages(),
+				configuration.getTokenTypes(),
+				new BalancedBracketSelectors(
+						nullToEmpty(configuration.getBalancedBracketSelectors()),
+						nullToEmpty(configuration.getUnbalancedBracketSelectors())),
+				executor);
+	}
+
 	@Nullable
 	private IGrammar _loadGrammar(
 			final String initialScopeName,
@@ -134,7 +187,7 @@ private IGrammar _loadGrammar(
 			@Nullable final BalancedBracketSelectors balancedBracketSelectors) {
 		final var dependencyProcessor = new ScopeDependencyProcessor(this._syncRegistry, initialScopeName);
 		while (!dependencyProcessor.Q.isEmpty()) {
-			dependencyProcessor.Q.forEach(request -> this._loadSingleGrammar(request.scopeName));
+			dependencyProcessor.Q.forEach(request -> _join(this._loadSingleGrammar(request.scopeName, Runnable::run)));
 			dependencyProcessor.processQueue();
 		}
 
@@ -146,8 +199,72 @@ private IGrammar _loadGrammar(
 				balancedBracketSelectors);
 	}
 
-	private void _loadSingleGrammar(final String scopeName) {
-		this._ensureGrammarCache.computeIfAbsent(scopeName, this::_doLoadSingleGrammar);
+	private CompletableFuture<@Nullable IGrammar> _loadGrammarAsync(
+			final String initialScopeName,
+			final int initialLanguage,
+			@Nullable final Map<String, Integer> embeddedLanguages,
+			@Nullable final Map<String, Integer> tokenTypes,
+			@Nullable final BalancedBracketSelectors balancedBracketSelectors,
+			final Executor executor) {
+		final var dependencyProcessor = new ScopeDependencyProcessor(this._syncRegistry, initialScopeName);
+		return this._loadDependenciesAsync(dependencyProcessor, executor)
+				.thenApply(unused -> this._grammarForScopeName(
+						initialScopeName,
+						initialLanguage,
+						embeddedLanguages,
+						tokenTypes,
+						balancedBracketSelectors));
+	}
+
+	/**
+	 * Loads all grammars currently queued by the given processor in parallel and then continues with the dependencies found in
+	 * these grammars until the queue is empty. The processor itself is only accessed by one stage at a time.
+	 */
+	private CompletableFuture<@Nullable Void> _loadDependenciesAsync(final ScopeDependencyProcessor dependencyProcessor,
+			final Executor executor) {
+		if (dependencyProcessor.Q.isEmpty())
+			return CompletableFuture.completedFuture(null);
+
+		final var loads = new ArrayList<CompletableFuture<Boolean>>(dependencyProcessor.Q.size());
+		dependencyProcessor.Q.forEach(request -> loads.add(this._loadSingleGrammar(request.scopeName, executor)));
+		return CompletableFuture.allOf(loads.toArray(CompletableFuture[]::new))
+				.thenComposeAsync(unused -> {
+					dependencyProcessor.processQueue();
+					return this._loadDependenciesAsync(dependencyProcessor, executor);
+				}, executor);
+	}
+
+	private CompletableFuture<Boolean> _loadSingleGrammar(final String scopeName, final Executor executor) {
+		final var load = new CompletableFuture<Boolean>();
+		final var existingLoad = this._ensureGrammarCache.putIfAbsent(scopeName, load);
+		if (existingLoad != null)
+			return existingLoad;
+
+		try {
+			executor.execute(() -> {
+				try {
+					load.complete(this._doLoadSingleGrammar(scopeName));
+				} catch (final Throwable ex) {
+					// failed loads are not cached so they can be retried
+					this._ensureGrammarCache.remove(scopeName, load);
+					load.completeExceptionally(ex);
+				}
+			});
+		} catch (final RuntimeException ex) { // e.g. RejectedExecutionException
+			this._ensureGrammarCache.remove(scopeName, load);
+			load.completeExceptionally(ex);
+		}
+		return load;
+	}
+
+	private static <T> T _join(final CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (final CompletionException ex) {
+			if (ex.getCause() instanceof final RuntimeException cause)
+				throw cause;
+			throw ex;
+		}
 	}
 
 	private boolean _doLoadSingleGrammar(final String scopeName) {
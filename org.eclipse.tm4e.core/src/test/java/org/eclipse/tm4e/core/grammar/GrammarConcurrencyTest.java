@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.grammar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stress test ensuring that a single {@link IGrammar} instance can be used by multiple threads concurrently.
+ */
+class GrammarConcurrencyTest {
+
+	private static final int THREADS = 8;
+	private static final int ITERATIONS = 3;
+	private static final int MAX_LINES = 1_000;
+
+	private record Document(String grammarFile, List<String> lines) {
+	}
+
+	@Test
+	void testConcurrentTokenizationOfSharedGrammar() throws Exception {
+		final var documents = List.of(
+				new Document("TypeScript.tmLanguage.json", readLines("raytracer.ts")),
+				// Markdown exercises begin/end and begin/while rules with back references
+				new Document("Markdown.tmLanguage", readLines("test.md.txt")));
+
+		for (final var document : documents) {
+			// expected results are computed single-threaded with a separate grammar instance
+			final var expectedTokens = tokenize(loadGrammar(document.grammarFile), document.lines);
+			final var expectedBinaryTokens = tokenizeBinary(loadGrammar(document.grammarFile), document.lines);
+
+			// the shared grammar is not compiled yet, so the threads also race on the lazy compilation
+			final var sharedGrammar = loadGrammar(document.grammarFile);
+			final var startSignal = new CountDownLatch(1);
+			final var executor = Executors.newFixedThreadPool(THREADS);
+			try {
+				final var futures = new ArrayList<Future<?>>();
+				for (int t = 0; t < THREADS; t++) {
+					final boolean binary = t % 2 == 0;
+					futures.add(executor.submit((Callable<Void>) () -> {
+						startSignal.await();
+						for (int i = 0; i < ITERATIONS; i++) {
+							if (binary) {
+								assertEquals(expectedBinaryTokens, tokenizeBinary(sharedGrammar, document.lines));
+							} else {
+								assertEquals(expectedTokens, tokenize(sharedGrammar, document.lines));
+							}
+						}
+						return null;
+					}));
+				}
+				startSignal.countDown();
+				for (final var future : futures) {
+					future.get(2, TimeUnit.MINUTES);
+				}
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	private static IGrammar loadGrammar(final String grammarFile) {
+		final var grammar = new Registry().addGrammar(IGrammarSource.fromResource(Data.class, grammarFile));
+		assertNotNull(grammar);
+		return grammar;
+	}
+
+	private static List<String> readLines(final String resourceName) throws Exception {
+		try (var reader = new BufferedReader(
+				new InputStreamReader(Data.class.getResourceAsStream(resourceName), StandardCharsets.UTF_8))) {
+			return reader.lines().limit(MAX_LINES).toList();
+		}
+	}
+
+	private static List<String> tokenize(final IGrammar grammar, final List<String> lines) {
+		final var result = new ArrayList<String>(lines.size());
+		@Nullable
+		IStateStack state = null;
+		for (final String line : lines) {
+			final var lineTokens = grammar.tokenizeLine(line, state, null);
+			final var sb = new StringBuilder();
+			for (final var token : lineTokens.getTokens()) {
+				sb.append(token.getStartIndex()).append(token.getScopes()).append(' ');
+			}
+			result.add(sb.toString());
+			state = lineTokens.getRuleStack();
+		}
+		return result;
+	}
+
+	private static List<String> tokenizeBinary(final IGrammar grammar, final List<String> lines) {
+		final var result = new ArrayList<String>(lines.size());
+		final var buffer = new BinaryTokenBuffer();
+		@Nullable
+		IStateStack state = null;
+		for (final String line : lines) {
+			final var lineTokens = grammar.tokenizeLine2(line, state, null, buffer);
+			result.add(Arrays.toString(lineTokens.getTokens().toArray()));
+			state = lineTokens.getRuleStack();
+		}
+		return result;
+	}
+}
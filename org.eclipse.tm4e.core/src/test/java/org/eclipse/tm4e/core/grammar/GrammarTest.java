@@ -17,8 +17,10 @@
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -108,6 +110,23 @@ void testTokenizeMultilineExpression() throws Exception {
 		}
 	}
 
+	@Test
+	void testTokenizeAfterCompileAllRules() throws Exception {
+		final var registry = new Registry();
+		final IGrammar grammar = registry.addGrammar(fromResource(Data.class, "JavaScript.tmLanguage"));
+		grammar.compileAllRules();
+		grammar.compileAllRules();
+
+		final var lineTokens = grammar.tokenizeLine("function add(a,b) { return a+b; }");
+		assertFalse(lineTokens.isStoppedEarly());
+		assertEquals(EXPECTED_SINGLE_LINE_TOKENS.length, lineTokens.getTokens().length);
+		for (int i = 0; i < lineTokens.getTokens().length; i++) {
+			final IToken token = lineTokens.getTokens()[i];
+			final String s = "Token from " + token.getStartIndex() + " to " + token.getEndIndex() + " with scopes " + token.getScopes();
+			Assertions.assertEquals(EXPECTED_SINGLE_LINE_TOKENS[i], s);
+		}
+	}
+
 	@Test
 	void testTokenize0Tokens() throws Exception {
 		final var registry = new Registry();
@@ -230,6 +249,75 @@ void testTokenizeTypeScriptFile() throws Exception {
 		}
 	}
 
+	@Test
+	void testTokenizeDocument() throws Exception {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+
+		final List<String> expectedTokens;
+		try (var resource = Data.class.getResourceAsStream("raytracer_tokens.txt")) {
+			expectedTokens = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8)).lines().toList();
+		}
+
+		final var actualTokens = new ArrayList<String>();
+		final IStateStack endState;
+		try (var reader = new InputStreamReader(Data.class.getResourceAsStream("raytracer.ts"), StandardCharsets.UTF_8)) {
+			endState = grammar.tokenizeDocument(reader, null, null, (lineIndex, lineText, result) -> {
+				assertTrue(lineText.endsWith("\n"));
+				for (final var token : result.getTokens()) {
+					actualTokens.add("Token from " + token.getStartIndex() + " to " + token.getEndIndex() + " with scopes "
+							+ token.getScopes());
+				}
+				return true;
+			});
+		}
+		assertNotNull(endState);
+		assertEquals(expectedTokens, actualTokens);
+	}
+
+	@Test
+	void testTokenizeDocumentLineTerminators() throws Exception {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "JavaScript.tmLanguage"));
+		final String[] lines = { "function add(a,b)", "", "{ return a+b; }", "/* a", "b */" };
+
+		// expected results of line-by-line tokenization
+		final var expected = new ArrayList<String>();
+		IStateStack state = null;
+		for (final String line : lines) {
+			final var result = grammar.tokenizeLine2(line, state, null);
+			expected.add(line + "\n" + Arrays.toString(result.getTokens()));
+			state = result.getRuleStack();
+		}
+
+		for (final String document : List.of(
+				String.join("\n", lines),
+				String.join("\r\n", lines) + "\r\n",
+				String.join("\r", lines) + "\r")) {
+			final var actual = new ArrayList<String>();
+			final ILineTokensConsumer<BinaryTokenBuffer> collector = (lineIndex, lineText, result) -> {
+				assertEquals(actual.size(), lineIndex);
+				actual.add(lineText + Arrays.toString(result.getTokens().toArray()));
+				return true;
+			};
+
+			assertEquals(state.toString(), String.valueOf(grammar.tokenizeDocument2(document, null, null, collector)));
+			assertEquals(expected, actual);
+
+			actual.clear();
+			grammar.tokenizeDocument2(new StringReader(document), null, null, collector);
+			assertEquals(expected, actual);
+		}
+
+		// consumer can stop the tokenization
+		final var tokenizedLines = new ArrayList<Integer>();
+		grammar.tokenizeDocument(String.join("\n", lines), null, null, (lineIndex, lineText, result) -> {
+			tokenizedLines.add(lineIndex);
+			return lineIndex < 1;
+		});
+		assertEquals(List.of(0, 1), tokenizedLines);
+
+		assertNull(grammar.tokenizeDocument("", null, null, (lineIndex, lineText, result) -> fail()));
+	}
+
 	@Test
 	void testTokenizeWithTimeout() throws IOException {
 		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
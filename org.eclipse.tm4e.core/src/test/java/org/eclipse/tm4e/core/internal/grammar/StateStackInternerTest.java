@@ -0,0 +1,94 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.junit.jupiter.api.Test;
+
+class StateStackInternerTest {
+
+	@Test
+	void testEqualStatesAreShared() throws Exception {
+		final var lines = readLines("raytracer.ts");
+		final var grammar = loadGrammar();
+
+		final var firstPass = tokenize(grammar, lines);
+		final var secondPass = tokenize(grammar, lines);
+		for (int i = 0; i < lines.size(); i++) {
+			assertSame(firstPass.get(i), secondPass.get(i), "End state of line " + i);
+		}
+
+		// a state at the top level of the document is the same for all lines
+		final var topLevelStates = firstPass.stream().filter(s -> s.getDepth() == 1).distinct().toList();
+		assertEquals(1, topLevelStates.size());
+		for (final var state : firstPass) {
+			if (state.getDepth() == 1)
+				assertSame(topLevelStates.get(0), state);
+		}
+	}
+
+	@Test
+	void testInterningCanBeDisabled() throws Exception {
+		final var lines = readLines("raytracer.ts");
+		final var internedStates = tokenize(loadGrammar(), lines);
+
+		System.setProperty(StateStackInterner.SYSTEM_PROPERTY, "false");
+		final IGrammar grammar;
+		try {
+			grammar = loadGrammar();
+		} finally {
+			System.clearProperty(StateStackInterner.SYSTEM_PROPERTY);
+		}
+		final var firstPass = tokenize(grammar, lines);
+		final var secondPass = tokenize(grammar, lines);
+		for (int i = 0; i < lines.size(); i++) {
+			assertEquals(internedStates.get(i), firstPass.get(i), "End state of line " + i);
+			assertEquals(firstPass.get(i), secondPass.get(i), "End state of line " + i);
+			assertNotSame(firstPass.get(i), secondPass.get(i), "End state of line " + i);
+		}
+	}
+
+	private static IGrammar loadGrammar() {
+		final var grammar = new Registry().addGrammar(IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		assertNotNull(grammar);
+		return grammar;
+	}
+
+	private static List<String> readLines(final String resourceName) throws Exception {
+		try (var reader = new BufferedReader(
+				new InputStreamReader(Data.class.getResourceAsStream(resourceName), StandardCharsets.UTF_8))) {
+			return reader.lines().toList();
+		}
+	}
+
+	private static List<IStateStack> tokenize(final IGrammar grammar, final List<String> lines) {
+		final var result = new ArrayList<IStateStack>(lines.size());
+		@Nullable
+		IStateStack state = null;
+		for (final String line : lines) {
+			state = grammar.tokenizeLine(line, state, null).getRuleStack();
+			result.add(state);
+		}
+		return result;
+	}
+}
@@ -3,6 +3,8 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.BinaryTokenBuffer;
+import org.eclipse.tm4e.core.grammar.IStateStack;
 import org.eclipse.tm4e.core.registry.IGrammarSource;
 import org.eclipse.tm4e.core.registry.Registry;
 import org.junit.jupiter.api.Test;
@@ -65,6 +67,26 @@ void testTokenizeLine2() throws Exception {
 		System.out.println("----------");
 	}
 
+	@Test
+	void testTokenizeLine2WithBuffer() throws Exception {
+		final var grammar = new Registry().addGrammar(IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage"));
+
+		final var lines = new String[] { "function add(a,b) { return a+b; }", "/* comment", "", "still comment */ var x = 'a';" };
+		final var buffer = new BinaryTokenBuffer(1); // small initial capacity to test growing the buffer
+		IStateStack state = null;
+		IStateStack bufferState = null;
+		for (final String line : lines) {
+			final var expected = grammar.tokenizeLine2(line, state, null);
+			final var actual = grammar.tokenizeLine2(line, bufferState, null, buffer);
+			assertSame(buffer, actual.getTokens());
+			assertArrayEquals(expected.getTokens(), buffer.toArray());
+			assertEquals(expected.getTokens().length / 2, buffer.getTokenCount());
+			assertEquals(expected.getRuleStack(), actual.getRuleStack());
+			state = expected.getRuleStack();
+			bufferState = actual.getRuleStack();
+		}
+	}
+
 	@Test
 	void testTokenizeMultiByteLine() throws Exception {
 		final var grammar = new Registry().addGrammar(IGrammarSource.fromResource(Data.class, "c.tmLanguage.json"));
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar.raw;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.TokenizationUtils;
+import org.eclipse.tm4e.core.internal.registry.SyncRegistry;
+import org.eclipse.tm4e.core.internal.theme.Theme;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.junit.jupiter.api.Test;
+
+class RawGrammarOverlayTest {
+
+	@Test
+	void testOverlayDoesNotModifySharedGrammar() throws Exception {
+		final var grammar = RawGrammarReader.readGrammar(IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final var overlay = new RawGrammarOverlay(grammar);
+		final var self = new RawRule().setName("self");
+		overlay.getRepository().setSelf(self);
+		overlay.getRepository().setBase(self);
+
+		assertSame(self, overlay.getRepository().getRule(RawRepository.DOLLAR_SELF));
+		assertSame(grammar.getRepository().getRule("expression"), overlay.getRepository().getRule("expression"));
+		assertNull(grammar.getRepository().getRule(RawRepository.DOLLAR_SELF));
+		assertNull(grammar.getRepository().getRule(RawRepository.DOLLAR_BASE));
+		assertEquals(grammar.getPatterns(), overlay.getPatterns());
+	}
+
+	@Test
+	void testGrammarsShareParsedGrammar() throws Exception {
+		final var grammar = RawGrammarReader.readGrammar(IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final var expected = tokenize(createGrammar(
+				RawGrammarReader.readGrammar(IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json"))));
+
+		final var grammar1 = createGrammar(grammar);
+		final var grammar2 = createGrammar(grammar);
+		assertEquals(expected, tokenize(grammar1));
+		assertEquals(expected, tokenize(grammar2));
+		assertEquals(RawGrammarReader.readGrammar(IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json")), grammar);
+	}
+
+	@Test
+	void testListCapturesAreConvertedWhenSet() {
+		final var capture = new RawRule().setName("capture");
+		final var rule = new RawRule();
+		rule.setProperty(RawRule.CAPTURES, List.of(capture));
+
+		// the raw rule must not be modified when its captures are read
+		final var captures = rule.get(RawRule.CAPTURES);
+		assertInstanceOf(RawCaptures.class, captures);
+		assertSame(captures, rule.getCaptures());
+		assertSame(capture, castNonNull(rule.getCaptures()).getCapture("1"));
+	}
+
+	private static IGrammar createGrammar(final IRawGrammar rawGrammar) {
+		final var registry = new SyncRegistry(Theme.createFromRawTheme(null, null));
+		registry.addGrammar(rawGrammar, null);
+		return castNonNull(registry.grammarForScopeName(rawGrammar.getScopeName(), 0, null, null, null));
+	}
+
+	private static List<String> tokenize(final IGrammar grammar) throws Exception {
+		try (InputStream in = Data.class.getResourceAsStream("raytracer.ts")) {
+			return TokenizationUtils.tokenizeText(in, grammar)
+					.flatMap(result -> Arrays.stream(result.getTokens()))
+					.map(token -> token.getStartIndex() + "-" + token.getEndIndex() + " " + token.getScopes())
+					.toList();
+		}
+	}
+}
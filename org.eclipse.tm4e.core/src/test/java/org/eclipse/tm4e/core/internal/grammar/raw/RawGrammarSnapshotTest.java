@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.grammar.raw;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.TokenizationUtils;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.IGrammarSource.ContentType;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RawGrammarSnapshotTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testSnapshotEqualsParsedGrammar() throws Exception {
+		for (final var grammarFile : List.of("JavaScript.tmLanguage", "JavaScript.tmLanguage.json", "JavaScript.tmLanguage.yaml",
+				"TypeScript.tmLanguage.json")) {
+			final var grammar = RawGrammarReader.readGrammar(IGrammarSource.fromResource(Data.class, grammarFile));
+			final var snapshot = new ByteArrayOutputStream();
+			RawGrammarReader.writeSnapshot(grammar, snapshot);
+
+			final var restored = RawGrammarReader.readGrammar(new IGrammarSource() {
+				@Override
+				public String getFilePath() {
+					return grammarFile + IGrammarSource.SNAPSHOT_FILE_EXTENSION;
+				}
+
+				@Override
+				public Reader getReader() {
+					throw new UnsupportedOperationException();
+				}
+
+				@Override
+				public InputStream getInputStream() {
+					return new ByteArrayInputStream(snapshot.toByteArray());
+				}
+			});
+			assertEquals(grammar, restored, grammarFile);
+			assertInstanceOf(RawRepository.class, restored.getRepository());
+		}
+	}
+
+	@Test
+	void testTokenizeWithSnapshot() throws Exception {
+		final var grammarFile = tempDir.resolve("TypeScript.tmLanguage.json");
+		try (var in = Data.class.getResourceAsStream("TypeScript.tmLanguage.json")) {
+			Files.copy(in, grammarFile);
+		}
+		final var snapshotFile = tempDir.resolve("snapshots").resolve("TypeScript.tmLanguage.json.tmsnapshot");
+		assertTrue(RawGrammarSnapshotGenerator.generate(grammarFile, snapshotFile));
+		assertTrue(Files.exists(snapshotFile));
+		assertEquals(ContentType.SNAPSHOT, IGrammarSource.fromFile(snapshotFile).getContentType());
+
+		// up-to-date snapshots are not regenerated
+		final var newerThanGrammar = FileTime.fromMillis(Files.getLastModifiedTime(grammarFile).toMillis() + 1000);
+		Files.setLastModifiedTime(snapshotFile, newerThanGrammar);
+		assertFalse(RawGrammarSnapshotGenerator.generate(grammarFile, snapshotFile));
+
+		// snapshots of another format version are regenerated
+		Files.write(snapshotFile, withFormatVersion(Files.readAllBytes(snapshotFile), 999));
+		Files.setLastModifiedTime(snapshotFile, newerThanGrammar);
+		assertTrue(RawGrammarSnapshotGenerator.generate(grammarFile, snapshotFile));
+		assertFalse(RawGrammarSnapshotGenerator.generate(grammarFile, snapshotFile));
+
+		final IGrammar fromSnapshot = castNonNull(new Registry().addGrammar(IGrammarSource.fromFile(snapshotFile)));
+		final IGrammar fromJSON = castNonNull(new Registry().addGrammar(IGrammarSource.fromFile(grammarFile)));
+		assertEquals(fromJSON.getScopeName(), fromSnapshot.getScopeName());
+		assertEquals(tokenize(fromJSON), tokenize(fromSnapshot));
+	}
+
+	@Test
+	void testCorruptSnapshot() throws Exception {
+		final var grammarFile = tempDir.resolve("TypeScript.tmLanguage.json");
+		try (var in = Data.class.getResourceAsStream("TypeScript.tmLanguage.json")) {
+			Files.copy(in, grammarFile);
+		}
+		final var snapshotFile = tempDir.resolve("TypeScript.tmLanguage.json.tmsnapshot");
+		RawGrammarSnapshotGenerator.generate(grammarFile, snapshotFile);
+		final var bytes = Files.readAllBytes(snapshotFile);
+
+		final var truncatedFile = tempDir.resolve("truncated.tmsnapshot");
+		Files.write(truncatedFile, Arrays.copyOf(bytes, bytes.length / 2));
+		assertThrows(IOException.class, () -> RawGrammarReader.readGrammar(IGrammarSource.fromFile(truncatedFile)));
+
+		final var notASnapshotFile = tempDir.resolve("grammar.tmsnapshot");
+		Files.copy(grammarFile, notASnapshotFile);
+		assertThrows(IOException.class, () -> RawGrammarReader.readGrammar(IGrammarSource.fromFile(notASnapshotFile)));
+	}
+
+	@Test
+	void testFallbackToTextGrammar() throws Exception {
+		final var grammar = RawGrammarReader.readGrammar(IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final var snapshot = new ByteArrayOutputStream();
+		RawGrammarReader.writeSnapshot(grammar, snapshot);
+		final var outdatedSnapshot = withFormatVersion(snapshot.toByteArray(), 999);
+
+		// a snapshot that cannot be read is replaced by the text grammar it was generated from
+		final var restored = RawGrammarReader.readGrammar(new IGrammarSource() {
+			@Override
+			public String getFilePath() {
+				return "TypeScript.tmLanguage.json" + IGrammarSource.SNAPSHOT_FILE_EXTENSION;
+			}
+
+			@Override
+			public Reader getReader() throws IOException {
+				return IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json").getReader();
+			}
+
+			@Override
+			public InputStream getInputStream() {
+				return new ByteArrayInputStream(outdatedSnapshot);
+			}
+		});
+		assertEquals(grammar, restored);
+	}
+
+	@Test
+	void testFallbackToTextGrammarWithoutInputStream() throws Exception {
+		final var grammar = RawGrammarReader.readGrammar(IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json"));
+
+		// a source reporting snapshot content without providing its bytes is read as text grammar
+		final var restored = RawGrammarReader.readGrammar(new IGrammarSource() {
+			@Override
+			public String getFilePath() {
+				return "TypeScript.tmLanguage.json" + IGrammarSource.SNAPSHOT_FILE_EXTENSION;
+			}
+
+			@Override
+			public Reader getReader() throws IOException {
+				return IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json").getReader();
+			}
+		});
+		assertEquals(grammar, restored);
+	}
+
+	/**
+	 * @return a copy of the given snapshot with the format version following the magic number replaced
+	 */
+	private static byte[] withFormatVersion(final byte[] snapshot, final int formatVersion) {
+		final var result = snapshot.clone();
+		ByteBuffer.wrap(result).putInt(4, formatVersion);
+		return result;
+	}
+
+	private static List<String> tokenize(final IGrammar grammar) throws Exception {
+		try (InputStream in = Data.class.getResourceAsStream("raytracer.ts")) {
+			return TokenizationUtils.tokenizeText(in, grammar)
+					.flatMap(result -> Arrays.stream(result.getTokens()))
+					.map(token -> token.getStartIndex() + "-" + token.getEndIndex() + " " + token.getScopes())
+					.toList();
+		}
+	}
+}
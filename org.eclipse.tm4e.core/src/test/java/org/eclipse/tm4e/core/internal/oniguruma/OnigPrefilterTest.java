@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.oniguruma;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class OnigPrefilterTest {
+
+	@Test
+	void testDerivation() {
+		assertEquals("OnigPrefilter[literal=function, anchored=false]", prefilter("\\bfunction\\b").toString());
+		assertEquals("OnigPrefilter[literal=/*, anchored=false]", prefilter("/\\*").toString());
+		assertEquals("OnigPrefilter[literal=ab, anchored=false]", prefilter("(?<=\\s)abc?").toString());
+		assertEquals("OnigPrefilter[literal=a, anchored=false]", prefilter("a+b").toString());
+		assertEquals("OnigPrefilter[literal=:, anchored=true]", prefilter("\\G(?!\\s):").toString());
+		assertEquals("OnigPrefilter[literal=\uFFFF, anchored=false]", prefilter("\\\uFFFF").toString());
+		assertEquals("OnigPrefilter[firstBytes=0123456789, anchored=false]", prefilter("[0-9]+\\.?").toString());
+		assertEquals("OnigPrefilter[firstBytes=\"', anchored=false]", prefilter("([\"'])(.*?)").toString());
+		assertEquals("OnigPrefilter[firstBytes=bcf, anchored=false]", prefilter("\\b(?:break|case|(?<n>for)|f)\\b").toString());
+		assertEquals("OnigPrefilter[firstBytes=/x, anchored=false]", prefilter("//|x").toString());
+		assertEquals("OnigPrefilter[firstBytes=\\xc3, anchored=false]", prefilter("[\u00e0-\u00ff]").toString());
+
+		for (final var regExp : List.of(
+				".*", "\\s*foo", "a?b", "(a|)b", "(?:ab)?c", "[^a]", "[\\w]", "\\d+", "\\1x", "(?i)foo", "(?x) a b", "$",
+				"(?=a)", "a{0,2}b", "[[:alpha:]]", "(?~abc)", "\\G")) {
+			assertNull(OnigPrefilter.of(regExp), regExp);
+		}
+	}
+
+	@Test
+	void testMayMatch() {
+		final var keyword = prefilter("\\bfunction\\b");
+		assertTrue(mayMatch(keyword, "var f = function() {}", 0));
+		assertTrue(mayMatch(keyword, "var f = function() {}", 8));
+		assertFalse(mayMatch(keyword, "var f = function() {}", 9));
+		assertFalse(mayMatch(keyword, "", 0));
+
+		final var anchored = prefilter("\\G:");
+		assertTrue(mayMatch(anchored, "a:b", 1));
+		assertFalse(mayMatch(anchored, "a:b", 0));
+		assertFalse(mayMatch(anchored, "a:b", 3));
+
+		final var quote = prefilter("[\"']");
+		assertTrue(mayMatch(quote, "a = 'b'", 0));
+		assertFalse(mayMatch(quote, "a = 'b'", 7));
+
+		final var nonAscii = prefilter("\u00e4+");
+		assertTrue(mayMatch(nonAscii, "a\u00e4", 0));
+		assertFalse(mayMatch(nonAscii, "a\u00e0", 0));
+	}
+
+	@Test
+	void testSkippedSearchesAreCounted() {
+		final var scanner = new OnigScanner(List.of("\\bclass\\b", "\\bfunction\\b", "[{}]"));
+		final var source = OnigString.of("function f() {}");
+
+		OnigScanner.setPrefilterStatisticsEnabled(true);
+		try {
+			final var before = OnigScanner.getPrefilterStatistics();
+			// "class" is skipped, the search stops after "function" matched at the start position
+			final var match = scanner.findNextMatch(source, 0);
+			assertEquals(1, castNonNull(match).index);
+			final var after = OnigScanner.getPrefilterStatistics();
+			assertTrue(after.checkedSearches() - before.checkedSearches() >= 2);
+			assertTrue(after.skippedSearches() - before.skippedSearches() >= 1);
+		} finally {
+			OnigScanner.setPrefilterStatisticsEnabled(false);
+		}
+	}
+
+	private static OnigPrefilter prefilter(final String regExp) {
+		return castNonNull(OnigPrefilter.of(regExp));
+	}
+
+	private static boolean mayMatch(final OnigPrefilter prefilter, final String str, final int charOffset) {
+		final var onigString = OnigString.of(str);
+		return prefilter.mayMatch(onigString.bytesUTF8, onigString.getByteIndexOfChar(charOffset), onigString.bytesCount);
+	}
+}
@@ -31,7 +31,7 @@ void testOnigRegExp() throws Exception {
 	}
 
 	/**
-	 * Tests that no caching is performed if the regexp contains a \G anchor
+	 * Tests that results of a regexp containing a \G anchor are only reused for the same search position
 	 */
 	@Test
 	void testOnigRegExpCaching() {
@@ -49,5 +49,58 @@ void testOnigRegExpCaching() {
 		assertEquals(2, result.count());
 		assertEquals("MAKECMDGOALS", line.substring(result.locationAt(0), result.locationAt(0) + result.lengthAt(0)));
 		assertEquals("MAKECMDGOALS", line.substring(result.locationAt(1), result.locationAt(1) + result.lengthAt(1)));
+
+		assertSame(result, regexp.search(onigLine, 28));
+		assertNull(regexp.search(onigLine, 29));
+	}
+
+	@Test
+	void testSearchResultsAreSharedPerString() {
+		final var regexp1 = new OnigRegExp("[a-z]+");
+		final var regexp2 = new OnigRegExp("[a-z]+");
+		final var onigLine = OnigString.of("12 abc 34 def");
+
+		final var result = regexp1.search(onigLine, 0);
+		assertNotNull(result);
+		assertEquals(3, result.locationAt(0));
+
+		// an equal regexp, e.g. of a rule included by another rule or injection, reuses the search of the same line
+		assertSame(result, regexp2.search(onigLine, 2));
+		assertSame(result, regexp2.search(onigLine, 6));
+		assertEquals(10, result.locationAt(0));
+
+		// the results are scoped to the searched line
+		final var nextLine = OnigString.of("12 abc 34 def");
+		final var nextResult = regexp2.search(nextLine, 6);
+		assertNotNull(nextResult);
+		assertNotSame(result, nextResult);
+		assertEquals(10, nextResult.locationAt(0));
+		assertNull(new OnigRegExp("[a-z]+\\d").search(onigLine, 0));
+	}
+
+	@Test
+	void testOnigRegExpReusesMatcherPerThread() throws Exception {
+		final var regexp = new OnigRegExp("[a-z]+");
+		final var line = "12 abc 34 def";
+		final var onigLine = OnigString.of(line);
+
+		final var result1 = regexp.search(onigLine, 0);
+		assertNotNull(result1);
+		assertEquals(3, result1.locationAt(0));
+		assertEquals(1, result1.count());
+
+		final var result2 = regexp.search(onigLine, 6);
+		assertSame(result1, result2);
+		assertEquals(10, result1.locationAt(0));
+		assertEquals(3, result1.lengthAt(0));
+
+		// a search of the same string in another thread must not alter the result of this thread
+		final var thread = new Thread(() -> regexp.search(onigLine, 0));
+		thread.start();
+		thread.join();
+		assertNotNull(regexp.search(onigLine, 6));
+		assertEquals(10, result1.locationAt(0));
+
+		assertNull(regexp.search(onigLine, 13));
 	}
 }
@@ -11,10 +11,18 @@
  */
 package org.eclipse.tm4e.core.internal.oniguruma;
 
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.InputStream;
 import java.util.Arrays;
+import java.util.List;
 
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.TokenizationUtils;
+import org.eclipse.tm4e.core.registry.IGrammarSource;
+import org.eclipse.tm4e.core.registry.Registry;
 import org.junit.jupiter.api.Test;
 
 class OnigScannerTest {
@@ -40,4 +48,98 @@ void testOnigScanner() {
 				result.getCaptureIndices());
 
 	}
+
+	@Test
+	void testOnigScannerWithMatchBuffer() {
+		final var scanner = new OnigScanner(Arrays.asList("c", "a(b)?", "(x)|(y)"));
+		final var line = OnigString.of("abcy");
+		final var match = new OnigMatchBuffer();
+
+		assertTrue(scanner.findNextMatch(line, 0, match));
+		assertEquals(1, match.getIndex());
+		assertEquals(2, match.getCaptureCount());
+		assertEquals(0, match.getCaptureStart(0));
+		assertEquals(2, match.getCaptureEnd(0));
+		assertEquals(1, match.getCaptureStart(1));
+		assertEquals(2, match.getCaptureEnd(1));
+		assertArrayEquals(castNonNull(scanner.findNextMatch(line, 0)).getCaptureIndices(), match.toCaptureIndices());
+
+		// the buffer is overwritten by subsequent searches
+		assertTrue(scanner.findNextMatch(line, 3, match));
+		assertEquals(2, match.getIndex());
+		assertEquals(3, match.getCaptureCount());
+		assertArrayEquals(new OnigCaptureIndex[] {
+			new OnigCaptureIndex(3, 4),
+			OnigCaptureIndex.EMPTY,
+			new OnigCaptureIndex(3, 4) },
+				match.toCaptureIndices());
+		assertThrows(IndexOutOfBoundsException.class, () -> match.getCaptureStart(3));
+
+		assertFalse(scanner.findNextMatch(line, 4, match));
+	}
+
+	@Test
+	void testCombinedSearch() {
+		final var line = "let x = a(b) + 'c\\'d' // \u00fcn\u00efc\u00f6d\u00e9 \t [x]  `tmpl`";
+		final List<List<String>> patternLists = List.of(
+				List.of("c", "a(b)?", "(x)|(y)"),
+				List.of("\\G\\s*", "(?<=\\w)\\(", "'(?:[^'\\\\]|\\\\.)*'", "//.*$"),
+				List.of("(?<name>[a-z]+)\\s*=", "(?i)LET\\b", "(?<=\\s)[+]", "(?=\\()", "$"),
+				List.of("[\u00e0-\u00ff]+", "\\p{L}+", "(`)([^`]*)(`)", "\\[(x)\\]", "\\b"),
+				// backreferences and extended mode are searched one after another
+				List.of("(['`])(.*?)\\1", "(?x) x \\s* = # comment", "\\w+"),
+				// duplicate group names cannot be combined
+				List.of("(?<n>b)", "(?<n>d)", "x"));
+
+		for (final var patterns : patternLists) {
+			final var sequentialScanner = new OnigScanner(patterns, false);
+			final var combinedScanner = new OnigScanner(patterns, true);
+			final var str = OnigString.of(line);
+			for (int position = 0; position <= line.length(); position++) {
+				final var expected = sequentialScanner.findNextMatch(str, position);
+				final var actual = combinedScanner.findNextMatch(str, position);
+				final var message = patterns + " at position " + position;
+				if (expected == null) {
+					assertNull(actual, message);
+				} else {
+					assertNotNull(actual, message);
+					assertEquals(expected.index, actual.index, message);
+					assertArrayEquals(expected.getCaptureIndices(), actual.getCaptureIndices(), message);
+				}
+			}
+		}
+	}
+
+	@Test
+	void testCombinedSearchTokenizesLikeSequentialSearch() throws Exception {
+		assertSameTokens("TypeScript.tmLanguage.json", "raytracer.ts");
+		assertSameTokens("Markdown.tmLanguage", "test.md.txt");
+		assertSameTokens("c.tmLanguage.json", "raytracer.ts");
+	}
+
+	private static void assertSameTokens(final String grammarFile, final String textFile) throws Exception {
+		final IGrammar combinedScanners;
+		System.setProperty(OnigScanner.COMBINED_SEARCH_PROPERTY, "true");
+		try {
+			combinedScanners = loadGrammar(grammarFile);
+			// the scanners of the rules are created lazily when a rule is first used
+			tokenize(combinedScanners, textFile);
+		} finally {
+			System.clearProperty(OnigScanner.COMBINED_SEARCH_PROPERTY);
+		}
+		assertEquals(tokenize(loadGrammar(grammarFile), textFile), tokenize(combinedScanners, textFile));
+	}
+
+	private static IGrammar loadGrammar(final String grammarFile) {
+		return castNonNull(new Registry().addGrammar(IGrammarSource.fromResource(Data.class, grammarFile)));
+	}
+
+	private static List<String> tokenize(final IGrammar grammar, final String textFile) throws Exception {
+		try (InputStream in = Data.class.getResourceAsStream(textFile)) {
+			return TokenizationUtils.tokenizeText(in, grammar)
+					.flatMap(result -> Arrays.stream(result.getTokens()))
+					.map(token -> token.getStartIndex() + "-" + token.getEndIndex() + " " + token.getScopes())
+					.toList();
+		}
+	}
 }
@@ -155,6 +155,35 @@ void testParseCapturesYAML() throws Exception {
 			"""), RawGrammarReader.OBJECT_FACTORY));
 	}
 
+	@Test
+	@SuppressWarnings("null")
+	void testParseYAMLAliases() throws Exception {
+		final var grammar = TMParserYAML.INSTANCE.parse(new StringReader("""
+			---
+			scopeName: &scope source.test
+			fileTypes: [test]
+			patterns:
+			- &pattern
+			  name: THE_PATTERN
+			  captures:
+			    0:
+			      name: THE_CAPTURE
+			  begin: "BEGIN_PATTERN"
+			  end: "END_PATTERN"
+			repository:
+			  copy:
+			    patterns:
+			    - *pattern
+			    name: *scope
+			"""), RawGrammarReader.OBJECT_FACTORY);
+		validateCaptures(grammar);
+		assertEquals("source.test", grammar.getScopeName());
+		assertEquals(List.of("test"), grammar.getFileTypes());
+		final var copy = grammar.getRepository().getRule("copy");
+		assertEquals("source.test", copy.getName());
+		assertEquals("THE_PATTERN", copy.getPatterns().iterator().next().getName());
+	}
+
 	@Test
 	void testParseJSON() throws Exception {
 		try (var is = Data.class.getResourceAsStream("csharp.json")) {
@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.internal.utils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class WeakInternerTest {
+
+	@Test
+	void testIntern() {
+		final var interner = new WeakInterner<StringBuilder>(sb -> sb.toString().hashCode(),
+				(a, b) -> a.toString().equals(b.toString()));
+
+		final var first = new StringBuilder("foo");
+		assertSame(first, interner.intern(first));
+		assertSame(first, interner.intern(new StringBuilder("foo")));
+		assertEquals(1, interner.size());
+
+		final var second = new StringBuilder("bar");
+		assertSame(second, interner.intern(second));
+		assertSame(second, interner.intern(new StringBuilder("bar")));
+		assertSame(first, interner.intern(new StringBuilder("foo")));
+		assertEquals(2, interner.size());
+	}
+}
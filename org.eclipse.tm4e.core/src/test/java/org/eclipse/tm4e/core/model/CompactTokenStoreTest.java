@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.tm4e.core.model.TMModel.LineTokens;
+import org.junit.jupiter.api.Test;
+
+class CompactTokenStoreTest {
+
+	@Test
+	void testStore() {
+		final var store = new CompactTokenStore();
+		final var tokens = List.of(new TMToken(0, "source.ts"), new TMToken(5, "keyword.ts"), new TMToken(9, "source.ts"));
+
+		final var stored = store.store(tokens);
+		assertEquals(tokens, stored);
+		assertEquals(List.of(), store.store(List.of()));
+		assertSame(stored.get(0).type, stored.get(2).type);
+		assertThrows(IndexOutOfBoundsException.class, () -> stored.get(3));
+
+		// lines with many tokens are stored in a dedicated array
+		final var manyTokens = new ArrayList<TMToken>();
+		for (int i = 0; i < CompactTokenStore.CHUNK_SIZE; i++) {
+			manyTokens.add(new TMToken(i, "type" + i % 100));
+		}
+		assertEquals(manyTokens, store.store(manyTokens));
+		assertEquals(tokens, stored);
+	}
+
+	@Test
+	void testCompact() {
+		final var store = new CompactTokenStore();
+		final var lines = new ArrayList<LineTokens>();
+		final var expected = new ArrayList<List<TMToken>>();
+		for (int i = 0; i < 10_000; i++) {
+			final var tokens = List.of(new TMToken(0, "line" + i % 10), new TMToken(i % 80, "comment"));
+			final var line = new LineTokens();
+			line.tokens = store.store(tokens);
+			lines.add(line);
+			expected.add(tokens);
+		}
+		assertFalse(store.isCompactionDue());
+
+		// replace the tokens of all but every 10th line
+		final var replaced = new ArrayList<List<TMToken>>();
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < lines.size(); i++) {
+				if (i % 10 != 0) {
+					final var oldTokens = lines.get(i).tokens;
+					lines.get(i).tokens = store.store(List.of(new TMToken(0, "round" + round)));
+					if (round == 9)
+						replaced.add(oldTokens);
+					expected.set(i, List.of(new TMToken(0, "round" + round)));
+				}
+			}
+		}
+		assertTrue(store.isCompactionDue());
+		assertTrue(store.compact(lines));
+		assertFalse(store.isCompactionDue());
+
+		for (int i = 0; i < lines.size(); i++) {
+			assertEquals(expected.get(i), lines.get(i).tokens);
+		}
+		// views obtained before the compaction remain valid
+		for (final var tokens : replaced) {
+			assertEquals(List.of(new TMToken(0, "round8")), tokens);
+		}
+
+		// nothing to reclaim
+		assertFalse(store.compact(lines));
+	}
+}
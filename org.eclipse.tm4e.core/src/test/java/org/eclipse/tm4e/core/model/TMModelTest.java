@@ -9,10 +9,20 @@
  */
 package org.eclipse.tm4e.core.model;
 
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
 import static org.eclipse.tm4e.core.registry.IGrammarSource.fromResource;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.internal.grammar.StateStack;
 import org.eclipse.tm4e.core.model.ITMModel.BackgroundTokenizationState;
 import org.eclipse.tm4e.core.registry.Registry;
@@ -76,4 +86,169 @@ public String getLineText(final int lineIndex) throws Exception {
 			tmModel.dispose();
 		}
 	}
+
+	@Test
+	void testParallelTokenization() throws IOException, InterruptedException {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final var textLines = createLargeTypeScriptSource();
+
+		final var expected = tokenize(grammar, textLines, 1, null);
+		final var actual = tokenize(grammar, textLines, 4, null);
+		for (int i = 0; i < textLines.length; i++) {
+			assertEquals(expected.get(i), actual.get(i), "Tokens of line " + i + " differ");
+		}
+	}
+
+	@Test
+	void testVisibleLinesAreTokenizedFirst() throws IOException, InterruptedException {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final var textLines = createLargeTypeScriptSource();
+
+		// the visible lines are located inside a block comment far below its start, i.e. tokenizing them with a guessed start
+		// state yields wrong tokens first which must be corrected by the regular revalidation
+		int commentLineIndex = textLines.length - 1;
+		while (!textLines[commentLineIndex].endsWith("/*")) {
+			commentLineIndex--;
+		}
+		final var visibleLineRange = new Range(commentLineIndex + 230, commentLineIndex + 270);
+		for (int i = commentLineIndex; i < visibleLineRange.toLineNumber; i++) {
+			assertFalse(textLines[i].contains("*/"));
+		}
+
+		final var expected = tokenize(grammar, textLines, 1, null);
+		final var firstEventRanges = new ArrayList<Range>();
+		final var actual = tokenize(grammar, textLines, 1, visibleLineRange, event -> {
+			synchronized (firstEventRanges) {
+				if (firstEventRanges.isEmpty())
+					firstEventRanges.addAll(event.ranges);
+			}
+		});
+
+		assertEquals(1, firstEventRanges.size());
+		final var firstRange = firstEventRanges.get(0);
+		assertTrue(firstRange.fromLineNumber <= visibleLineRange.fromLineNumber, firstRange.toString());
+		assertEquals(visibleLineRange.toLineNumber, firstRange.toLineNumber);
+		assertTrue(firstRange.fromLineNumber > 1, firstRange.toString());
+
+		// the visible lines are tokenized first, thus the scopes are seen in a different order
+		for (int i = 0; i < textLines.length; i++) {
+			assertEquals(normalize(expected.get(i)), normalize(actual.get(i)), "Tokens of line " + i + " differ");
+		}
+	}
+
+	@Test
+	void testCompactTokenStorage() throws IOException, InterruptedException {
+		final var grammar = new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json"));
+		final var textLines = createLargeTypeScriptSource();
+		final var expected = tokenize(grammar, textLines, 1, null);
+
+		final var tmModel = new TMModel(textLines.length) {
+			@Override
+			public String getLineText(final int lineIndex) throws Exception {
+				return textLines[lineIndex];
+			}
+		};
+		try {
+			tmModel.setCompactTokenStorage(true);
+			tmModel.setGrammar(grammar);
+			tmModel.addModelTokensChangedListener(event -> {
+			});
+			awaitTokenization(tmModel, textLines.length);
+
+			for (int i = 0; i < textLines.length; i++) {
+				final var tokens = castNonNull(tmModel.getLineTokens(i));
+				assertInstanceOf(CompactTokenStore.Tokens.class, tokens);
+				assertEquals(expected.get(i), tokens, "Tokens of line " + i + " differ");
+			}
+
+			// retokenizing all lines makes the previously stored tokens garbage
+			tmModel.onLinesReplaced(0, textLines.length, textLines.length);
+			Thread.sleep(100);
+			awaitTokenization(tmModel, textLines.length);
+			for (int i = 0; i < textLines.length; i++) {
+				assertEquals(expected.get(i), tmModel.getLineTokens(i), "Tokens of line " + i + " differ");
+			}
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	private void awaitTokenization(final TMModel tmModel, final int lineCount) throws InterruptedException {
+		for (int i = 0; i < lineCount; i++) {
+			while (tmModel.getLineTokens(i) == null) {
+				Thread.sleep(5);
+			}
+		}
+		while (tmModel.getBackgroundTokenizationState() == BackgroundTokenizationState.IN_PROGRESS) {
+			Thread.sleep(5);
+		}
+	}
+
+	/**
+	 * @return multiple copies of the raytracer source with block comments and template strings spanning over many lines
+	 */
+	private String[] createLargeTypeScriptSource() throws IOException {
+		final String raytracer;
+		try (var in = Data.class.getResourceAsStream("raytracer.ts")) {
+			raytracer = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+
+		final var text = new StringBuilder();
+		for (int i = 0; i < 10; i++) {
+			text.append(raytracer);
+			text.append(i % 2 == 0 ? "/*\n" : "*/\n");
+			text.append("const s = `\n").append(raytracer.substring(0, 300)).append("\n`;\n");
+		}
+		return text.toString().split("\\r?\\n");
+	}
+
+	/**
+	 * The order of the segments of a token type depends on the order the scopes were first seen by the tokenizer, which
+	 * differs from the sequential tokenization if lines are not tokenized in document order
+	 */
+	private List<String> normalize(final List<TMToken> tokens) {
+		return tokens.stream()
+				.map(t -> t.startIndex + ":" + Arrays.stream(t.type.split("\\.")).sorted().collect(Collectors.joining(".")))
+				.toList();
+	}
+
+	private List<List<TMToken>> tokenize(final IGrammar grammar, final String[] textLines, final int parallelism,
+			@Nullable final Range visibleLineRange) throws InterruptedException {
+		return tokenize(grammar, textLines, parallelism, visibleLineRange, event -> {
+		});
+	}
+
+	private List<List<TMToken>> tokenize(final IGrammar grammar, final String[] textLines, final int parallelism,
+			@Nullable final Range visibleLineRange, final ModelTokensChangedEvent.Listener listener) throws InterruptedException {
+		final var tmModel = new TMModel(textLines.length) {
+			@Override
+			public String getLineText(final int lineIndex) throws Exception {
+				return textLines[lineIndex];
+			}
+		};
+		try {
+			tmModel.setTokenizerParallelism(parallelism);
+			if (visibleLineRange != null)
+				tmModel.setVisibleLineRanges(List.of(visibleLineRange));
+			tmModel.setGrammar(grammar);
+			tmModel.addModelTokensChangedListener(listener);
+
+			for (int i = 0; i < textLines.length; i++) {
+				while (tmModel.getLineTokens(i) == null) {
+					Thread.sleep(5);
+				}
+			}
+			while (tmModel.getBackgroundTokenizationState() == BackgroundTokenizationState.IN_PROGRESS) {
+				Thread.sleep(5);
+			}
+
+			final var result = new ArrayList<List<TMToken>>();
+			for (int i = 0; i < textLines.length; i++) {
+				result.add(castNonNull(tmModel.getLineTokens(i)));
+			}
+			return result;
+		} finally {
+			tmModel.dispose();
+		}
+	}
 }
@@ -0,0 +1,226 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.model;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+import static org.eclipse.tm4e.core.registry.IGrammarSource.fromResource;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.IStateStack;
+import org.eclipse.tm4e.core.model.ITMModel.BackgroundTokenizationState;
+import org.eclipse.tm4e.core.registry.IThemeSource;
+import org.eclipse.tm4e.core.registry.Registry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TokensCacheFileTest {
+
+	private static final String GRAMMAR_VERSION = "1.0.0";
+
+	@TempDir
+	Path tempDir;
+
+	private IGrammar grammar;
+	private String[] textLines;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		grammar = castNonNull(new Registry().addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json")));
+		try (var in = Data.class.getResourceAsStream("raytracer.ts")) {
+			// the trailing block comment spans over multiple lines and thus requires the line states to be restored correctly
+			textLines = (new String(in.readAllBytes(), StandardCharsets.UTF_8) + "\n/*\n * comment\n */\nconst x = 1;")
+					.split("\\r?\\n");
+		}
+	}
+
+	@Test
+	void testRestoreUnchangedDocument() throws Exception {
+		final var cacheFile = tempDir.resolve("raytracer.ts.tokens");
+		final var expected = saveTokens(textLines, cacheFile);
+
+		final var tmModel = createModel(textLines);
+		try {
+			tmModel.setGrammar(grammar);
+			assertEquals(textLines.length, TokensCacheFile.restore(tmModel, cacheFile, GRAMMAR_VERSION));
+
+			// the restored tokens are applied by the tokenizer thread before it tokenizes any line
+			final var changedRanges = new ArrayList<List<Range>>();
+			tmModel.addModelTokensChangedListener(event -> changedRanges.add(event.ranges));
+			assertEquals(expected, awaitTokens(tmModel, textLines.length));
+
+			// only the first line, which has no predecessor to compare its start state with, is tokenized again
+			assertEquals(2, changedRanges.size(), changedRanges.toString());
+			assertEquals(1, changedRanges.get(0).get(0).fromLineNumber);
+			assertEquals(textLines.length, changedRanges.get(0).get(0).toLineNumber);
+			assertEquals(1, changedRanges.get(1).get(0).toLineNumber);
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	@Test
+	void testRestoreModifiedDocument() throws Exception {
+		final var cacheFile = tempDir.resolve("raytracer.ts.tokens");
+		saveTokens(textLines, cacheFile);
+
+		final var modifiedLines = textLines.clone();
+		final int modifiedLineIndex = modifiedLines.length - 4;
+		assertEquals("/*", modifiedLines[modifiedLineIndex]);
+		modifiedLines[modifiedLineIndex] = "//";
+		final var expected = tokenize(modifiedLines);
+
+		final var tmModel = createModel(modifiedLines);
+		try {
+			tmModel.setGrammar(grammar);
+			assertEquals(textLines.length, TokensCacheFile.restore(tmModel, cacheFile, GRAMMAR_VERSION));
+			startTokenizerThread(tmModel);
+			// the lines following the modified line must be retokenized since they are no longer inside a block comment
+			final var actual = awaitTokens(tmModel, modifiedLines.length);
+			for (int i = 0; i < modifiedLines.length; i++) {
+				assertEquals(normalize(expected.get(i)), normalize(actual.get(i)), "Tokens of line " + i + " differ");
+			}
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	@Test
+	void testRestoreWithDifferentTheme() throws Exception {
+		final var cacheFile = tempDir.resolve("raytracer.ts.tokens");
+		saveTokens(textLines, cacheFile);
+
+		final var registry = new Registry();
+		registry.setTheme(IThemeSource.fromString(IThemeSource.ContentType.JSON, """
+				{"name": "Test", "settings": [
+					{"settings": {"foreground": "#000000", "background": "#FFFFFF"}},
+					{"scope": "comment", "settings": {"foreground": "#008000", "fontStyle": "italic"}}
+				]}"""));
+		final var themedGrammar = castNonNull(registry.addGrammar(fromResource(Data.class, "TypeScript.tmLanguage.json")));
+		IStateStack expectedEndState = null;
+		for (final var line : textLines) {
+			expectedEndState = themedGrammar.tokenizeLine(line, expectedEndState, null).getRuleStack();
+		}
+
+		final var tmModel = createModel(textLines);
+		try {
+			tmModel.setGrammar(themedGrammar);
+			assertEquals(textLines.length, TokensCacheFile.restore(tmModel, cacheFile, GRAMMAR_VERSION));
+
+			final var changedRanges = new ArrayList<List<Range>>();
+			tmModel.addModelTokensChangedListener(event -> changedRanges.add(event.ranges));
+			awaitTokens(tmModel, textLines.length);
+
+			// the restored states are styled with the current theme, thus they match the states of the tokenized first line
+			assertEquals(2, changedRanges.size(), changedRanges.toString());
+			assertEquals(1, changedRanges.get(1).get(0).toLineNumber);
+			assertEquals(expectedEndState, tmModel.lines.get(textLines.length - 1).endState);
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	@Test
+	void testRestoreWithDifferentGrammarVersion() throws Exception {
+		final var cacheFile = tempDir.resolve("raytracer.ts.tokens");
+		saveTokens(textLines, cacheFile);
+
+		final var tmModel = createModel(textLines);
+		try {
+			tmModel.setGrammar(grammar);
+			assertEquals(0, TokensCacheFile.restore(tmModel, cacheFile, "2.0.0"));
+			assertEquals(0, TokensCacheFile.restore(tmModel, tempDir.resolve("missing.tokens"), GRAMMAR_VERSION));
+
+			final var corruptFile = tempDir.resolve("corrupt.tokens");
+			final var bytes = Files.readAllBytes(cacheFile);
+			Files.write(corruptFile, Arrays.copyOf(bytes, bytes.length / 2));
+			assertEquals(0, TokensCacheFile.restore(tmModel, corruptFile, GRAMMAR_VERSION));
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	/**
+	 * The order of the segments of a token type depends on the order the scopes were first seen by the tokenizer
+	 */
+	private List<String> normalize(final List<TMToken> tokens) {
+		return tokens.stream()
+				.map(t -> t.startIndex + ":" + Arrays.stream(t.type.split("\\.")).sorted().collect(Collectors.joining(".")))
+				.toList();
+	}
+
+	private List<List<TMToken>> saveTokens(final String[] lines, final Path cacheFile) throws Exception {
+		final var tmModel = createModel(lines);
+		try {
+			assertFalse(TokensCacheFile.save(tmModel, cacheFile, GRAMMAR_VERSION), "model without grammar must not be saved");
+			tmModel.setGrammar(grammar);
+			startTokenizerThread(tmModel);
+			final var tokens = awaitTokens(tmModel, lines.length);
+			assertTrue(TokensCacheFile.save(tmModel, cacheFile, GRAMMAR_VERSION));
+			return tokens;
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	private List<List<TMToken>> tokenize(final String[] lines) throws Exception {
+		final var tmModel = createModel(lines);
+		try {
+			tmModel.setGrammar(grammar);
+			startTokenizerThread(tmModel);
+			return awaitTokens(tmModel, lines.length);
+		} finally {
+			tmModel.dispose();
+		}
+	}
+
+	private TMModel createModel(final String[] textLines) {
+		return new TMModel(textLines.length) {
+			@Override
+			public String getLineText(final int lineIndex) throws Exception {
+				return textLines[lineIndex];
+			}
+		};
+	}
+
+	private void startTokenizerThread(final TMModel tmModel) {
+		// adding a listener will spawn the TokenizerThread
+		tmModel.addModelTokensChangedListener(event -> {
+		});
+	}
+
+	private List<List<TMToken>> awaitTokens(final TMModel tmModel, final int lineCount) throws InterruptedException {
+		for (int i = 0; i < lineCount; i++) {
+			while (tmModel.getLineTokens(i) == null) {
+				Thread.sleep(5);
+			}
+		}
+		while (tmModel.getBackgroundTokenizationState() == BackgroundTokenizationState.IN_PROGRESS) {
+			Thread.sleep(5);
+		}
+
+		final var result = new ArrayList<List<TMToken>>();
+		for (int i = 0; i < lineCount; i++) {
+			result.add(castNonNull(tmModel.getLineTokens(i)));
+		}
+		return result;
+	}
+}
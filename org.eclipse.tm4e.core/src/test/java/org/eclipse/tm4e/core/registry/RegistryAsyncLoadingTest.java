@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.core.registry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.Data;
+import org.eclipse.tm4e.core.TMException;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.grammar.IToken;
+import org.junit.jupiter.api.Test;
+
+class RegistryAsyncLoadingTest {
+
+	private static final String LINE = "@Component({template:`<a href='' ></a>`, styles: ['a { color: red }']})";
+
+	private static final class CountingOptions implements IRegistryOptions {
+		final Map<String, AtomicInteger> grammarSourceRequests = new ConcurrentHashMap<>();
+
+		@Override
+		public @Nullable Collection<String> getInjections(final String scopeName) {
+			return List.of("template.ng", "styles.ng");
+		}
+
+		@Override
+		public @Nullable IGrammarSource getGrammarSource(final String scopeName) {
+			grammarSourceRequests.computeIfAbsent(scopeName, k -> new AtomicInteger()).incrementAndGet();
+			return switch (scopeName) {
+				case "source.css" -> IGrammarSource.fromResource(Data.class, "css.json");
+				case "source.js" -> IGrammarSource.fromResource(Data.class, "JavaScript.tmLanguage.json");
+				case "source.ts" -> IGrammarSource.fromResource(Data.class, "TypeScript.tmLanguage.json");
+				case "styles.ng" -> IGrammarSource.fromResource(Data.class, "styles.ng.json");
+				case "template.ng" -> IGrammarSource.fromResource(Data.class, "template.ng.json");
+				default -> null;
+			};
+		}
+	}
+
+	@Test
+	void testConcurrentAsyncLoadsAreDeduplicated() throws Exception {
+		final var expected = new Registry(new CountingOptions()).loadGrammar("source.ts");
+		assertNotNull(expected);
+
+		final var options = new CountingOptions();
+		final var registry = new Registry(options);
+		final var executor = Executors.newFixedThreadPool(4);
+		try {
+			final var loads = new ArrayList<CompletableFuture<@Nullable IGrammar>>();
+			for (int i = 0; i < 8; i++) {
+				loads.add(registry.loadGrammarAsync("source.ts", executor));
+			}
+			final var grammar = loads.get(0).get(30, TimeUnit.SECONDS);
+			assertNotNull(grammar);
+			for (final var load : loads) {
+				assertSame(grammar, load.get(30, TimeUnit.SECONDS));
+			}
+			assertSame(grammar, registry.loadGrammar("source.ts"));
+
+			assertTrue(options.grammarSourceRequests.containsKey("template.ng"));
+			assertTrue(options.grammarSourceRequests.containsKey("styles.ng"));
+			options.grammarSourceRequests.forEach((scopeName, count) -> assertEquals(1, count.get(), scopeName));
+
+			assertEquals(toString(expected.tokenizeLine(LINE).getTokens()), toString(grammar.tokenizeLine(LINE).getTokens()));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void testAsyncLoadOfUnknownScope() throws Exception {
+		final var registry = new Registry(new CountingOptions());
+		final var executor = Executors.newSingleThreadExecutor();
+		try {
+			final var load = registry.loadGrammarAsync("source.unknown", executor);
+			final var ex = assertThrows(ExecutionException.class, () -> load.get(30, TimeUnit.SECONDS));
+			assertInstanceOf(TMException.class, ex.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static List<String> toString(final IToken[] tokens) {
+		return Arrays.stream(tokens)
+				.map(t -> t.getStartIndex() + "-" + t.getEndIndex() + " " + t.getScopes())
+				.toList();
+	}
+}
@@ -99,4 +99,13 @@ public interface IGrammarRegistryManager {
 	 */
 	@Nullable
 	Collection<String> getInjections(String scopeName);
+
+	/**
+	 * Notifies the registry that the grammar with the given scope name was applied to an editor. The registry uses this
+	 * to preload frequently used grammars in the background on startup.
+	 * <p>
+	 * The default implementation does nothing.
+	 */
+	default void recordGrammarUsage(final String scopeName) {
+	}
 }
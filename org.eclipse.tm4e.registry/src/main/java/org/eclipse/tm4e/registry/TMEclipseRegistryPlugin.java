@@ -65,6 +65,7 @@ public void start(@Nullable final BundleContext bundleContext) throws Exception
 
 	@Override
 	public void stop(@Nullable final BundleContext bundleContext) throws Exception {
+		GrammarRegistryManager.saveGrammarUsage();
 		plugin = null;
 		super.stop(bundleContext);
 	}
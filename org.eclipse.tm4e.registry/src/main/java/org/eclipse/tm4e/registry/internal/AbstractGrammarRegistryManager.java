@@ -15,12 +15,14 @@
 import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.*;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 
+import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.tm4e.core.grammar.IGrammar;
@@ -63,6 +65,10 @@ public Collection<String> getInjections(final String scopeName) {
 			if (info == null)
 				return null;
 
+			final var snapshotSource = getSnapshotSource(info);
+			if (snapshotSource != null)
+				return snapshotSource;
+
 			return new IGrammarSource() {
 				@Override
 				public Reader getReader() throws IOException {
@@ -76,6 +82,48 @@ public String getFilePath() {
 			};
 		}
 
+		/**
+		 * @return the precompiled snapshot shipped next to the grammar of a plugin or <code>null</code> if the plugin
+		 *         ships none
+		 */
+		@Nullable
+		private IGrammarSource getSnapshotSource(final IGrammarDefinition info) {
+			final var pluginId = info.getPluginId();
+			if (pluginId == null)
+				return null;
+			final var bundle = Platform.getBundle(pluginId);
+			if (bundle == null)
+				return null;
+
+			final var snapshotPath = info.getPath() + IGrammarSource.SNAPSHOT_FILE_EXTENSION;
+			final var snapshotURL = bundle.getEntry(snapshotPath);
+			if (snapshotURL == null)
+				return null; // no snapshot was generated for this grammar
+
+			// if the snapshot cannot be read, the grammar is parsed from the text returned by getReader()
+			return new IGrammarSource() {
+				@Override
+				public Reader getReader() throws IOException {
+					return new InputStreamReader(info.getInputStream());
+				}
+
+				@Override
+				public InputStream getInputStream() throws IOException {
+					return snapshotURL.openStream();
+				}
+
+				@Override
+				public String getFilePath() {
+					return snapshotPath;
+				}
+
+				@Override
+				public ContentType getContentType() {
+					return ContentType.SNAPSHOT;
+				}
+			};
+		}
+
 		@Nullable
 		private IGrammarDefinition getDefinition(final String scopeName) {
 			final var registryManager = this.registryManager;
@@ -130,25 +178,39 @@ public IGrammar getGrammarForScope(final String scopeName) {
 	@Nullable
 	@Override
 	public IGrammar getGrammarForFileType(String fileType) {
-		// TODO: cache grammar by file types
-		final IGrammarDefinition[] definitions = getDefinitions();
 		// #202
 		if (fileType.startsWith(".")) {
 			fileType = fileType.substring(1);
 		}
-		for (final var definition : definitions) {
-			// Not very optimized because it forces the load of the whole grammar.
-			// Extension Point grammar should perhaps stores file type bindings
-			// like content type/scope binding?
+		var scopeName = pluginCache.getScopeNameForFileType(fileType, this::getFileTypes);
+		if (scopeName == null) {
+			scopeName = userCache.getScopeNameForFileType(fileType, this::getFileTypes);
+		}
+		GrammarFileTypesIndex.INSTANCE.save();
+		return getGrammar(scopeName);
+	}
+
+	/**
+	 * Returns the file types declared by the given grammar definition. They are taken from the
+	 * {@link GrammarFileTypesIndex} if the grammar did not change since they were read. Otherwise they are read from the
+	 * grammar file header if possible, the whole grammar is only loaded for formats not supported by
+	 * {@link GrammarFileTypesReader}.
+	 */
+	private Collection<String> getFileTypes(final IGrammarDefinition definition) {
+		final var index = GrammarFileTypesIndex.INSTANCE;
+		var fileTypes = index.get(definition);
+		if (fileTypes != null) {
+			return fileTypes;
+		}
+		fileTypes = GrammarFileTypesReader.read(definition);
+		if (fileTypes == null) {
 			final var grammar = getGrammarForScope(definition.getScopeName());
-			if (grammar != null) {
-				final Collection<String> fileTypes = grammar.getFileTypes();
-				if (fileTypes.contains(fileType)) {
-					return grammar;
-				}
-			}
+			if (grammar == null)
+				return List.of(); // not persisted, so the grammar is tried again in the next session
+			fileTypes = grammar.getFileTypes();
 		}
-		return null;
+		index.put(definition, fileTypes);
+		return fileTypes;
 	}
 
 	@Nullable
@@ -17,9 +17,12 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Function;
 
 import org.eclipse.core.runtime.content.IContentType;
 import org.eclipse.jdt.annotation.Nullable;
@@ -30,21 +33,62 @@
  */
 final class GrammarCache {
 
-	private final Map<String /* Scope name */, IGrammarDefinition> definitions = new HashMap<>();
+	/** in registration order, which decides which definition a file type declared by several definitions is bound to */
+	private final Map<String /* Scope name */, IGrammarDefinition> definitions = new LinkedHashMap<>();
 	private final Map<String /* Scope name */, Collection<String>> injections = new HashMap<>();
 	private final Map<IContentType, String /* Scope name */> scopeNameBindings = new HashMap<>();
 
+	/** file types declared by the definitions indexed so far */
+	private final Map<String /* Scope name */, Collection<String>> indexedFileTypes = new HashMap<>();
+	/** each file type is bound to the first registered definition declaring it, see {@link #bindFileTypes(Collection)} */
+	private final Map<String /* File type */, String /* Scope name */> fileTypeBindings = new HashMap<>();
+	/** definitions whose file types have not been read yet */
+	private final Map<String /* Scope name */, IGrammarDefinition> unindexedDefinitions = new HashMap<>();
+
 	/**
 	 * Register a grammar definition.
 	 *
 	 * @param definition the grammar definition to register.
 	 */
-	void registerGrammarDefinition(final IGrammarDefinition definition) {
-		definitions.put(definition.getScopeName(), definition);
+	synchronized void registerGrammarDefinition(final IGrammarDefinition definition) {
+		final String scopeName = definition.getScopeName();
+		definitions.put(scopeName, definition);
+		unbindFileTypes(scopeName);
+		unindexedDefinitions.put(scopeName, definition);
+	}
+
+	synchronized void unregisterGrammarDefinition(final IGrammarDefinition definition) {
+		final String scopeName = definition.getScopeName();
+		definitions.remove(scopeName);
+		unbindFileTypes(scopeName);
+		unindexedDefinitions.remove(scopeName);
 	}
 
-	void unregisterGrammarDefinition(final IGrammarDefinition definition) {
-		definitions.remove(definition.getScopeName());
+	/**
+	 * Removes the indexed file types of the given definition and binds them to the other definitions declaring them.
+	 */
+	private void unbindFileTypes(final String scopeName) {
+		final var fileTypes = indexedFileTypes.remove(scopeName);
+		if (fileTypes != null) {
+			bindFileTypes(fileTypes);
+		}
+	}
+
+	/**
+	 * Binds each of the given file types to the first registered definition declaring it, independent of the order in
+	 * which the definitions were indexed.
+	 */
+	private void bindFileTypes(final Collection<String> fileTypes) {
+		for (final String fileType : fileTypes) {
+			fileTypeBindings.remove(fileType);
+			for (final String scopeName : definitions.keySet()) {
+				final var declaredFileTypes = indexedFileTypes.get(scopeName);
+				if (declaredFileTypes != null && declaredFileTypes.contains(fileType)) {
+					fileTypeBindings.put(fileType, scopeName);
+					break;
+				}
+			}
+		}
 	}
 
 	/**
@@ -73,6 +117,48 @@ IGrammarDefinition getDefinition(final String scopeName) {
 		return grammar;
 	}
 
+	/**
+	 * Returns the scope name of the grammar declaring the given file type and null otherwise.
+	 * <p>
+	 * The file types of grammar definitions registered since the last call are indexed first using the given
+	 * <code>fileTypesReader</code>, so each definition is only read once. The reader is called without holding the lock
+	 * of this cache, as it may have to load whole grammars.
+	 *
+	 * @param fileType the file type without leading dot, e.g. <code>java</code>
+	 * @param fileTypesReader returns the file types declared by a grammar definition
+	 */
+	@Nullable
+	String getScopeNameForFileType(final String fileType,
+			final Function<IGrammarDefinition, Collection<String>> fileTypesReader) {
+		final List<IGrammarDefinition> definitionsToIndex;
+		synchronized (this) {
+			if (unindexedDefinitions.isEmpty())
+				return fileTypeBindings.get(fileType);
+			definitionsToIndex = new ArrayList<>(unindexedDefinitions.values());
+		}
+
+		final var fileTypes = new ArrayList<Collection<String>>(definitionsToIndex.size());
+		for (final var definition : definitionsToIndex) {
+			fileTypes.add(fileTypesReader.apply(definition));
+		}
+
+		synchronized (this) {
+			for (int i = 0; i < definitionsToIndex.size(); i++) {
+				final var definition = definitionsToIndex.get(i);
+				final String scopeName = definition.getScopeName();
+				// skip definitions indexed by a concurrent call or (un)registered in the meantime
+				if (unindexedDefinitions.get(scopeName) != definition) {
+					continue;
+				}
+				final var declaredFileTypes = new HashSet<>(fileTypes.get(i));
+				indexedFileTypes.put(scopeName, declaredFileTypes);
+				bindFileTypes(declaredFileTypes);
+				unindexedDefinitions.remove(scopeName);
+			}
+			return fileTypeBindings.get(fileType);
+		}
+	}
+
 	/**
 	 * Returns list of scope names to inject for the given <code>scopeName</code> and null otherwise.
 	 *
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.registry.internal;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.registry.IGrammarDefinition;
+import org.eclipse.tm4e.registry.TMEclipseRegistryPlugin;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Persists the file types declared by grammars in the state location of this plugin, so the grammar files are only read
+ * again when they changed. Without it, plist and YAML grammars would be parsed completely on every start just to find
+ * their file types.
+ * <p>
+ * The file types of a grammar contributed by a plugin are keyed by the plugin's version and the grammar's path, those of
+ * a user grammar by its path and modification time. Entries not used in a session in which new file types were read are
+ * dropped on save.
+ */
+final class GrammarFileTypesIndex {
+
+	static final GrammarFileTypesIndex INSTANCE = new GrammarFileTypesIndex(getDefaultFile());
+
+	private static final String FILE_NAME = "grammar-file-types.json";
+
+	private static final Gson GSON = new Gson();
+	private static final Type ENTRIES_TYPE = new TypeToken<Map<String, List<String>>>() {}.getType();
+
+	private final @Nullable Path file;
+	private final Map<String /* Grammar key */, List<String> /* File types */> entries = new ConcurrentHashMap<>();
+	private final Set<String> usedKeys = ConcurrentHashMap.newKeySet();
+	private volatile boolean isLoaded;
+	private volatile boolean isDirty;
+
+	/**
+	 * @param file the file the index is persisted in or <code>null</code> to keep it in memory only
+	 */
+	GrammarFileTypesIndex(@Nullable final Path file) {
+		this.file = file;
+	}
+
+	@Nullable
+	private static Path getDefaultFile() {
+		final var plugin = TMEclipseRegistryPlugin.getDefault();
+		if (plugin == null)
+			return null; // e.g. in local unit tests
+		try {
+			return plugin.getStateLocation().toPath().resolve(FILE_NAME);
+		} catch (final IllegalStateException ex) {
+			return null; // no instance location
+		}
+	}
+
+	/**
+	 * @return the persisted file types of the given grammar or <code>null</code> if they are unknown or the grammar
+	 *         changed since they were read
+	 */
+	@Nullable
+	Collection<String> get(final IGrammarDefinition definition) {
+		final String key = getKey(definition);
+		if (key == null)
+			return null;
+		load();
+		final var fileTypes = entries.get(key);
+		if (fileTypes != null) {
+			usedKeys.add(key);
+		}
+		return fileTypes;
+	}
+
+	void put(final IGrammarDefinition definition, final Collection<String> fileTypes) {
+		final String key = getKey(definition);
+		if (key == null)
+			return;
+		load();
+		entries.put(key, List.copyOf(fileTypes));
+		usedKeys.add(key);
+		isDirty = true;
+	}
+
+	/**
+	 * Writes the index if file types were added since it was loaded.
+	 */
+	synchronized void save() {
+		final var file = this.file;
+		if (!isDirty || file == null)
+			return;
+		isDirty = false;
+
+		final var usedEntries = new TreeMap<String, List<String>>();
+		for (final String key : usedKeys) {
+			final var fileTypes = entries.get(key);
+			if (fileTypes != null) {
+				usedEntries.put(key, fileTypes);
+			}
+		}
+		try {
+			Files.createDirectories(file.getParent());
+			final var tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+			Files.writeString(tmpFile, GSON.toJson(usedEntries, ENTRIES_TYPE), StandardCharsets.UTF_8);
+			try {
+				Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException ex) {
+				Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (final IOException ex) {
+			Platform.getLog(getClass()).warn("Cannot save grammar file types index to " + file, ex);
+		}
+	}
+
+	private synchronized void load() {
+		final var file = this.file;
+		if (isLoaded || file == null)
+			return;
+		isLoaded = true;
+
+		try {
+			final @Nullable Map<String, List<String>> persisted = GSON.fromJson(
+					Files.readString(file, StandardCharsets.UTF_8), ENTRIES_TYPE);
+			if (persisted != null) {
+				persisted.forEach((key, fileTypes) -> {
+					if (key != null && fileTypes != null && !fileTypes.contains(null)) {
+						entries.putIfAbsent(key, List.copyOf(fileTypes));
+					}
+				});
+			}
+		} catch (final NoSuchFileException ex) {
+			// nothing persisted yet
+		} catch (final IOException | JsonParseException ex) {
+			Platform.getLog(getClass()).warn("Cannot read grammar file types index from " + file, ex);
+		}
+	}
+
+	/**
+	 * @return the key of the current content of the given grammar or <code>null</code> if it cannot be determined
+	 */
+	@Nullable
+	private static String getKey(final IGrammarDefinition definition) {
+		final String path = definition.getPath();
+		final String pluginId = definition.getPluginId();
+		if (pluginId != null) {
+			if (!Platform.isRunning())
+				return null;
+			final var bundle = Platform.getBundle(pluginId);
+			return bundle == null ? null : pluginId + '@' + bundle.getVersion() + '/' + path;
+		}
+		try {
+			return path + '@' + Files.getLastModifiedTime(Path.of(path)).toMillis();
+		} catch (final IOException | RuntimeException ex) {
+			return null;
+		}
+	}
+}
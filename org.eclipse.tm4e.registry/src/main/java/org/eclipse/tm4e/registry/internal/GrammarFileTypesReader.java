@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.registry.internal;
+
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.defaultIfNull;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.registry.IGrammarDefinition;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * Reads the <code>fileTypes</code> of a TextMate grammar without parsing its rules.
+ * <p>
+ * Only the top-level properties of JSON grammars are tokenized up to the <code>fileTypes</code> key, all other values
+ * are skipped without being materialized.
+ */
+final class GrammarFileTypesReader {
+
+	/**
+	 * @return the file types declared by the given grammar or <code>null</code> if the grammar is not in JSON format
+	 *         or could not be read
+	 */
+	@Nullable
+	static List<String> read(final IGrammarDefinition definition) {
+		final String path = defaultIfNull(definition.getPath(), "");
+		if (!path.toLowerCase().endsWith(".json"))
+			return null;
+
+		try (var reader = new JsonReader(new InputStreamReader(definition.getInputStream(), StandardCharsets.UTF_8))) {
+			reader.setLenient(true);
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (!"fileTypes".equals(reader.nextName())) {
+					reader.skipValue();
+					continue;
+				}
+				final var fileTypes = new ArrayList<String>();
+				if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+					reader.beginArray();
+					while (reader.hasNext()) {
+						if (reader.peek() == JsonToken.STRING) {
+							fileTypes.add(reader.nextString());
+						} else {
+							reader.skipValue();
+						}
+					}
+					reader.endArray();
+				}
+				return fileTypes;
+			}
+			return List.of();
+		} catch (final IOException | JsonParseException | IllegalStateException ex) {
+			Platform.getLog(GrammarFileTypesReader.class)
+					.warn("Cannot read file types of grammar '" + definition.getScopeName() + "' from " + path, ex);
+			return null;
+		}
+	}
+
+	private GrammarFileTypesReader() {
+	}
+}
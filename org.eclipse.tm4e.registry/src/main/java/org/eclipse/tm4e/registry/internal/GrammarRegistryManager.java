@@ -48,15 +48,44 @@ private static synchronized GrammarRegistryManager createInstance() {
 		}
 		final var manager = new GrammarRegistryManager();
 		manager.load();
+		if (GrammarWarmUp.isEnabled()) {
+			manager.warmUp.start(manager::getGrammarForScope);
+		}
 		return manager;
 	}
 
+	/**
+	 * Persists the usage statistics of the grammars used in this session, if the grammar registry manager was used at
+	 * all.
+	 */
+	public static void saveGrammarUsage() {
+		final var manager = INSTANCE;
+		if (manager == null)
+			return;
+		final var prefs = InstanceScope.INSTANCE.getNode(TMEclipseRegistryPlugin.PLUGIN_ID);
+		prefs.put(PreferenceConstants.GRAMMAR_USAGE_COUNTS, manager.warmUp.saveUsageCounts());
+		try {
+			prefs.flush();
+		} catch (final BackingStoreException ex) {
+			Platform.getLog(GrammarRegistryManager.class).warn("Cannot save grammar usage statistics", ex);
+		}
+	}
+
+	private final GrammarWarmUp warmUp = new GrammarWarmUp();
+
 	private GrammarRegistryManager() {
 	}
 
 	private void load() {
 		loadGrammarsFromExtensionPoints();
 		loadGrammarsFromPreferences();
+		warmUp.loadUsageCounts(InstanceScope.INSTANCE.getNode(TMEclipseRegistryPlugin.PLUGIN_ID)
+				.get(PreferenceConstants.GRAMMAR_USAGE_COUNTS, null));
+	}
+
+	@Override
+	public void recordGrammarUsage(final String scopeName) {
+		warmUp.recordUsage(scopeName);
 	}
 
 	/**
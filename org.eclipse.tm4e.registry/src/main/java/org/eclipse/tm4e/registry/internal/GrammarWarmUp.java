@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.registry.internal;
+
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * Tracks how often grammars are requested by editors across sessions and preloads the most frequently used grammars on
+ * a background thread with minimal priority, compiling all their rules ahead of time. This way the regular expressions
+ * of the working set are already compiled when the first file is opened instead of being compiled lazily on the
+ * tokenizer thread while the user types.
+ * <p>
+ * Warm-up can be disabled with the system property <code>-Dtm4e.registry.grammarWarmUp=false</code>.
+ */
+final class GrammarWarmUp {
+
+	static final String SYSTEM_PROPERTY = "tm4e.registry.grammarWarmUp";
+
+	/** max number of grammars preloaded on startup */
+	private static final int WORKING_SET_SIZE = 8;
+
+	/** max number of grammars whose usage is remembered across sessions */
+	private static final int MAX_TRACKED_GRAMMARS = 32;
+
+	/** once a usage count reaches this value all counts are halved, so grammars not used anymore age out over time */
+	private static final int MAX_USAGE_COUNT = 1024;
+
+	private static final Gson GSON = new Gson();
+	private static final Type USAGE_COUNTS_TYPE = new TypeToken<Map<String, Integer>>() {}.getType();
+
+	private final Map<String /* Scope name */, Integer /* Usage count */> usageCounts = new ConcurrentHashMap<>();
+
+	static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty(SYSTEM_PROPERTY, "true"));
+	}
+
+	/**
+	 * Restores the usage counts persisted by {@link #saveUsageCounts()}.
+	 */
+	void loadUsageCounts(@Nullable final String json) {
+		if (json == null)
+			return;
+		try {
+			final @Nullable Map<String, Integer> counts = GSON.fromJson(json, USAGE_COUNTS_TYPE);
+			if (counts != null) {
+				counts.forEach((scopeName, count) -> {
+					if (scopeName != null && count != null && count > 0) {
+						usageCounts.put(scopeName, count);
+					}
+				});
+			}
+		} catch (final JsonParseException ex) {
+			Platform.getLog(getClass()).warn("Cannot read grammar usage statistics: " + json, ex);
+		}
+	}
+
+	/**
+	 * @return the usage counts of the most frequently used grammars in JSON format
+	 */
+	String saveUsageCounts() {
+		final var counts = new LinkedHashMap<String, Integer>();
+		for (final var entry : getMostUsed(MAX_TRACKED_GRAMMARS)) {
+			counts.put(entry.getKey(), entry.getValue());
+		}
+		return GSON.toJson(counts);
+	}
+
+	void recordUsage(final String scopeName) {
+		final int count = usageCounts.merge(scopeName, 1, Integer::sum);
+		if (count >= MAX_USAGE_COUNT) {
+			usageCounts.replaceAll((name, c) -> c / 2);
+			usageCounts.values().removeIf(c -> c == 0);
+		}
+	}
+
+	/**
+	 * @return the scope names of the grammars to preload, most frequently used first
+	 */
+	List<String> getWorkingSet() {
+		return getMostUsed(WORKING_SET_SIZE).stream().map(Entry::getKey).toList();
+	}
+
+	private List<Entry<String, Integer>> getMostUsed(final int limit) {
+		return usageCounts.entrySet().stream()
+				.sorted(Entry.<String, Integer> comparingByValue().reversed())
+				.limit(limit)
+				.map(e -> Map.entry(e.getKey(), e.getValue()))
+				.toList();
+	}
+
+	/**
+	 * Loads and compiles the grammars of the {@link #getWorkingSet() working set} on a daemon thread with minimal
+	 * priority.
+	 *
+	 * @param grammarLoader returns the grammar of the given scope name
+	 */
+	void start(final Function<String, @Nullable IGrammar> grammarLoader) {
+		final List<String> workingSet = getWorkingSet();
+		if (workingSet.isEmpty())
+			return;
+
+		final var thread = new Thread(() -> {
+			for (final String scopeName : workingSet) {
+				try {
+					final var grammar = grammarLoader.apply(scopeName);
+					if (grammar != null) {
+						grammar.compileAllRules();
+					}
+				} catch (final RuntimeException ex) {
+					Platform.getLog(getClass()).warn("Cannot warm up grammar '" + scopeName + "'", ex);
+				}
+			}
+		}, "tm4e." + GrammarWarmUp.class.getSimpleName());
+		thread.setPriority(Thread.MIN_PRIORITY);
+		thread.setDaemon(true);
+		thread.start();
+	}
+}
@@ -22,6 +22,8 @@ public final class PreferenceConstants {
 
 	public static final String INJECTIONS = "org.eclipse.tm4e.registry.injections";
 
+	public static final String GRAMMAR_USAGE_COUNTS = "org.eclipse.tm4e.registry.grammarUsageCounts";
+
 	private PreferenceConstants() {
 	}
 }
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.ui.tests;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.tm4e.ui.tests.support.TestUtils;
+import org.eclipse.ui.IEditorDescriptor;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.ide.IDE;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the TM4E task markers follow line insertions and deletions of a document opened in an editor.
+ */
+class TextMarkersTest {
+
+	private static final String TEXTMARKER_TYPE = "org.eclipse.tm4e.ui.textmarker";
+
+	private IEditorDescriptor genericEditorDescr;
+	private IProject project;
+	private IEditorPart editor;
+	private StyledText text;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		genericEditorDescr = TestUtils.assertHasGenericEditor();
+		TestUtils.assertNoTM4EThreadsRunning();
+
+		project = ResourcesPlugin.getWorkspace().getRoot().getProject("tm4e-text-markers-test");
+		if (!project.exists()) {
+			project.create(null);
+		}
+		project.open(null);
+
+		final IFile file = project.getFile("test.ts");
+		final var content = """
+			let a = 1; // TODO first
+			let b = 2;
+			let c = 3; // FIXME second
+			""";
+		file.create(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), true, null);
+
+		editor = IDE.openEditor(PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage(), file,
+				genericEditorDescr.getId(), true);
+		text = (StyledText) editor.getAdapter(Control.class);
+		assertMarkers(Map.of("TODO first", 1, "FIXME second", 3));
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		TestUtils.closeEditor(editor);
+		editor = null;
+		project.delete(true, null);
+
+		TestUtils.assertNoTM4EThreadsRunning();
+	}
+
+	@Test
+	void testInsertLinesWithMarker() throws Exception {
+		text.replaceTextRange(0, 0, "// TODO inserted\n");
+		assertMarkers(Map.of("TODO inserted", 1, "TODO first", 2, "FIXME second", 4));
+	}
+
+	@Test
+	void testDeleteLineWithMarker() throws Exception {
+		text.replaceTextRange(0, text.getLine(0).length() + 1, "");
+		assertMarkers(Map.of("FIXME second", 2));
+	}
+
+	@Test
+	void testMarkersMovedByLinesInsertedAndDeletedAbove() throws Exception {
+		final var fixmeMarkerId = findMarker("FIXME second").getId();
+
+		text.replaceTextRange(text.getOffsetAtLine(1), 0, "let x = 0;\nlet y = 0;\n");
+		assertMarkers(Map.of("TODO first", 1, "FIXME second", 5));
+
+		text.replaceTextRange(0, text.getOffsetAtLine(2), "");
+		assertMarkers(Map.of("FIXME second", 3));
+
+		// markers of unchanged lines are moved, not recreated
+		assertEquals(fixmeMarkerId, findMarker("FIXME second").getId());
+	}
+
+	/**
+	 * Waits until the file has exactly the given text markers.
+	 *
+	 * @param expected the line number of each marker by its message
+	 */
+	private void assertMarkers(final Map<String, Integer> expected) throws CoreException {
+		final var expectedMarkers = new TreeMap<>(expected);
+		TestUtils.waitForCondition(5_000, text.getDisplay(), () -> expectedMarkers.equals(getMarkers()));
+		assertEquals(expectedMarkers, getMarkers());
+	}
+
+	private Map<String, Integer> getMarkers() {
+		final var result = new TreeMap<String, Integer>();
+		try {
+			for (final IMarker marker : project.getFile("test.ts").findMarkers(TEXTMARKER_TYPE, true, IResource.DEPTH_ZERO)) {
+				result.put(marker.getAttribute(IMarker.MESSAGE, ""), marker.getAttribute(IMarker.LINE_NUMBER, -1));
+			}
+		} catch (final CoreException ex) {
+			throw new IllegalStateException(ex);
+		}
+		return result;
+	}
+
+	private IMarker findMarker(final String message) throws CoreException {
+		for (final IMarker marker : project.getFile("test.ts").findMarkers(TEXTMARKER_TYPE, true, IResource.DEPTH_ZERO)) {
+			if (message.equals(marker.getAttribute(IMarker.MESSAGE, ""))) {
+				return marker;
+			}
+		}
+		return fail("No marker " + message);
+	}
+}
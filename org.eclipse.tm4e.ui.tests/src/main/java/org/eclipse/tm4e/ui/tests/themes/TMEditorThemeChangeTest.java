@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.ui.tests.themes;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.FileOutputStream;
+
+import org.eclipse.jface.text.ITextOperationTarget;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.tm4e.ui.TMUIPlugin;
+import org.eclipse.tm4e.ui.tests.support.TestUtils;
+import org.eclipse.tm4e.ui.text.TMPresentationReconciler;
+import org.eclipse.tm4e.ui.themes.ThemeIdConstants;
+import org.eclipse.ui.IEditorDescriptor;
+import org.eclipse.ui.IEditorPart;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.ide.IDE;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that changing the theme of an editor recolors the lines outside the viewport too.
+ */
+class TMEditorThemeChangeTest implements ThemeIdConstants {
+
+	private static final int LINE_COUNT = 2_000;
+
+	private IEditorDescriptor genericEditorDescr;
+	private IEditorPart editor;
+
+	@BeforeEach
+	public void setup() throws Exception {
+		genericEditorDescr = TestUtils.assertHasGenericEditor();
+		TestUtils.assertNoTM4EThreadsRunning();
+	}
+
+	@AfterEach
+	public void tearDown() throws Exception {
+		TestUtils.closeEditor(editor);
+		editor = null;
+
+		TestUtils.assertNoTM4EThreadsRunning();
+	}
+
+	@Test
+	void testThemeChangeRecolorsLinesOutsideViewport() throws Exception {
+		final var f = TestUtils.createTempFile(".ts");
+		try (var fileOutputStream = new FileOutputStream(f)) {
+			final var content = new StringBuilder();
+			for (int i = 0; i < LINE_COUNT; i++) {
+				content.append("let a").append(i).append(" = ").append(i).append(";\n");
+			}
+			fileOutputStream.write(content.toString().getBytes());
+		}
+		editor = IDE.openEditor(
+				PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage(),
+				f.toURI(),
+				genericEditorDescr.getId(),
+				true);
+
+		final StyledText text = (StyledText) editor.getAdapter(Control.class);
+		final var viewer = (ITextViewer) editor.getAdapter(ITextOperationTarget.class);
+		final int lastLineIndex = LINE_COUNT - 1;
+		assertTrue(TestUtils.waitForCondition(5_000, text.getDisplay(), () -> getKeywordForeground(text, 0) != null));
+		final Color oldForeground = getKeywordForeground(text, 0);
+
+		// lines outside the viewport are only colorized once scrolled into view
+		viewer.setTopIndex(lastLineIndex);
+		assertTrue(TestUtils.waitForCondition(5_000, text.getDisplay(),
+				() -> oldForeground.equals(getKeywordForeground(text, lastLineIndex))));
+		viewer.setTopIndex(0);
+		assertTrue(TestUtils.waitForCondition(5_000, text.getDisplay(), () -> text.getBottomIndex() < lastLineIndex));
+
+		final var reconciler = TMPresentationReconciler.getTMPresentationReconciler(editor);
+		assertNotNull(reconciler);
+		reconciler.setTheme(TMUIPlugin.getThemeManager().getThemeById(Monokai));
+
+		// the visible lines are recolored first
+		assertTrue(TestUtils.waitForCondition(5_000, text.getDisplay(),
+				() -> getKeywordForeground(text, 0) != null && !oldForeground.equals(getKeywordForeground(text, 0))));
+		final Color newForeground = getKeywordForeground(text, 0);
+
+		// followed by the lines outside the viewport
+		assertTrue(text.getBottomIndex() < lastLineIndex, "The last line must be outside the viewport");
+		assertTrue(TestUtils.waitForCondition(10_000, text.getDisplay(),
+				() -> newForeground.equals(getKeywordForeground(text, lastLineIndex))));
+		assertEquals(newForeground, getKeywordForeground(text, lastLineIndex));
+	}
+
+	/**
+	 * @return the foreground color of the <code>let</code> keyword at the start of the given line
+	 */
+	private static Color getKeywordForeground(final StyledText text, final int lineIndex) {
+		final StyleRange style = text.getStyleRangeAtOffset(text.getOffsetAtLine(lineIndex));
+		return style == null ? null : style.foreground;
+	}
+}
@@ -0,0 +1,25 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.ui.internal;
+
+import org.eclipse.tm4e.registry.TMEclipseRegistryPlugin;
+import org.eclipse.ui.IStartup;
+
+/**
+ * Initializes the grammar registry in the background after the workbench has started, which starts warming up the
+ * grammars used most frequently in previous sessions.
+ */
+public final class TMStartup implements IStartup {
+
+	@Override
+	public void earlyStartup() {
+		TMEclipseRegistryPlugin.getGrammarRegistryManager();
+	}
+}
@@ -11,11 +11,14 @@
  */
 package org.eclipse.tm4e.ui.internal.model;
 
+import java.util.Objects;
+
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.model.TMModel;
 import org.eclipse.tm4e.ui.TMUIPlugin;
 import org.eclipse.tm4e.ui.model.ITMDocumentModel;
@@ -97,9 +100,21 @@ public String getLineText(final int lineIndex) throws Exception {
 		return DocumentHelper.getLineText(document, lineIndex, false);
 	}
 
+	@Override
+	public void setGrammar(final IGrammar grammar) {
+		final boolean isGrammarChanged = !Objects.equals(grammar, getGrammar());
+		super.setGrammar(grammar);
+		if (isGrammarChanged && TokensCache.isEnabled()) {
+			TokensCache.restore(this, grammar);
+		}
+	}
+
 	@Override
 	public void dispose() {
 		document.removeDocumentListener(this);
 		super.dispose();
+		if (TokensCache.isEnabled()) {
+			TokensCache.save(this);
+		}
 	}
 }
@@ -0,0 +1,227 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.ui.internal.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.eclipse.core.filebuffers.ITextFileBufferManager;
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.eclipse.tm4e.core.grammar.IGrammar;
+import org.eclipse.tm4e.core.model.TokensCacheFile;
+import org.eclipse.tm4e.registry.IGrammarDefinition;
+import org.eclipse.tm4e.registry.TMEclipseRegistryPlugin;
+import org.eclipse.tm4e.ui.TMUIPlugin;
+
+/**
+ * Persists the tokens of the {@link TMDocumentModel}s of file based documents in the plugin's state location via
+ * {@link TokensCacheFile}, so that reopening a large file does not require tokenizing it from scratch.
+ * <p>
+ * The tokens are saved when a model is disconnected from its document and restored when the grammar of a model is set.
+ * Both happen in background jobs. The cache can be disabled with the system property
+ * <code>-Dtm4e.ui.tokensCache=false</code>.
+ */
+final class TokensCache {
+
+	static final String SYSTEM_PROPERTY = "tm4e.ui.tokensCache";
+
+	private static final String CACHE_DIR_NAME = "tokens-cache";
+	private static final String CACHE_FILE_EXTENSION = ".tokens";
+
+	/** max number of cache files kept, the least recently written ones are deleted first */
+	private static final int MAX_CACHE_FILES = 256;
+
+	/** serializes all reads and writes of cache files */
+	private static final ISchedulingRule CACHE_RULE = new ISchedulingRule() {
+		@Override
+		public boolean isConflicting(final @Nullable ISchedulingRule rule) {
+			return rule == this;
+		}
+
+		@Override
+		public boolean contains(final @Nullable ISchedulingRule rule) {
+			return rule == this;
+		}
+	};
+
+	static boolean isEnabled() {
+		return Boolean.parseBoolean(System.getProperty(SYSTEM_PROPERTY, "true"));
+	}
+
+	/**
+	 * Restores the tokens of the given model asynchronously, if they were saved for the model's document and grammar.
+	 */
+	static void restore(final TMDocumentModel model, final IGrammar grammar) {
+		final Path cacheFile = getCacheFile(model.getDocument());
+		if (cacheFile == null)
+			return;
+
+		final var job = Job.create("Restoring TM4E tokens", monitor -> {
+			final String grammarVersion = getGrammarVersion(grammar);
+			if (grammarVersion == null || grammar != model.getGrammar())
+				return Status.OK_STATUS;
+			try {
+				final int restoredLines = TokensCacheFile.restore(model, cacheFile, grammarVersion);
+				if (TMUIPlugin.isLogTraceEnabled())
+					TMUIPlugin.logTrace("Restored tokens of " + restoredLines + " lines from " + cacheFile);
+			} catch (final IOException ex) {
+				TMUIPlugin.logError(ex);
+			}
+			return Status.OK_STATUS;
+		});
+		schedule(job);
+	}
+
+	/**
+	 * Saves the tokens of the given disposed model asynchronously, if the model was fully tokenized.
+	 */
+	static void save(final TMDocumentModel model) {
+		final var grammar = model.getGrammar();
+		final var document = model.getDocument();
+		if (grammar == null || !(document instanceof final IDocumentExtension4 docExt))
+			return;
+		final Path cacheFile = getCacheFile(document);
+		if (cacheFile == null)
+			return;
+
+		// the tokens were computed for the current text, which must not change before it was hashed
+		final long modificationStamp = docExt.getModificationStamp();
+		if (modificationStamp == IDocumentExtension4.UNKNOWN_MODIFICATION_STAMP)
+			return;
+
+		final var job = Job.create("Saving TM4E tokens", monitor -> {
+			final String grammarVersion = getGrammarVersion(grammar);
+			if (grammarVersion == null || docExt.getModificationStamp() != modificationStamp)
+				return Status.OK_STATUS;
+			try {
+				Files.createDirectories(cacheFile.getParent());
+				if (!TokensCacheFile.save(model, cacheFile, grammarVersion))
+					return Status.OK_STATUS;
+				if (docExt.getModificationStamp() != modificationStamp) {
+					Files.deleteIfExists(cacheFile);
+					return Status.OK_STATUS;
+				}
+				if (TMUIPlugin.isLogTraceEnabled())
+					TMUIPlugin.logTrace("Saved tokens of " + document.getNumberOfLines() + " lines to " + cacheFile);
+				deleteOldCacheFiles(cacheFile.getParent());
+			} catch (final IOException ex) {
+				TMUIPlugin.logError(ex);
+			}
+			return Status.OK_STATUS;
+		});
+		schedule(job);
+	}
+
+	private static void schedule(final Job job) {
+		job.setSystem(true);
+		job.setPriority(Job.DECORATE);
+		job.setRule(CACHE_RULE);
+		job.schedule();
+	}
+
+	/**
+	 * @return the cache file of the given document or <code>null</code> if the document is not backed by a file
+	 */
+	@Nullable
+	private static Path getCacheFile(final IDocument document) {
+		// for local unit tests to prevent ExceptionInInitiaizerError
+		if (!Platform.isRunning())
+			return null;
+
+		final var buffer = ITextFileBufferManager.DEFAULT.getTextFileBuffer(document);
+		if (buffer == null)
+			return null;
+		final var location = buffer.getLocation();
+		if (location == null)
+			return null;
+
+		final var fileId = UUID.nameUUIDFromBytes(location.toString().getBytes(StandardCharsets.UTF_8));
+		return TMUIPlugin.getDefault().getStateLocation().toPath()
+				.resolve(CACHE_DIR_NAME)
+				.resolve(fileId + CACHE_FILE_EXTENSION);
+	}
+
+	/**
+	 * The rule ids referenced by persisted line states depend on the grammar and all grammars it includes, so the version
+	 * covers all registered grammars and the tokenizer implementation.
+	 *
+	 * @return the version of the registered grammars or <code>null</code> if it cannot be determined
+	 */
+	@Nullable
+	private static String getGrammarVersion(final IGrammar grammar) {
+		final var coreBundle = Platform.getBundle("org.eclipse.tm4e.core");
+		if (coreBundle == null)
+			return null;
+
+		final var versions = new StringBuilder();
+		versions.append(coreBundle.getVersion());
+		final var definitions = TMEclipseRegistryPlugin.getGrammarRegistryManager().getDefinitions();
+		Arrays.sort(definitions, Comparator.comparing(IGrammarDefinition::getScopeName));
+		for (final var definition : definitions) {
+			versions.append('|').append(definition.getScopeName()).append('=');
+			final var pluginId = definition.getPluginId();
+			if (pluginId != null) {
+				final var bundle = Platform.getBundle(pluginId);
+				if (bundle == null)
+					return null;
+				versions.append(pluginId).append('@').append(bundle.getVersion());
+			} else {
+				try {
+					final FileTime lastModified = Files.getLastModifiedTime(Path.of(definition.getPath()));
+					versions.append(definition.getPath()).append('@').append(lastModified.toMillis());
+				} catch (final IOException | RuntimeException ex) {
+					if (grammar.getScopeName().equals(definition.getScopeName()))
+						return null;
+				}
+			}
+		}
+		return UUID.nameUUIDFromBytes(versions.toString().getBytes(StandardCharsets.UTF_8)).toString();
+	}
+
+	private static void deleteOldCacheFiles(final Path cacheDir) throws IOException {
+		final Path[] cacheFiles;
+		try (Stream<Path> files = Files.list(cacheDir)) {
+			cacheFiles = files.filter(f -> f.getFileName().toString().endsWith(CACHE_FILE_EXTENSION)).toArray(Path[]::new);
+		}
+		if (cacheFiles.length <= MAX_CACHE_FILES)
+			return;
+
+		final var lastModified = new long[cacheFiles.length];
+		final var indexes = new Integer[cacheFiles.length];
+		for (int i = 0; i < cacheFiles.length; i++) {
+			indexes[i] = i;
+			try {
+				lastModified[i] = Files.getLastModifiedTime(cacheFiles[i]).toMillis();
+			} catch (final IOException ex) {
+				lastModified[i] = 0;
+			}
+		}
+		Arrays.sort(indexes, Comparator.comparingLong(i -> lastModified[i]));
+		for (int i = 0; i < cacheFiles.length - MAX_CACHE_FILES; i++) {
+			Files.deleteIfExists(cacheFiles[indexes[i]]);
+		}
+	}
+
+	private TokensCache() {
+	}
+}
@@ -9,20 +9,37 @@
  */
 package org.eclipse.tm4e.ui.internal.utils;
 
+import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
+
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.tm4e.core.model.ITMModel;
 import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
+import org.eclipse.tm4e.core.model.Range;
 import org.eclipse.tm4e.core.model.TMToken;
 import org.eclipse.tm4e.ui.TMUIPlugin;
 import org.eclipse.tm4e.ui.internal.preferences.PreferenceHelper;
@@ -54,71 +71,268 @@ public static synchronized void reloadMarkerConfigs() {
 	}
 
 	/**
-	 * Updates all TM4E text markers of the corresponding document starting from
-	 * <code>event.ranges.get(0).fromLineNumber</code> until the end of the document.
+	 * Text markers of a document indexed by line number. Lines reported by {@link ModelTokensChangedEvent}s are
+	 * collected and their markers are updated in batches by a low priority job, which runs a single
+	 * {@link IWorkspaceRunnable} per batch, so only changed lines are scanned and resource change notifications are sent
+	 * once per batch.
+	 * <p>
+	 * The index follows line insertions and deletions of the document, so below an edit only the lines holding markers
+	 * are rescanned to update the position of their markers.
+	 * <p>
+	 * The lock of this object is only held to access the index and the dirty lines, never while reading the document or
+	 * changing markers. A batch is scanned for a snapshot of the dirty lines and only applied if the document was not
+	 * modified during the scan, otherwise it is retried later. Edits made while the markers of a batch are changed are
+	 * recorded, so the batch is published at the line numbers the edits moved its lines to.
 	 */
-	public static void updateTextMarkers(final ModelTokensChangedEvent event) {
-		final ITMModel model = event.model;
-		if (model instanceof final ITMDocumentModel docModel) {
+	private static final class DocumentTextMarkers implements IDocumentListener {
+
+		/** max number of lines scanned per batch, limits the work discarded if the document is modified meanwhile */
+		private static final int MAX_LINES_PER_BATCH = 256;
+
+		/** delay in milliseconds before a batch discarded because of a document modification is retried */
+		private static final int RETRY_DELAY = 100;
+
+		/**
+		 * A document modification changing the number of lines.
+		 *
+		 * @param firstLineNumber 1-based number of the first replaced line
+		 * @param lastLineNumber 1-based number of the last replaced line
+		 * @param delta number of added (positive) or removed (negative) lines
+		 */
+		private record LineEdit(int firstLineNumber, int lastLineNumber, int delta) {
+
+			/**
+			 * @return the number of the given line after this edit, the replaced lines are mapped to the first one
+			 */
+			int map(final int lineNumber) {
+				if (lineNumber < firstLineNumber)
+					return lineNumber;
+				return lineNumber <= lastLineNumber ? firstLineNumber : lineNumber + delta;
+			}
+		}
+
+		/** A marker found by scanning a line. */
+		private record FoundMarker(String type, Map<String, Object> attrs, Map<String, Object> positionAttrs) {
+		}
+
+		private final IResource resource;
+
+		/**
+		 * the document model to read tokens from. Weakly referenced, as this object is a value of a {@link WeakHashMap}
+		 * keyed by the model's document
+		 */
+		private volatile WeakReference<@Nullable ITMDocumentModel> docModel = new WeakReference<>(null);
+
+		/** markers by 1-based line number, <code>null</code> until the markers of the resource were loaded */
+		private @Nullable TreeMap<Integer, List<IMarker>> markersByLineNumber;
+
+		/** 1-based numbers of the lines whose markers need to be updated */
+		private final BitSet dirtyLineNumbers = new BitSet();
+
+		/** incremented before and after every document modification */
+		private long modificationStamp;
+		private boolean isDocumentChanging;
+
+		/** the edits made while the markers of a batch are changed, <code>null</code> if no batch is being applied */
+		private @Nullable List<LineEdit> editsDuringBatch;
+
+		private boolean isDisposed;
+
+		// state captured in documentAboutToBeChanged() for documentChanged()
+		private int changeFirstLineNumber = -1;
+		private int changeLastLineNumber;
+		private int numberOfLinesBeforeChange;
+
+		private final Job updateJob;
+
+		DocumentTextMarkers(final IResource resource) {
+			this.resource = resource;
+			updateJob = Job.create("Updating TM4E text markers of " + resource.getName(), this::runUpdate);
+			updateJob.setSystem(true);
+			updateJob.setPriority(Job.DECORATE);
+		}
+
+		/**
+		 * Marks the lines of the given ranges for update and schedules the update job.
+		 */
+		void update(final ITMDocumentModel docModel, final List<Range> ranges) {
+			synchronized (this) {
+				if (isDisposed)
+					return;
+				for (final var range : ranges) {
+					dirtyLineNumbers.set(range.fromLineNumber, range.toLineNumber + 1);
+				}
+			}
+			if (this.docModel.get() != docModel) {
+				this.docModel = new WeakReference<>(docModel);
+			}
+			updateJob.schedule();
+		}
+
+		void dispose() {
+			synchronized (this) {
+				isDisposed = true;
+				dirtyLineNumbers.clear();
+			}
+			updateJob.cancel();
+		}
+
+		private void runUpdate(final IProgressMonitor monitor) {
+			final var docModel = this.docModel.get();
+			if (docModel == null)
+				return;
+
+			final var workspace = ResourcesPlugin.getWorkspace();
 			try {
-				updateTextMarkers(docModel, event.ranges.get(0).fromLineNumber);
+				workspace.run((IWorkspaceRunnable) m -> {
+					while (!m.isCanceled() && updateNextLines(docModel)) {
+						// the remaining dirty lines of a canceled run are processed by the next run
+					}
+				}, workspace.getRuleFactory().markerRule(resource), IWorkspace.AVOID_UPDATE, monitor);
 			} catch (final CoreException ex) {
 				TMUIPlugin.logError(ex);
 			}
 		}
-	}
-
-	/**
-	 * Updates all TM4E text markers of the {@link ITMDocumentModel}'s document starting from the given line number until
-	 * the end of the document.
-	 *
-	 * @param startLineNumber 1-based
-	 */
-	private static void updateTextMarkers(final ITMDocumentModel docModel, final int startLineNumber)
-			throws CoreException {
 
-		final var doc = docModel.getDocument();
+		/**
+		 * Updates the markers of the next batch of dirty lines.
+		 *
+		 * @return <code>false</code> if no dirty lines are left or the update has to be retried later
+		 */
+		private boolean updateNextLines(final ITMDocumentModel docModel) throws CoreException {
+			final var doc = docModel.getDocument();
 
-		final var res = ResourceUtils.findResource(doc);
-		if (res == null)
-			return;
+			final long stamp;
+			final @Nullable TreeMap<Integer, List<IMarker>> markersByLineNumber;
+			final int[] lineNumbers;
+			final List<List<IMarker>> outdatedMarkers = new ArrayList<>();
+			synchronized (this) {
+				if (isDisposed)
+					return false;
+				if (isDocumentChanging) {
+					updateJob.schedule(RETRY_DELAY);
+					return false;
+				}
+				stamp = modificationStamp;
+				markersByLineNumber = this.markersByLineNumber;
+				lineNumbers = dirtyLineNumbers.stream().filter(l -> l > 0).limit(MAX_LINES_PER_BATCH).toArray();
+				if (lineNumbers.length == 0)
+					return false;
+				if (markersByLineNumber != null) {
+					for (final int lineNumber : lineNumbers) {
+						final var markers = markersByLineNumber.get(lineNumber);
+						outdatedMarkers.add(markers == null ? new ArrayList<>(0) : new ArrayList<>(markers));
+					}
+				}
+			}
 
-		final var numberOfLines = doc.getNumberOfLines();
+			if (markersByLineNumber == null) {
+				final var loadedMarkers = loadMarkers(doc.getNumberOfLines());
+				synchronized (this) {
+					if (stamp != modificationStamp) {
+						updateJob.schedule(RETRY_DELAY);
+						return false;
+					}
+					this.markersByLineNumber = loadedMarkers;
+				}
+				return true;
+			}
 
-		// collect affected markers
-		final var markersByLineNumber = new HashMap<Integer, List<IMarker>>();
-		for (final var marker : res.findMarkers(TEXTMARKER_TYPE, true, 0)) {
-			final var lineNumberObj = getLineNumber(marker);
-			if (lineNumberObj == null) {
-				marker.delete(); // this marker is missing line information, should never happen
-				continue;
+			// scan the lines without holding the lock, the document may be modified meanwhile
+			final var markerConfigs = MARKER_CONFIGS;
+			final var foundMarkers = new ArrayList<List<FoundMarker>>(lineNumbers.length);
+			BadLocationException scanError = null;
+			try {
+				for (final int lineNumber : lineNumbers) {
+					foundMarkers.add(scanLine(docModel, doc, lineNumber, markerConfigs));
+				}
+			} catch (final BadLocationException ex) {
+				scanError = ex;
 			}
 
-			final var lineNumber = lineNumberObj.intValue();
-			if (lineNumber < startLineNumber) {
-				continue; // this marker needs no update
+			synchronized (this) {
+				if (stamp != modificationStamp) {
+					// the scanned text does not match the dirty lines anymore
+					updateJob.schedule(RETRY_DELAY);
+					return false;
+				}
+				for (final int lineNumber : lineNumbers) {
+					dirtyLineNumbers.clear(lineNumber);
+				}
+				if (scanError != null) {
+					TMUIPlugin.logError(scanError);
+					return true;
+				}
+				editsDuringBatch = new ArrayList<>();
 			}
-			if (lineNumber > numberOfLines) {
-				marker.delete(); // this marker is for a non-existing line
-				continue;
+
+			// change the markers without holding the lock
+			final var lineMarkers = new ArrayList<List<IMarker>>(lineNumbers.length);
+			try {
+				for (int i = 0; i < lineNumbers.length; i++) {
+					lineMarkers.add(updateMarkers(lineNumbers[i], foundMarkers.get(i), outdatedMarkers.get(i)));
+				}
+			} finally {
+				synchronized (this) {
+					final var edits = castNonNull(editsDuringBatch);
+					editsDuringBatch = null;
+					for (int i = 0; i < lineNumbers.length; i++) {
+						int lineNumber = lineNumbers[i];
+						for (final var edit : edits) {
+							lineNumber = edit.map(lineNumber);
+						}
+						if (i >= lineMarkers.size()) {
+							// not updated because of an error
+							dirtyLineNumbers.set(lineNumber);
+							continue;
+						}
+						final var markers = markersByLineNumber.get(lineNumber);
+						if (markers != null) {
+							markers.removeAll(outdatedMarkers.get(i));
+							if (markers.isEmpty()) {
+								markersByLineNumber.remove(lineNumber);
+							}
+						}
+						if (!lineMarkers.get(i).isEmpty()) {
+							markersByLineNumber.computeIfAbsent(lineNumber, l -> new ArrayList<>(1)).addAll(lineMarkers.get(i));
+						}
+						if (!edits.isEmpty()) {
+							// the marker positions were computed for the text before the edits
+							dirtyLineNumbers.set(lineNumber);
+						}
+					}
+				}
 			}
-			final var markersOfLine = markersByLineNumber.computeIfAbsent(lineNumberObj, l -> new ArrayList<>(1));
-			markersOfLine.add(marker);
+			return true;
 		}
 
-		final var markerConfigs = MARKER_CONFIGS;
-		final var markerConfigByTag = markerConfigs.markerConfigByTag;
-		final var tagSelectorPattern = markerConfigs.tagSelectorPattern;
+		private TreeMap<Integer, List<IMarker>> loadMarkers(final int numberOfLines) throws CoreException {
+			final var markers = new TreeMap<Integer, List<IMarker>>();
+			for (final var marker : resource.findMarkers(TEXTMARKER_TYPE, true, 0)) {
+				final var lineNumberObj = getLineNumber(marker);
+				if (lineNumberObj == null || lineNumberObj > numberOfLines) {
+					marker.delete(); // this marker is missing line information or is for a non-existing line
+					continue;
+				}
+				markers.computeIfAbsent(lineNumberObj, l -> new ArrayList<>(1)).add(marker);
+			}
+			return markers;
+		}
 
-		// iterate over all lines
-		for (int lineNumber = startLineNumber; lineNumber <= numberOfLines; lineNumber++) {
-			final var lineNumberObj = Integer.valueOf(lineNumber);
+		/**
+		 * Finds the TM4E text markers of the given line.
+		 *
+		 * @param lineNumber 1-based
+		 */
+		private static List<FoundMarker> scanLine(final ITMDocumentModel docModel, final IDocument doc, final int lineNumber,
+				final MarkerConfigs markerConfigs) throws BadLocationException {
 			final var lineIndex = lineNumber - 1;
-			final var tokens = docModel.getLineTokens(lineIndex);
+			final var tokens = lineNumber > doc.getNumberOfLines() ? null : docModel.getLineTokens(lineIndex);
 			if (tokens == null)
-				continue;
+				return List.of();
+
+			final var foundMarkers = new ArrayList<FoundMarker>(1);
 			final var tokensCount = tokens.size();
-			final var outdatedMarkers = markersByLineNumber.getOrDefault(lineNumberObj, Collections.emptyList());
 
 			// iterate over all tokens of the current line
 			for (int tokenIndex = 0; tokenIndex < tokensCount; tokenIndex++) {
@@ -128,41 +342,70 @@ private static void updateTextMarkers(final ITMDocumentModel docModel, final int
 					continue;
 
 				final TMToken nextToken = tokenIndex + 1 < tokensCount ? tokens.get(tokenIndex + 1) : null;
-				try {
-					final var lineOffset = doc.getLineOffset(lineIndex);
-					final var commentText = doc.get(
-							lineOffset + token.startIndex,
-							(nextToken == null ? doc.getLineLength(lineIndex) : nextToken.startIndex) - token.startIndex);
-					if (commentText.length() < 3)
-						continue;
-
-					final var matcher = tagSelectorPattern.matcher(commentText);
-					if (!matcher.find())
-						continue;
-
-					final var markerConfig = markerConfigByTag.get(matcher.group(1));
-					final var markerText = commentText.substring(matcher.start()).trim();
-
-					final var attrs = new HashMap<String, Object>();
-					attrs.put(IMarker.LINE_NUMBER, lineNumberObj);
-					attrs.put(IMarker.MESSAGE, markerText);
-					switch (markerConfig.type) {
-						case PROBLEM -> attrs.put(IMarker.SEVERITY, markerConfig.asProblemMarkerConfig().severity.value);
-						case TASK -> attrs.put(IMarker.PRIORITY, markerConfig.asTaskMarkerConfig().priority.value);
-					}
-					attrs.put(IMarker.USER_EDITABLE, Boolean.FALSE);
-					attrs.put(IMarker.SOURCE_ID, "TM4E");
+				final var lineOffset = doc.getLineOffset(lineIndex);
+				final var commentText = doc.get(
+						lineOffset + token.startIndex,
+						(nextToken == null ? doc.getLineLength(lineIndex) : nextToken.startIndex) - token.startIndex);
+				if (commentText.length() < 3)
+					continue;
+
+				final var matcher = markerConfigs.tagSelectorPattern.matcher(commentText);
+				if (!matcher.find())
+					continue;
 
+				final var markerConfig = markerConfigs.markerConfigByTag.get(matcher.group(1));
+				final var markerText = commentText.substring(matcher.start()).trim();
+
+				final var attrs = new HashMap<String, Object>();
+				attrs.put(IMarker.MESSAGE, markerText);
+				switch (markerConfig.type) {
+					case PROBLEM -> attrs.put(IMarker.SEVERITY, markerConfig.asProblemMarkerConfig().severity.value);
+					case TASK -> attrs.put(IMarker.PRIORITY, markerConfig.asTaskMarkerConfig().priority.value);
+				}
+				attrs.put(IMarker.USER_EDITABLE, Boolean.FALSE);
+				attrs.put(IMarker.SOURCE_ID, "TM4E");
+
+				final var markerTextStartOffset = lineOffset + token.startIndex + matcher.start();
+				final var positionAttrs = new HashMap<String, Object>();
+				positionAttrs.put(IMarker.LINE_NUMBER, lineNumber);
+				positionAttrs.put(IMarker.CHAR_START, markerTextStartOffset);
+				positionAttrs.put(IMarker.CHAR_END, markerTextStartOffset + markerText.length());
+
+				final String markerTypeId = switch (markerConfig.type) {
+					case PROBLEM -> PROBLEMMARKER_TYPE;
+					case TASK -> TASKMARKER_TYPE;
+				};
+				foundMarkers.add(new FoundMarker(markerTypeId, attrs, positionAttrs));
+			}
+			return foundMarkers;
+		}
+
+		/**
+		 * Updates the TM4E text markers of the given line, reusing the matching outdated markers and deleting the others.
+		 *
+		 * @param lineNumber 1-based
+		 *
+		 * @return the markers of the line
+		 */
+		private List<IMarker> updateMarkers(final int lineNumber, final List<FoundMarker> foundMarkers,
+				final List<IMarker> outdatedMarkers) throws CoreException {
+			final var lineNumberObj = Integer.valueOf(lineNumber);
+			final var lineMarkers = new ArrayList<IMarker>(foundMarkers.size());
+			final var remainingMarkers = new ArrayList<>(outdatedMarkers);
+			for (final var foundMarker : foundMarkers) {
+				try {
 					// only create a new marker if no matching marker already exists
-					final String markerTypeId = switch (markerConfig.type) {
-						case PROBLEM -> PROBLEMMARKER_TYPE;
-						case TASK -> TASKMARKER_TYPE;
-					};
-					if (!removeMatchingMarker(outdatedMarkers, markerTypeId, attrs)) {
-						final var markerTextStartOffset = lineOffset + token.startIndex + matcher.start();
-						attrs.put(IMarker.CHAR_START, markerTextStartOffset);
-						attrs.put(IMarker.CHAR_END, markerTextStartOffset + markerText.length());
-						res.createMarker(markerTypeId, attrs);
+					final var existingMarker = removeMatchingMarker(remainingMarkers, foundMarker.type, foundMarker.attrs);
+					if (existingMarker == null) {
+						final var attrs = new HashMap<>(foundMarker.attrs);
+						attrs.putAll(foundMarker.positionAttrs);
+						lineMarkers.add(resource.createMarker(foundMarker.type, attrs));
+					} else {
+						// the marker was moved by lines inserted or removed above
+						if (!lineNumberObj.equals(getLineNumber(existingMarker))) {
+							existingMarker.setAttributes(foundMarker.positionAttrs);
+						}
+						lineMarkers.add(existingMarker);
 					}
 				} catch (final Exception ex) {
 					TMUIPlugin.logError(ex);
@@ -170,11 +413,111 @@ private static void updateTextMarkers(final ITMDocumentModel docModel, final int
 			}
 
 			// remove any obsolete markers
-			if (!outdatedMarkers.isEmpty()) {
-				for (final var marker : outdatedMarkers) {
-					marker.delete();
+			for (final var marker : remainingMarkers) {
+				marker.delete();
+			}
+			return lineMarkers;
+		}
+
+		@Override
+		public synchronized void documentAboutToBeChanged(@Nullable final DocumentEvent event) {
+			modificationStamp++;
+			isDocumentChanging = true;
+			changeFirstLineNumber = -1;
+			if (event == null)
+				return;
+			try {
+				final var doc = event.getDocument();
+				changeFirstLineNumber = doc.getLineOfOffset(event.getOffset()) + 1;
+				changeLastLineNumber = doc.getLineOfOffset(event.getOffset() + event.getLength()) + 1;
+				numberOfLinesBeforeChange = doc.getNumberOfLines();
+			} catch (final BadLocationException ex) {
+				changeFirstLineNumber = -1;
+				TMUIPlugin.logError(ex);
+			}
+		}
+
+		@Override
+		public synchronized void documentChanged(@Nullable final DocumentEvent event) {
+			modificationStamp++;
+			isDocumentChanging = false;
+			if (event == null || changeFirstLineNumber == -1)
+				return;
+
+			final var edit = new LineEdit(changeFirstLineNumber, changeLastLineNumber,
+					event.getDocument().getNumberOfLines() - numberOfLinesBeforeChange);
+			changeFirstLineNumber = -1;
+			if (edit.delta == 0)
+				return; // the changed lines are reported by the next ModelTokensChangedEvent
+
+			final var editsDuringBatch = this.editsDuringBatch;
+			if (editsDuringBatch != null) {
+				editsDuringBatch.add(edit);
+			}
+
+			// markers of the replaced lines are collected at the first changed line and are reconciled together with the
+			// lines of the inserted text, markers below the change are moved by the number of added/removed lines
+			final var markersByLineNumber = this.markersByLineNumber;
+			if (markersByLineNumber != null) {
+				final var affected = markersByLineNumber.tailMap(edit.firstLineNumber, true);
+				final var affectedEntries = new ArrayList<>(affected.entrySet());
+				affected.clear();
+				for (final var entry : affectedEntries) {
+					final int newLineNumber = edit.map(entry.getKey());
+					markersByLineNumber.computeIfAbsent(newLineNumber, l -> new ArrayList<>(1)).addAll(entry.getValue());
+					dirtyLineNumbers.set(newLineNumber);
+				}
+			}
+
+			final int firstLineNumber = edit.firstLineNumber;
+			final int lastLineNumber = edit.lastLineNumber;
+			final var dirtyBelow = dirtyLineNumbers.get(lastLineNumber + 1, Math.max(lastLineNumber + 1, dirtyLineNumbers.length()));
+			dirtyLineNumbers.clear(firstLineNumber, Math.max(firstLineNumber, dirtyLineNumbers.length()));
+			for (int i = dirtyBelow.nextSetBit(0); i >= 0; i = dirtyBelow.nextSetBit(i + 1)) {
+				dirtyLineNumbers.set(lastLineNumber + 1 + i + edit.delta);
+			}
+			dirtyLineNumbers.set(firstLineNumber, Math.max(firstLineNumber, lastLineNumber + edit.delta) + 1);
+		}
+	}
+
+	/** text markers of documents connected to a {@link ITMDocumentModel} */
+	private static final Map<IDocument, DocumentTextMarkers> TEXT_MARKERS_BY_DOCUMENT = Collections
+			.synchronizedMap(new WeakHashMap<>());
+
+	/**
+	 * Updates the TM4E text markers of the lines of the given event in the corresponding document. The markers are
+	 * updated asynchronously by a low priority job.
+	 */
+	public static void updateTextMarkers(final ModelTokensChangedEvent event) {
+		final ITMModel model = event.model;
+		if (model instanceof final ITMDocumentModel docModel) {
+			final var doc = docModel.getDocument();
+			var textMarkers = TEXT_MARKERS_BY_DOCUMENT.get(doc);
+			if (textMarkers == null) {
+				final var res = ResourceUtils.findResource(doc);
+				if (res == null)
+					return;
+				textMarkers = new DocumentTextMarkers(res);
+				final var existing = TEXT_MARKERS_BY_DOCUMENT.putIfAbsent(doc, textMarkers);
+				if (existing == null) {
+					doc.addDocumentListener(textMarkers);
+				} else {
+					textMarkers = existing;
 				}
 			}
+			textMarkers.update(docModel, event.ranges);
+		}
+	}
+
+	/**
+	 * Stops updating the TM4E text markers of the given document, e.g. because its model was disconnected. Existing
+	 * markers are kept.
+	 */
+	public static void stopUpdatingTextMarkers(final IDocument doc) {
+		final var textMarkers = TEXT_MARKERS_BY_DOCUMENT.remove(doc);
+		if (textMarkers != null) {
+			doc.removeDocumentListener(textMarkers);
+			textMarkers.dispose();
 		}
 	}
 
@@ -193,12 +536,13 @@ private static Integer getLineNumber(final IMarker marker) {
 	/**
 	 * Removes a matching marker from the given list.
 	 *
-	 * @return true if a matching marker was found and removed.
+	 * @return the matching marker or null if none was found.
 	 */
-	private static boolean removeMatchingMarker(final List<IMarker> markers, final String type,
+	@Nullable
+	private static IMarker removeMatchingMarker(final List<IMarker> markers, final String type,
 			final Map<String, ?> attributes) throws CoreException {
 		if (markers.isEmpty())
-			return false;
+			return null;
 
 		for (final var it = markers.iterator(); it.hasNext();) {
 			final var marker = it.next();
@@ -215,10 +559,10 @@ private static boolean removeMatchingMarker(final List<IMarker> markers, final S
 
 			if (hasMatchingAttrs) {
 				it.remove();
-				return true;
+				return marker;
 			}
 		}
-		return false;
+		return null;
 	}
 
 	/**
@@ -13,8 +13,11 @@
  */
 package org.eclipse.tm4e.ui.text;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.eclipse.jdt.annotation.Nullable;
 import org.eclipse.jface.text.BadLocationException;
@@ -29,13 +32,10 @@
 import org.eclipse.jface.text.TextPresentation;
 import org.eclipse.jface.text.TextViewer;
 import org.eclipse.jface.text.rules.IToken;
-import org.eclipse.jface.text.rules.Token;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.Color;
-import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
-import org.eclipse.tm4e.core.model.Range;
 import org.eclipse.tm4e.core.model.TMToken;
 import org.eclipse.tm4e.ui.TMUIPlugin;
 import org.eclipse.tm4e.ui.internal.utils.ClassHelper;
@@ -46,6 +46,13 @@
 class Colorizer {
 	private static final TextAttribute DEFAULT_TEXT_ATTRIBUTE = new TextAttribute(null);
 
+	/** number of regions colorized by all colorizers since the JVM was started */
+	static final LongAdder COLORIZED_REGIONS = new LongAdder();
+	/** number of lines colorized by all colorizers since the JVM was started */
+	static final LongAdder COLORIZED_LINES = new LongAdder();
+	/** time spent on the UI thread colorizing since the JVM was started */
+	static final LongAdder COLORIZING_NANOS = new LongAdder();
+
 	private final ITokenProvider theme;
 	private final ITextViewer viewer;
 
@@ -54,33 +61,53 @@ class Colorizer {
 	private boolean isViewerStyleColorsInitialized;
 	private boolean isViewerHighlightColorInitialized;
 
+	/**
+	 * Style range of a text attribute which is copied for every range styled with it. Token types with equal text
+	 * attributes share the same template, so adjacent tokens of the same style can be merged by identity comparison.
+	 */
+	private static final class StyleTemplate {
+		final StyleRange styleRange;
+
+		StyleTemplate(final TextAttribute attr) {
+			final int style = attr.getStyle();
+			final int fontStyle = style & (SWT.ITALIC | SWT.BOLD | SWT.NORMAL);
+			styleRange = new StyleRange(0, 0, attr.getForeground(), attr.getBackground(), fontStyle);
+			styleRange.strikeout = (style & TextAttribute.STRIKETHROUGH) != 0;
+			styleRange.underline = (style & TextAttribute.UNDERLINE) != 0;
+			styleRange.font = attr.getFont();
+		}
+	}
+
+	// the style caches are only accessed from the UI thread, a new Colorizer is created when the theme changes
+	private final Map<String /* Token type */, StyleTemplate> styleTemplatesByTokenType = new HashMap<>();
+	private final Map<TextAttribute, StyleTemplate> styleTemplatesByAttribute = new HashMap<>();
+	private final StyleTemplate defaultStyle;
+	private @Nullable String lastStyleTokenType;
+	private StyleTemplate lastStyleTemplate;
+
 	Colorizer(ITextViewer viewer, ITokenProvider theme, Set<ITMPresentationReconcilerListener> listeners) {
 		this.viewer = viewer;
 		this.theme = theme;
 		this.listeners = listeners;
+		defaultStyle = lastStyleTemplate = styleTemplatesByAttribute.computeIfAbsent(DEFAULT_TEXT_ATTRIBUTE, StyleTemplate::new);
 		applyThemeToViewer();
 	}
 
-	void colorize(final ModelTokensChangedEvent event) {
-		final IDocument doc = viewer.getDocument();
-		if (doc == null)
-			return;
-
-		if (event.model instanceof final ITMDocumentModel docModel) {
-			for (final Range range : event.ranges) {
-				try {
-					final int length = doc.getLineOffset(range.toLineNumber - 1) + doc.getLineLength(range.toLineNumber - 1)
-							- doc.getLineOffset(range.fromLineNumber - 1);
-					final var region = new Region(doc.getLineOffset(range.fromLineNumber - 1), length);
-					colorize(region, docModel);
-				} catch (final BadLocationException ex) {
-					TMUIPlugin.logError(ex);
-				}
-			}
-		}
+	/**
+	 * Colorizes the given range of lines.
+	 *
+	 * @param fromLineNumber 1-based
+	 * @param toLineNumber 1-based, inclusive
+	 */
+	void colorize(final int fromLineNumber, final int toLineNumber, final ITMDocumentModel tmModel) throws BadLocationException {
+		final IDocument doc = tmModel.getDocument();
+		final int length = doc.getLineOffset(toLineNumber - 1) + doc.getLineLength(toLineNumber - 1)
+				- doc.getLineOffset(fromLineNumber - 1);
+		colorize(new Region(doc.getLineOffset(fromLineNumber - 1), length), tmModel);
 	}
 
 	void colorize(final IRegion damageRegion, final ITMDocumentModel tmModel) throws BadLocationException {
+		final long startTime = System.nanoTime();
 		applyThemeToViewerIfNeeded();
 
 		final IDocument doc = tmModel.getDocument();
@@ -93,14 +120,11 @@ void colorize(final IRegion damageRegion, final ITMDocumentModel tmModel) throws
 		final var presentation = new TextPresentation(damageRegion, 1000);
 		Exception error = null;
 
-		final var theme = this.theme;
-
 		try {
 			int lastStart = presentation.getExtent().getOffset();
 			int length = 0;
 			boolean firstToken = true;
-			IToken lastToken = Token.UNDEFINED;
-			TextAttribute lastAttribute = getTokenTextAttribute(lastToken);
+			StyleTemplate lastStyle = defaultStyle;
 
 			List<TMToken> tokens = null;
 			for (int lineIndex = fromLineIndex; lineIndex <= toLineIndex; lineIndex++) {
@@ -125,8 +149,7 @@ void colorize(final IRegion damageRegion, final ITMDocumentModel tmModel) throws
 							tokenStartIndex = damageRegion.getOffset() - startLineOffset;
 						} else {
 							tokenStartIndex = damageRegion.getOffset() - startLineOffset;
-							final IToken token = theme == null ? ITokenProvider.DEFAULT_TOKEN : theme.getToken(currentToken.type);
-							lastAttribute = getTokenTextAttribute(token);
+							lastStyle = getStyleTemplate(currentToken.type);
 							length += getTokenLength(tokenStartIndex, nextToken, lineIndex, doc);
 							firstToken = false;
 							// ignore it
@@ -140,18 +163,16 @@ else if (isTokenAfterRegion(currentToken, startLineOffset, damageRegion)) {
 						break;
 					}
 
-					final IToken token = theme == null ? ITokenProvider.DEFAULT_TOKEN : theme.getToken(currentToken.type);
-					final TextAttribute attribute = getTokenTextAttribute(token);
-					if (lastAttribute.equals(attribute)) {
+					final StyleTemplate style = getStyleTemplate(currentToken.type);
+					if (lastStyle == style) {
 						length += getTokenLength(tokenStartIndex, nextToken, lineIndex, doc);
 						firstToken = false;
 					} else {
 						if (!firstToken) {
-							addStyleRange(presentation, lastStart, length, lastAttribute);
+							addStyleRange(presentation, lastStart, length, lastStyle);
 						}
 						firstToken = false;
-						lastToken = token;
-						lastAttribute = attribute;
+						lastStyle = style;
 						lastStart = tokenStartIndex + startLineOffset;
 						length = getTokenLength(tokenStartIndex, nextToken, lineIndex, doc);
 					}
@@ -159,7 +180,7 @@ else if (isTokenAfterRegion(currentToken, startLineOffset, damageRegion)) {
 			}
 			// adjust the length
 			length = Math.min(length, damageRegion.getOffset() + damageRegion.getLength() - lastStart);
-			addStyleRange(presentation, lastStart, length, lastAttribute);
+			addStyleRange(presentation, lastStart, length, lastStyle);
 			viewer.changeTextPresentation(presentation, false);
 		} catch (final Exception ex) {
 			error = ex;
@@ -167,6 +188,9 @@ else if (isTokenAfterRegion(currentToken, startLineOffset, damageRegion)) {
 		} finally {
 			final var err = error;
 			listeners.forEach(l -> l.onColorized(presentation, err));
+			COLORIZED_REGIONS.increment();
+			COLORIZED_LINES.add(toLineIndex - fromLineIndex + 1L);
+			COLORIZING_NANOS.add(System.nanoTime() - startTime);
 		}
 	}
 
@@ -179,19 +203,37 @@ else if (isTokenAfterRegion(currentToken, startLineOffset, damageRegion)) {
 	 *            the offset of the range to be styled
 	 * @param length
 	 *            the length of the range to be styled
-	 * @param attr
-	 *            the attribute describing the style of the range to be styled
+	 * @param style
+	 *            the style of the range to be styled
 	 */
-	private void addStyleRange(final TextPresentation presentation, final int offset, final int length, final TextAttribute attr) {
-		final int style = attr.getStyle();
-		final int fontStyle = style & (SWT.ITALIC | SWT.BOLD | SWT.NORMAL);
-		final var styleRange = new StyleRange(offset, length, attr.getForeground(), attr.getBackground(), fontStyle);
-		styleRange.strikeout = (style & TextAttribute.STRIKETHROUGH) != 0;
-		styleRange.underline = (style & TextAttribute.UNDERLINE) != 0;
-		styleRange.font = attr.getFont();
+	private void addStyleRange(final TextPresentation presentation, final int offset, final int length, final StyleTemplate style) {
+		final var styleRange = (StyleRange) style.styleRange.clone();
+		styleRange.start = offset;
+		styleRange.length = length;
 		presentation.addStyleRange(styleRange);
 	}
 
+	/**
+	 * @return the style of the given token type
+	 */
+	private StyleTemplate getStyleTemplate(final String tokenType) {
+		// consecutive tokens often share the same type instance
+		final var lastStyleTokenType = this.lastStyleTokenType;
+		if (tokenType == lastStyleTokenType)
+			return lastStyleTemplate;
+
+		var style = styleTemplatesByTokenType.get(tokenType);
+		if (style == null) {
+			final var theme = this.theme;
+			final IToken token = theme == null ? ITokenProvider.DEFAULT_TOKEN : theme.getToken(tokenType);
+			style = styleTemplatesByAttribute.computeIfAbsent(getTokenTextAttribute(token), StyleTemplate::new);
+			styleTemplatesByTokenType.put(tokenType, style);
+		}
+		this.lastStyleTokenType = tokenType;
+		lastStyleTemplate = style;
+		return style;
+	}
+
 	/**
 	 * Initialize foreground, background color, current line highlight from the current theme.
 	 */
@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2023 Vegard IT GmbH and others.
+ *
+ * This program and the accompanying materials are made
+ * available under the terms of the Eclipse Public License 2.0
+ * which is available at https://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.eclipse.tm4e.ui.text;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.eclipse.jdt.annotation.Nullable;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.ITextViewer;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
+import org.eclipse.tm4e.ui.TMUIPlugin;
+import org.eclipse.tm4e.ui.model.ITMDocumentModel;
+
+/**
+ * Colorizes the lines reported by {@link ModelTokensChangedEvent}s on the UI thread.
+ * <p>
+ * Changed lines are collected until the UI thread gets to process them, so a burst of events, e.g. during background
+ * tokenization of a large document, results in a single {@link Display#asyncExec(Runnable)}. While the text widget is
+ * visible only the changed lines within the viewport are colorized, the others remain pending until they become
+ * visible. Lines restyled after a theme change are the exception: they are colorized outside the viewport too, starting
+ * with the ones nearest to it, so no line keeps the styles of the previous theme. Each run stops after
+ * {@link #FRAME_BUDGET_NANOS} and continues in a new UI event, so painting and input handling are not delayed by more
+ * than a frame.
+ */
+final class ColorizerScheduler implements IDocumentListener {
+
+	/** max time spent colorizing per UI event, about half a frame at 60 Hz */
+	private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(8);
+
+	/** max number of lines colorized with one text presentation, so the frame budget is checked regularly */
+	private static final int MAX_LINES_PER_PRESENTATION = 200;
+
+	/** number of UI events in which changed lines were colorized since the JVM was started */
+	static final LongAdder UPDATES = new LongAdder();
+
+	private final ITextViewer viewer;
+	private final IDocument document;
+	private final Supplier<@Nullable Colorizer> colorizer;
+
+	/** 1-based numbers of the lines whose tokens changed but which are not colorized yet */
+	private final BitSet pendingLineNumbers = new BitSet();
+	/** the subset of {@link #pendingLineNumbers} which is colorized even if outside the viewport */
+	private final BitSet eagerLineNumbers = new BitSet();
+	private @Nullable ITMDocumentModel docModel;
+	private boolean isScheduled;
+	private boolean isDisposed;
+
+	// state captured in documentAboutToBeChanged() for documentChanged()
+	private int changeFirstLineNumber = -1;
+	private int changeLastLineNumber;
+	private int numberOfLinesBeforeChange;
+
+	ColorizerScheduler(final ITextViewer viewer, final IDocument document, final Supplier<@Nullable Colorizer> colorizer) {
+		this.viewer = viewer;
+		this.document = document;
+		this.colorizer = colorizer;
+		document.addDocumentListener(this);
+	}
+
+	/**
+	 * Marks the lines of the given event for colorization. Can be called from any thread.
+	 */
+	void schedule(final ModelTokensChangedEvent event) {
+		if (!(event.model instanceof final ITMDocumentModel docModel))
+			return;
+
+		synchronized (this) {
+			for (final var range : event.ranges) {
+				pendingLineNumbers.set(range.fromLineNumber, range.toLineNumber + 1);
+			}
+			this.docModel = docModel;
+		}
+		scheduleRun();
+	}
+
+	/**
+	 * Marks the given lines for colorization, e.g. all lines of the document after the theme changed. Unlike the lines of
+	 * {@link ModelTokensChangedEvent}s they are colorized outside the viewport too. Can be called from any thread.
+	 *
+	 * @param fromLineNumber 1-based
+	 * @param toLineNumber 1-based, inclusive
+	 */
+	void schedule(final int fromLineNumber, final int toLineNumber, final ITMDocumentModel docModel) {
+		synchronized (this) {
+			pendingLineNumbers.set(fromLineNumber, toLineNumber + 1);
+			eagerLineNumbers.set(fromLineNumber, toLineNumber + 1);
+			this.docModel = docModel;
+		}
+		scheduleRun();
+	}
+
+	/**
+	 * Colorizes the pending lines which became visible, e.g. by scrolling, resizing or unfolding. Must be called from the
+	 * UI thread.
+	 */
+	void visibleLinesChanged() {
+		final boolean hasPendingLines;
+		synchronized (this) {
+			hasPendingLines = !pendingLineNumbers.isEmpty();
+		}
+		if (hasPendingLines) {
+			scheduleRun();
+		}
+	}
+
+	void dispose() {
+		synchronized (this) {
+			isDisposed = true;
+			pendingLineNumbers.clear();
+			eagerLineNumbers.clear();
+			docModel = null;
+		}
+		document.removeDocumentListener(this);
+	}
+
+	private void scheduleRun() {
+		final var widget = viewer.getTextWidget();
+		if (widget == null || widget.isDisposed())
+			return;
+		synchronized (this) {
+			if (isScheduled || isDisposed)
+				return;
+			isScheduled = true;
+		}
+		widget.getDisplay().asyncExec(this::run);
+	}
+
+	private void run() {
+		final ITMDocumentModel docModel;
+		synchronized (this) {
+			isScheduled = false;
+			docModel = this.docModel;
+		}
+		final var colorizer = this.colorizer.get();
+		final var widget = viewer.getTextWidget();
+		if (docModel == null || colorizer == null || widget == null || widget.isDisposed())
+			return;
+
+		final long startTime = System.nanoTime();
+
+		// only colorize the visible lines if the widget is shown to the user, see nextPendingRange()
+		int fromLineNumber = 1;
+		int toLineNumber = Integer.MAX_VALUE - 1;
+		if (widget.isVisible()) {
+			final int topLineIndex = viewer.getTopIndex();
+			final int bottomLineIndex = viewer.getBottomIndex();
+			if (topLineIndex >= 0 && bottomLineIndex >= topLineIndex) {
+				fromLineNumber = topLineIndex + 1;
+				toLineNumber = bottomLineIndex + 1;
+			}
+		}
+
+		int colorizedLines = 0;
+		while (true) {
+			final int[] range = nextPendingRange(fromLineNumber, toLineNumber);
+			if (range == null)
+				break;
+			final int rangeStart = range[0];
+			final int rangeEnd = range[1];
+
+			try {
+				colorizer.colorize(rangeStart, rangeEnd, docModel);
+			} catch (final BadLocationException ex) {
+				TMUIPlugin.logError(ex);
+			}
+			colorizedLines += rangeEnd - rangeStart + 1;
+
+			if (System.nanoTime() - startTime >= FRAME_BUDGET_NANOS) {
+				// continue with the remaining lines after pending UI events were processed
+				final boolean hasMore;
+				synchronized (this) {
+					final int next = pendingLineNumbers.nextSetBit(fromLineNumber);
+					hasMore = next >= 0 && next <= toLineNumber || !eagerLineNumbers.isEmpty();
+				}
+				if (hasMore) {
+					scheduleRun();
+				}
+				break;
+			}
+		}
+
+		if (colorizedLines > 0) {
+			UPDATES.increment();
+			if (TMUIPlugin.isLogTraceEnabled())
+				TMUIPlugin.logTrace("Colorized " + colorizedLines + " lines in "
+						+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + "ms");
+		}
+	}
+
+	/**
+	 * Removes the next lines to colorize from the pending lines. Pending lines within the given visible lines come
+	 * first, followed by the {@link #eagerLineNumbers eager} lines nearest to the visible lines.
+	 *
+	 * @param fromLineNumber 1-based first visible line
+	 * @param toLineNumber 1-based last visible line, inclusive
+	 *
+	 * @return the 1-based first and last line number of the lines to colorize or <code>null</code> if no lines are to be
+	 *         colorized now
+	 */
+	private synchronized int @Nullable [] nextPendingRange(final int fromLineNumber, final int toLineNumber) {
+		final int numberOfLines = document.getNumberOfLines();
+		pendingLineNumbers.clear(numberOfLines + 1, Math.max(numberOfLines + 1, pendingLineNumbers.length()));
+		eagerLineNumbers.clear(numberOfLines + 1, Math.max(numberOfLines + 1, eagerLineNumbers.length()));
+
+		int rangeStart;
+		int rangeEnd;
+		final int visible = pendingLineNumbers.nextSetBit(fromLineNumber);
+		if (visible >= 0 && visible <= toLineNumber) {
+			rangeStart = visible;
+			rangeEnd = Math.min(Math.min(pendingLineNumbers.nextClearBit(visible) - 1, toLineNumber),
+					rangeStart + MAX_LINES_PER_PRESENTATION - 1);
+		} else {
+			final int below = eagerLineNumbers.nextSetBit(toLineNumber + 1);
+			final int above = eagerLineNumbers.previousSetBit(fromLineNumber - 1);
+			if (below < 0 && above < 0)
+				return null;
+			if (above < 0 || below >= 0 && below - toLineNumber <= fromLineNumber - above) {
+				// continue downwards from the eager line nearest below the visible lines
+				rangeStart = below;
+				rangeEnd = Math.min(eagerLineNumbers.nextClearBit(below) - 1,
+						rangeStart + MAX_LINES_PER_PRESENTATION - 1);
+			} else {
+				// continue upwards from the eager line nearest above the visible lines
+				rangeEnd = above;
+				rangeStart = Math.max(eagerLineNumbers.previousClearBit(above) + 1,
+						rangeEnd - MAX_LINES_PER_PRESENTATION + 1);
+			}
+		}
+		pendingLineNumbers.clear(rangeStart, rangeEnd + 1);
+		eagerLineNumbers.clear(rangeStart, rangeEnd + 1);
+		return new int[] { rangeStart, rangeEnd };
+	}
+
+	@Override
+	public synchronized void documentAboutToBeChanged(@Nullable final DocumentEvent event) {
+		if (event == null)
+			return;
+		try {
+			changeFirstLineNumber = document.getLineOfOffset(event.getOffset()) + 1;
+			changeLastLineNumber = document.getLineOfOffset(event.getOffset() + event.getLength()) + 1;
+			numberOfLinesBeforeChange = document.getNumberOfLines();
+		} catch (final BadLocationException ex) {
+			changeFirstLineNumber = -1;
+			TMUIPlugin.logError(ex);
+		}
+	}
+
+	/**
+	 * Moves the pending lines below the change by the number of added or removed lines.
+	 */
+	@Override
+	public synchronized void documentChanged(@Nullable final DocumentEvent event) {
+		if (event == null || changeFirstLineNumber == -1)
+			return;
+
+		final int firstLineNumber = changeFirstLineNumber;
+		final int lastLineNumber = changeLastLineNumber;
+		final int delta = document.getNumberOfLines() - numberOfLinesBeforeChange;
+		changeFirstLineNumber = -1;
+		if (delta == 0)
+			return;
+
+		shiftLines(pendingLineNumbers, firstLineNumber, lastLineNumber, delta);
+		shiftLines(eagerLineNumbers, firstLineNumber, lastLineNumber, delta);
+	}
+
+	private static void shiftLines(final BitSet lineNumbers, final int firstLineNumber, final int lastLineNumber,
+			final int delta) {
+		if (lineNumbers.isEmpty())
+			return;
+
+		final int nextPending = lineNumbers.nextSetBit(firstLineNumber);
+		final boolean hasPendingChangedLines = nextPending >= 0 && nextPending <= lastLineNumber;
+		final var pendingBelow = lineNumbers.get(lastLineNumber + 1, Math.max(lastLineNumber + 1, lineNumbers.length()));
+		lineNumbers.clear(firstLineNumber, Math.max(firstLineNumber, lineNumbers.length()));
+		for (int i = pendingBelow.nextSetBit(0); i >= 0; i = pendingBelow.nextSetBit(i + 1)) {
+			lineNumbers.set(lastLineNumber + 1 + i + delta);
+		}
+		if (hasPendingChangedLines) {
+			// the replaced lines may have been moved without being retokenized, e.g. by inserting lines above them
+			lineNumbers.set(firstLineNumber, Math.max(firstLineNumber, lastLineNumber + delta) + 1);
+		}
+	}
+}
@@ -18,6 +18,8 @@
 import static org.eclipse.tm4e.core.internal.utils.NullSafetyHelper.castNonNull;
 
 import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
@@ -36,6 +38,7 @@
 import org.eclipse.jface.text.ITextOperationTarget;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.ITextViewerExtension5;
+import org.eclipse.jface.text.IViewportListener;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextEvent;
 import org.eclipse.jface.text.TextPresentation;
@@ -45,10 +48,12 @@
 import org.eclipse.jface.text.rules.IToken;
 import org.eclipse.jface.text.source.SourceViewer;
 import org.eclipse.swt.custom.StyleRange;
-import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.events.ControlEvent;
+import org.eclipse.swt.events.ControlListener;
 import org.eclipse.tm4e.core.TMException;
 import org.eclipse.tm4e.core.grammar.IGrammar;
 import org.eclipse.tm4e.core.model.ModelTokensChangedEvent;
+import org.eclipse.tm4e.core.model.Range;
 import org.eclipse.tm4e.core.model.TMToken;
 import org.eclipse.tm4e.registry.TMEclipseRegistryPlugin;
 import org.eclipse.tm4e.ui.TMUIPlugin;
@@ -111,15 +116,33 @@ public class TMPresentationReconciler implements IPresentationReconciler {
 		return null;
 	}
 
+	/**
+	 * @param updates number of UI events in which lines with changed tokens were colorized
+	 * @param colorizedRegions number of regions colorized, incl. regions colorized because of theme changes or
+	 *            invalidated text presentations
+	 * @param colorizedLines number of lines colorized
+	 * @param uiTime time spent colorizing on the UI thread
+	 */
+	public record ColorizingStatistics(long updates, long colorizedRegions, long colorizedLines, Duration uiTime) {
+	}
+
+	/**
+	 * @return the colorizing statistics of all presentation reconcilers since the JVM was started
+	 */
+	public static ColorizingStatistics getColorizingStatistics() {
+		return new ColorizingStatistics(
+				ColorizerScheduler.UPDATES.sum(),
+				Colorizer.COLORIZED_REGIONS.sum(),
+				Colorizer.COLORIZED_LINES.sum(),
+				Duration.ofNanos(Colorizer.COLORIZING_NANOS.sum()));
+	}
+
 	private final ModelTokensChangedEvent.Listener modelsTokensChangedListener = new ModelTokensChangedEvent.Listener() {
 		@Override
 		public void onModelTokensChanged(final ModelTokensChangedEvent event) {
-			final var colorizer = TMPresentationReconciler.this.colorizer;
-			if (colorizer != null) {
-				final Control control = colorizer.getTextViewer().getTextWidget();
-				if (control != null) {
-					control.getDisplay().asyncExec(() -> colorizer.colorize(event));
-				}
+			final var colorizerScheduler = TMPresentationReconciler.this.colorizerScheduler;
+			if (colorizerScheduler != null) {
+				colorizerScheduler.schedule(event);
 			}
 			MarkerUtils.updateTextMarkers(event);
 		}
@@ -165,6 +188,7 @@ void preferenceThemeChange(final @Nullable String eclipseThemeId, final IThemeMa
 	private final TextViewerListener viewerListener = new TextViewerListener();
 
 	private volatile @Nullable Colorizer colorizer;
+	private volatile @Nullable ColorizerScheduler colorizerScheduler;
 	private @Nullable IGrammar grammar;
 	private boolean isForcedGrammar;
 	private @Nullable ITokenProvider theme;
@@ -177,7 +201,13 @@ public TMPresentationReconciler() {
 		}
 	}
 
-	private final class TextViewerListener implements ITextInputListener, ITextListener {
+	private final class TextViewerListener
+			implements ITextInputListener, ITextListener, IViewportListener, ControlListener {
+
+		/** the 0-based indexes of the visible lines last reported by {@link #visibleLinesChanged()} */
+		private int topLineIndex = -1;
+		private int bottomLineIndex = -1;
+
 		@Override
 		public void inputDocumentAboutToBeChanged(final @Nullable IDocument oldDoc, final @Nullable IDocument newDoc) {
 			if (oldDoc == null)
@@ -186,8 +216,15 @@ public void inputDocumentAboutToBeChanged(final @Nullable IDocument oldDoc, fina
 			final var viewer = TMPresentationReconciler.this.viewer;
 			if (viewer != null) {
 				viewer.removeTextListener(TMPresentationReconciler.this.viewerListener);
+				viewer.removeViewportListener(TMPresentationReconciler.this.viewerListener);
+				final var widget = viewer.getTextWidget();
+				if (widget != null && !widget.isDisposed()) {
+					widget.removeControlListener(TMPresentationReconciler.this.viewerListener);
+				}
 			}
+			disposeColorizerScheduler();
 			TMModelManager.INSTANCE.disconnect(oldDoc);
+			MarkerUtils.stopUpdatingTextMarkers(oldDoc);
 			listeners.forEach(l -> l.onUninstalled());
 		}
 
@@ -203,6 +240,10 @@ public void inputDocumentChanged(final @Nullable IDocument oldDoc, final @Nullab
 			listeners.forEach(l -> l.onInstalled(viewer, newDoc));
 
 			viewer.addTextListener(TMPresentationReconciler.this.viewerListener);
+			viewer.addViewportListener(TMPresentationReconciler.this.viewerListener);
+			viewer.getTextWidget().addControlListener(TMPresentationReconciler.this.viewerListener);
+			topLineIndex = -1;
+			bottomLineIndex = -1;
 
 			// update the grammar
 			IGrammar newDocGrammar;
@@ -225,8 +266,10 @@ public void inputDocumentChanged(final @Nullable IDocument oldDoc, final @Nullab
 				return;
 			}
 
-			// update the theme
 			final String scopeName = newDocGrammar.getScopeName();
+			TMEclipseRegistryPlugin.getGrammarRegistryManager().recordGrammarUsage(scopeName);
+
+			// update the theme
 			var theme = TMPresentationReconciler.this.theme;
 			if (theme == null) {
 				theme = TMPresentationReconciler.this.theme = TMUIPlugin.getThemeManager().getThemeForScope(scopeName,
@@ -234,13 +277,72 @@ public void inputDocumentChanged(final @Nullable IDocument oldDoc, final @Nullab
 			}
 
 			TMPresentationReconciler.this.colorizer = new Colorizer(viewer, theme, listeners);
+			disposeColorizerScheduler();
+			TMPresentationReconciler.this.colorizerScheduler = new ColorizerScheduler(viewer, newDoc,
+					() -> TMPresentationReconciler.this.colorizer);
 
 			// connect a TextMate model to the new document
 			final var docModel = TMModelManager.INSTANCE.connect(newDoc);
+			docModel.setVisibleLineRanges(getVisibleLineRanges(viewer));
 			docModel.setGrammar(newDocGrammar);
 			docModel.addModelTokensChangedListener(modelsTokensChangedListener);
 		}
 
+		@Override
+		public void viewportChanged(final int verticalOffset) {
+			visibleLinesChanged();
+		}
+
+		@Override
+		public void controlResized(final @Nullable ControlEvent e) {
+			visibleLinesChanged();
+		}
+
+		@Override
+		public void controlMoved(final @Nullable ControlEvent e) {
+		}
+
+		/**
+		 * Lets the model tokenize and the colorizer scheduler colorize the lines visible to the user first, if they
+		 * changed since the last call, e.g. because the viewer was scrolled or resized or folded lines were expanded.
+		 */
+		private void visibleLinesChanged() {
+			final var viewer = TMPresentationReconciler.this.viewer;
+			if (viewer == null)
+				return;
+
+			final int topLineIndex = viewer.getTopIndex();
+			final int bottomLineIndex = viewer.getBottomIndex();
+			if (topLineIndex == this.topLineIndex && bottomLineIndex == this.bottomLineIndex)
+				return;
+
+			final IDocument doc = viewer.getDocument();
+			if (doc == null || !TMModelManager.INSTANCE.isConnected(doc))
+				return;
+			this.topLineIndex = topLineIndex;
+			this.bottomLineIndex = bottomLineIndex;
+
+			// let the model tokenize the lines now visible to the user first
+			TMModelManager.INSTANCE.connect(doc).setVisibleLineRanges(getVisibleLineRanges(viewer));
+
+			// colorize lines with changed tokens which became visible
+			final var colorizerScheduler = TMPresentationReconciler.this.colorizerScheduler;
+			if (colorizerScheduler != null) {
+				colorizerScheduler.visibleLinesChanged();
+			}
+		}
+
+		/**
+		 * @return the range of document lines currently visible in the given viewer
+		 */
+		private List<Range> getVisibleLineRanges(final ITextViewer viewer) {
+			final int topLineIndex = viewer.getTopIndex();
+			final int bottomLineIndex = viewer.getBottomIndex();
+			return topLineIndex < 0 || bottomLineIndex < topLineIndex
+					? List.of()
+					: List.of(new Range(topLineIndex + 1, bottomLineIndex + 1));
+		}
+
 		@Override
 		public void textChanged(final @Nullable TextEvent event) {
 			if (event == null || !event.getViewerRedrawState())
@@ -250,6 +352,9 @@ public void textChanged(final @Nullable TextEvent event) {
 			if (viewer == null)
 				return;
 
+			// the text change may have changed the visible lines, e.g. when folded lines were expanded
+			visibleLinesChanged();
+
 			// case 1) changed text: propagate previous style (which will be overridden later asynchronously by TMModel.TokenizerThread)
 			if (event.getDocumentEvent() != null) {
 				final int diff = event.getText().length() - event.getLength();
@@ -322,6 +427,14 @@ IRegion getRegionOfTextEvent(final TextEvent event) {
 		}
 	}
 
+	private void disposeColorizerScheduler() {
+		final var colorizerScheduler = this.colorizerScheduler;
+		if (colorizerScheduler != null) {
+			colorizerScheduler.dispose();
+			this.colorizerScheduler = null;
+		}
+	}
+
 	/**
 	 * Finds a grammar for the given document.
 	 */
@@ -395,6 +508,13 @@ public void setTheme(final ITokenProvider newTheme) {
 				return;
 
 			final var docModel = TMModelManager.INSTANCE.connect(doc);
+
+			// recolor the document incrementally, visible lines first, without blocking the UI thread for longer than a frame
+			final var colorizerScheduler = this.colorizerScheduler;
+			if (colorizerScheduler != null) {
+				colorizerScheduler.schedule(1, doc.getNumberOfLines(), docModel);
+				return;
+			}
 			try {
 				colorizer.colorize(new Region(0, doc.getLength()), docModel);
 			} catch (final BadLocationException ex) {